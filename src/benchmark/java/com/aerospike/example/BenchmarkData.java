@@ -0,0 +1,65 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.policy.WritePolicy;
+
+import java.util.SplittableRandom;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// BenchmarkData
+//
+//   GIVEN  a set size, node count and TTL histogram bucket count
+//   THEN   build an in memory store holding that many records with TTLs spread evenly over 1..TTL seconds
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class BenchmarkData {
+    static final String NAMESPACE = "lru_test";
+    static final String SET = "mycache";
+    static final String BIN = "bin1";
+    static final int TTL = 10;
+
+    // Use factory methods
+    private BenchmarkData() {
+    }
+
+    static InMemoryCacheStore createStore(int nodeCount, int histogramBuckets) {
+        return new InMemoryCacheStore(nodeCount, TTL, histogramBuckets, System::currentTimeMillis);
+    }
+
+    static Key[] populate(CacheStore store, int setSize, int maxTTL) {
+        return populate(store, setSize, 1, maxTTL);
+    }
+
+    // TTLs spread evenly over minTTL..maxTTL seconds
+    static Key[] populate(CacheStore store, int setSize, int minTTL, int maxTTL) {
+        SplittableRandom random = new SplittableRandom(42);
+        WritePolicy writePolicy = new WritePolicy();
+        Key[] keys = new Key[setSize];
+        byte[] value = new byte[16];
+
+        for (int i = 0; i < setSize; i++) {
+            keys[i] = new Key(NAMESPACE, SET, "record_id-" + i);
+            for (int b = 0; b < value.length; b++) {
+                value[b] = (byte) random.nextInt(256);
+            }
+            writePolicy.expiration = minTTL + i % (maxTTL - minTTL + 1);
+            store.put(writePolicy, keys[i], new Bin(BIN, value.clone()));
+        }
+        return keys;
+    }
+
+    // Stamp the last access bin as if each record was last touched with the TTL it has left, the records populate
+    // gave the lowest TTL were accessed longest ago
+    static void stampLastAccess(CacheStore store, Key[] keys, int minTTL, int maxTTL) {
+        WritePolicy writePolicy = new WritePolicy();
+        writePolicy.expiration = -2;
+        long nowSeconds = LastAccessCacheStore.nowSeconds();
+
+        for (int i = 0; i < keys.length; i++) {
+            int ttl = minTTL + i % (maxTTL - minTTL + 1);
+            store.operate(writePolicy, keys[i], Operation.put(new Bin(LastAccessCacheStore.BIN, nowSeconds - (maxTTL - ttl))));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.aerospike.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// BulkLoadBenchmark
+//
+//   GIVEN  an empty set
+//   WHEN   BulkLoader pre-fills it with loader threads, in flight depth and value sizes
+//   THEN   measure the time per loaded record, compare with GenerateBenchmark's one record at a time
+//
+//   A fresh store per invocation keeps the set from growing across iterations
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@OperationsPerInvocation(BulkLoadBenchmark.BULK_SIZE)
+public class BulkLoadBenchmark {
+    static final int BULK_SIZE = 100000;
+
+    @Param({"1", "4"})
+    public int loaderThreads;
+
+    @Param({"1", "256"})
+    public int inFlight;
+
+    @Param({"fixed:16", "uniform:100:1000"})
+    public String valueSizes;
+
+    @Param({"100"})
+    public int histogramBuckets;
+
+    private InMemoryCacheStore store;
+    private BulkLoader.Config config;
+
+    @Setup(Level.Trial)
+    public void setupConfig() {
+        config = new BulkLoader.Config(BULK_SIZE, loaderThreads, inFlight, 0, BulkLoader.ValueSizes.parse(valueSizes), 1, BenchmarkData.TTL);
+    }
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        store = BenchmarkData.createStore(1, histogramBuckets);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public long bulkLoad() throws InterruptedException {
+        return new BulkLoader(store, BenchmarkData.NAMESPACE, BenchmarkData.SET, BenchmarkData.BIN, config).load(null);
+    }
+}
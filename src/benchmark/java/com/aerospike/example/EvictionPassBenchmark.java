@@ -0,0 +1,68 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Key;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// EvictionPassBenchmark
+//
+//   GIVEN  a freshly populated set before every pass
+//   WHEN   ForceObjectEvictionPolicy removes a tenth of the set from the oldest TTL bucket
+//   THEN   measure how long one eviction pass takes for each eviction mode. LAST_ACCESS_QUERY_DELETE removes the tenth
+//          with the oldest last access stamps instead, through the bin's secondary index
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+public class EvictionPassBenchmark {
+
+    @Param({"100000"})
+    public int setSize;
+
+    @Param({"100"})
+    public int histogramBuckets;
+
+    @Param({"SCAN_AND_DELETE", "FILTERED_SCAN_DELETE", "BACKGROUND_DELETE", "PARTITION_SCAN_DELETE", "OLDEST_FIRST_DELETE", "LAST_ACCESS_QUERY_DELETE"})
+    public String evictionMode;
+
+    private InMemoryCacheStore store;
+    private long objectsToRemove;
+    private ManageMaxObjectsInLRUCachePolicy.EvictionMode mode;
+    private LastAccessEvictor lastAccessEvictor;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        store = BenchmarkData.createStore(1, histogramBuckets);
+        Key[] keys = BenchmarkData.populate(store, setSize, BenchmarkData.TTL);
+        store.nsup();
+
+        objectsToRemove = setSize / 10;
+        mode = ManageMaxObjectsInLRUCachePolicy.EvictionMode.valueOf(evictionMode);
+        if (mode == ManageMaxObjectsInLRUCachePolicy.EvictionMode.LAST_ACCESS_QUERY_DELETE) {
+            BenchmarkData.stampLastAccess(store, keys, 1, BenchmarkData.TTL);
+            store.createIndex(BenchmarkData.NAMESPACE, BenchmarkData.SET, LastAccessCacheStore.BIN);
+            lastAccessEvictor = new LastAccessEvictor(BenchmarkData.TTL);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public void run() {
+        if (lastAccessEvictor != null) {
+            ManageMaxObjectsInLRUCachePolicy.ForceObjectEvictionPolicy.runLastAccess(store, BenchmarkData.NAMESPACE, BenchmarkData.SET, null, objectsToRemove, lastAccessEvictor);
+            return;
+        }
+
+        // Records were written with TTLs 1..TTL, so the oldest tenth of a set sits at or below 1 second
+        ManageMaxObjectsInLRUCachePolicy.ForceObjectEvictionPolicy.run(store, BenchmarkData.NAMESPACE, BenchmarkData.SET, 1, objectsToRemove, objectsToRemove, mode);
+    }
+}
@@ -0,0 +1,45 @@
+package com.aerospike.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// GenerateBenchmark
+//
+//   GIVEN  a populated set
+//   WHEN   RandomObjectGenerator adds a batch of new records back to back, without its random delay between records
+//   THEN   measure the time per generated record
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@OperationsPerInvocation(GenerateBenchmark.BATCH_SIZE)
+public class GenerateBenchmark {
+    static final int BATCH_SIZE = 100;
+
+    @Param({"100000"})
+    public int setSize;
+
+    @Param({"100"})
+    public int histogramBuckets;
+
+    private InMemoryCacheStore store;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store = BenchmarkData.createStore(1, histogramBuckets);
+        BenchmarkData.populate(store, setSize, BenchmarkData.TTL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public Object generate() {
+        return RandomObjectGeneratorPolicy.RandomObjectGenerator.generate(store, BenchmarkData.NAMESPACE, BenchmarkData.SET, BenchmarkData.BIN, BenchmarkData.TTL, BATCH_SIZE, 0, null, 0);
+    }
+}
@@ -0,0 +1,58 @@
+package com.aerospike.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// HistogramFetchBenchmark
+//
+//   GIVEN  a populated set spread over a number of nodes
+//   WHEN   the policy fetches and merges the TTL histogram of every node
+//   THEN   measure the cost of ObjectsPerTTLHistogramState.fetch (first fetch, arrays sized) and refresh (every later
+//          policy tick, arrays reused), info response parsing included
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HistogramFetchBenchmark {
+
+    @Param({"100000"})
+    public int setSize;
+
+    @Param({"100"})
+    public int histogramBuckets;
+
+    @Param({"1", "4"})
+    public int nodeCount;
+
+    private InMemoryCacheStore store;
+    private ManageMaxObjectsInLRUCachePolicy.ObjectsPerTTLHistogramState state;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store = BenchmarkData.createStore(nodeCount, histogramBuckets);
+        BenchmarkData.populate(store, setSize, BenchmarkData.TTL);
+
+        // Histograms are built by nsup, so the benchmark measures fetching and parsing only
+        store.nsup();
+        state = ManageMaxObjectsInLRUCachePolicy.ObjectsPerTTLHistogramState.fetch(store, BenchmarkData.NAMESPACE, BenchmarkData.SET, BenchmarkData.TTL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public Object fetch() {
+        return ManageMaxObjectsInLRUCachePolicy.ObjectsPerTTLHistogramState.fetch(store, BenchmarkData.NAMESPACE, BenchmarkData.SET, BenchmarkData.TTL);
+    }
+
+    @Benchmark
+    public Object refresh() {
+        state.refresh(store);
+        return state;
+    }
+}
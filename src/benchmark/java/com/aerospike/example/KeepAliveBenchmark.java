@@ -0,0 +1,70 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.WritePolicy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// KeepAliveBenchmark
+//
+//   GIVEN  a populated set
+//   WHEN   threads keep random records alive with touch + get (as BenchmarkWorker does)
+//   THEN   measure throughput and latency of the keep alive path, straight to the store or through a near cache
+//          (nearCacheBytes > 0) that holds part of the set
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KeepAliveBenchmark {
+
+    private static final int KEY_TTL = 3600;
+
+    @Param({"100000"})
+    public int setSize;
+
+    @Param({"100"})
+    public int histogramBuckets;
+
+    @Param({"0", "8388608", "67108864"})
+    public long nearCacheBytes;
+
+    private CacheStore store;
+    private Key[] keys;
+    private WritePolicy writePolicy;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        InMemoryCacheStore inMemoryStore = BenchmarkData.createStore(1, histogramBuckets);
+        // Records a thread hasn't picked yet must not expire mid run (or while populating), give them all an hour
+        keys = BenchmarkData.populate(inMemoryStore, setSize, KEY_TTL, KEY_TTL);
+        store = nearCacheBytes > 0 ? new NearCacheStore(inMemoryStore, nearCacheBytes) : inMemoryStore;
+
+        writePolicy = new WritePolicy();
+        writePolicy.expiration = BenchmarkData.TTL;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public Record touchAndGet(ThreadState threadState) {
+        Operation[] fetchCachedItemOperation = new Operation[]{
+                Operation.touch(),
+                Operation.get()
+        };
+        return store.operate(writePolicy, keys[threadState.random.nextInt(keys.length)], fetchCachedItemOperation);
+    }
+}
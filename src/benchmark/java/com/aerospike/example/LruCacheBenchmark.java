@@ -0,0 +1,80 @@
+package com.aerospike.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// LruCacheBenchmark
+//
+//   GIVEN  a few hot keys that all go cold at the same moment every GENERATION_NANOS (a new generation of keys)
+//   WHEN   threads read them through LruCache.getOrLoad, or get then load and put without sharing the load
+//   THEN   compare throughput and loads per operation (the loads counter): shared misses load each key once per
+//          generation, unshared ones once per thread that missed
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LruCacheBenchmark {
+    // About 8ms
+    private static final int GENERATION_SHIFT = 23;
+
+    @Param({"1", "100"})
+    public int hotKeys;
+
+    @Param({"1000"})
+    public int loaderMicros;
+
+    @Param({"100"})
+    public int histogramBuckets;
+
+    private InMemoryCacheStore store;
+    private LruCache<String, String> cache;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ThreadState {
+        SplittableRandom random = new SplittableRandom();
+        public long loads;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store = BenchmarkData.createStore(1, histogramBuckets);
+        cache = new LruCache<>(store, BenchmarkData.NAMESPACE, BenchmarkData.SET, BenchmarkData.BIN, BenchmarkData.TTL, LruCache.binValues(), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public String getOrLoad(ThreadState threadState) {
+        return cache.getOrLoad(nextKey(threadState), key -> load(threadState, key));
+    }
+
+    @Benchmark
+    public String getThenLoad(ThreadState threadState) {
+        String key = nextKey(threadState);
+        String value = cache.get(key);
+        if (value == null) {
+            value = load(threadState, key);
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    private String nextKey(ThreadState threadState) {
+        return "hot-" + (System.nanoTime() >>> GENERATION_SHIFT) + "-" + threadState.random.nextInt(hotKeys);
+    }
+
+    private String load(ThreadState threadState, String key) {
+        threadState.loads++;
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(loaderMicros));
+        return "value of " + key;
+    }
+}
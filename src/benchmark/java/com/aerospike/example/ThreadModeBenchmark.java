@@ -0,0 +1,140 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.policy.WritePolicy;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// ThreadModeBenchmark
+//
+//   GIVEN  a populated set and a number of logical clients, one thread each, on platform or virtual threads
+//   WHEN   every client keeps CALLS_PER_CLIENT random records alive on an open loop schedule, each call blocking for
+//          networkMicros first (a round trip to the server) as a sync client call does
+//   THEN   measure the time all clients take (at least CALLS_PER_CLIENT intervals), and print per iteration the p99
+//          latency from the intended start, the most platform threads alive at once (the carriers for virtual
+//          threads) and the process CPU time per CPU (how busy those threads kept the machine)
+//
+//   Virtual threads need Java 21 or later, before that both modes run on platform threads
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadModeBenchmark {
+    static final int CALLS_PER_CLIENT = 10;
+
+    private static final int KEY_TTL = 3600;
+    private static final long CALL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"1000", "10000"})
+    public int clients;
+
+    @Param({"1000"})
+    public int networkMicros;
+
+    @Param({"100000"})
+    public int setSize;
+
+    @Param({"100"})
+    public int histogramBuckets;
+
+    private InMemoryCacheStore store;
+    private Key[] keys;
+    private WritePolicy writePolicy;
+    private ThreadFactory threadFactory;
+
+    private final Recorder latencies = new Recorder(3);
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final OperatingSystemMXBean osMXBean = ManagementFactory.getOperatingSystemMXBean();
+    private long iterationStartNanos;
+    private long iterationStartCpuNanos;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store = BenchmarkData.createStore(1, histogramBuckets);
+        keys = BenchmarkData.populate(store, setSize, KEY_TTL, KEY_TTL);
+        writePolicy = new WritePolicy();
+        writePolicy.expiration = KEY_TTL;
+
+        boolean virtual = "virtual".equals(threads);
+        if (virtual && !Threads.isVirtualAvailable()) {
+            System.out.println("\nNo virtual threads on Java " + System.getProperty("java.version") + ", running on platform threads");
+        }
+        threadFactory = Threads.factory("client", virtual);
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        latencies.reset();
+        threadMXBean.resetPeakThreadCount();
+        iterationStartNanos = System.nanoTime();
+        iterationStartCpuNanos = processCpuNanos();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportIteration() {
+        long elapsedNanos = Math.max(1, System.nanoTime() - iterationStartNanos);
+        int cpus = Runtime.getRuntime().availableProcessors();
+        Histogram histogram = latencies.getIntervalHistogram();
+        System.out.println(String.format("%n>>%d clients on %s threads: p99=%.3fms, peak platform threads=%d, cpu=%d%% of %d CPUs",
+                clients, threads, histogram.getValueAtPercentile(99) / 1e6, threadMXBean.getPeakThreadCount(),
+                (processCpuNanos() - iterationStartCpuNanos) * 100 / (elapsedNanos * cpus), cpus));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public void keepAlive() throws InterruptedException {
+        // Clients start spread over the first interval, like LoadGenerator's workers
+        long startNanos = System.nanoTime();
+        Thread[] workers = new Thread[clients];
+        for (int i = 0; i < clients; i++) {
+            long firstNanos = startNanos + CALL_INTERVAL_NANOS * i / clients;
+            workers[i] = threadFactory.newThread(() -> runClient(firstNanos));
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private void runClient(long firstNanos) {
+        SplittableRandom random = new SplittableRandom();
+        for (int call = 0; call < CALLS_PER_CLIENT; call++) {
+            long intendedNanos = firstNanos + call * CALL_INTERVAL_NANOS;
+            long remaining;
+            while ((remaining = intendedNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+
+            // The round trip, the thread is blocked on its socket
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(networkMicros));
+            store.operate(writePolicy, keys[random.nextInt(keys.length)], Operation.touch(), Operation.get());
+            latencies.recordValue(Math.max(0, System.nanoTime() - intendedNanos));
+        }
+    }
+
+    private long processCpuNanos() {
+        if (osMXBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) osMXBean).getProcessCpuTime();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,138 @@
+package com.aerospike.example;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// ValueCodecBenchmark
+//
+//   GIVEN  JSON documents of about valueKB KB, serialized with Jackson
+//   WHEN   threads put them through LruCache and read them back (touch + get), with the document stored as a String
+//          bin (string), as a raw byte[] bin (bytes) or deflated above ValueCodec.DEFAULT_COMPRESSION_THRESHOLD
+//          (deflate)
+//   THEN   compare throughput and, through the GC profiler, allocation per operation, and print the bytes the store
+//          holds per document (memory_data_bytes / objects, what the bytes goal works from)
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ValueCodecBenchmark {
+    private static final int KEYS = 64;
+    private static final String[] WORDS = {"cache", "record", "eviction", "partition", "namespace", "histogram", "touch", "expiry", "server", "client"};
+
+    @Param({"string", "bytes", "deflate"})
+    public String codec;
+
+    @Param({"1", "64", "500"})
+    public int valueKB;
+
+    @Param({"100"})
+    public int histogramBuckets;
+
+    private InMemoryCacheStore store;
+    private LruCache<Integer, Document> cache;
+    private Document[] documents;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        SplittableRandom random = new SplittableRandom();
+    }
+
+    public static class Document {
+        public long id;
+        public String name;
+        public List<Item> items = new ArrayList<>();
+    }
+
+    public static class Item {
+        public int sku;
+        public String title;
+        public double price;
+        public List<String> tags;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        store = BenchmarkData.createStore(1, histogramBuckets);
+        cache = new LruCache<>(store, BenchmarkData.NAMESPACE, BenchmarkData.SET, BenchmarkData.BIN, 3600, codec(mapper), null);
+
+        SplittableRandom random = new SplittableRandom(42);
+        documents = new Document[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            documents[i] = document(mapper, random, i, valueKB * 1024);
+            cache.put(i, documents[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        String sets = store.info(store.getNodeNames()[0], "sets/" + BenchmarkData.NAMESPACE + "/" + BenchmarkData.SET);
+        long objects = InfoParser.longValue(sets, "objects", 0);
+        long bytes = InfoParser.longValue(sets, "memory_data_bytes", 0);
+        System.out.println("\n>>" + codec + " stores " + (objects == 0 ? 0 : bytes / objects) + " bytes per " + valueKB + "KB document");
+        store.close();
+    }
+
+    @Benchmark
+    public Document putAndGet(ThreadState threadState) {
+        int key = threadState.random.nextInt(KEYS);
+        cache.put(key, documents[key]);
+        return cache.get(key);
+    }
+
+    private LruCache.Codec<Document> codec(ObjectMapper mapper) {
+        switch (codec) {
+            case "string":
+                // Jackson to a String and back, as a cache without a codec would
+                return new LruCache.Codec<Document>() {
+                    public Object encode(Document value) {
+                        try {
+                            return mapper.writeValueAsString(value);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+
+                    public Document decode(Object binValue) {
+                        try {
+                            return mapper.readValue((String) binValue, Document.class);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                };
+            case "bytes":
+                return ValueCodec.json(mapper, Document.class, 0);
+            default:
+                return ValueCodec.json(mapper, Document.class, ValueCodec.DEFAULT_COMPRESSION_THRESHOLD);
+        }
+    }
+
+    // Items of a small vocabulary and random numbers until the JSON is about size bytes
+    private static Document document(ObjectMapper mapper, SplittableRandom random, long id, int size) throws IOException {
+        Document document = new Document();
+        document.id = id;
+        document.name = "document-" + id;
+        int itemBytes = 0;
+        do {
+            Item item = new Item();
+            item.sku = random.nextInt(1000000);
+            item.title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            item.price = random.nextInt(100000) / 100.0;
+            item.tags = Arrays.asList(WORDS[random.nextInt(WORDS.length)], WORDS[random.nextInt(WORDS.length)]);
+            document.items.add(item);
+            if (itemBytes == 0) itemBytes = mapper.writeValueAsBytes(item).length + 1;
+        } while (document.items.size() * itemBytes < size);
+        return document;
+    }
+}
@@ -0,0 +1,127 @@
+package com.aerospike.microbenchmark;
+
+import org.apache.commons.cli.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// Main
+//
+//   Runs the JMH suites against the in memory store:
+//   - hot paths (keep alive touch + get, histogram fetch, record generation, cache loads, value codecs) once per
+//     thread count
+//   - a single threaded eviction pass per eviction mode
+//   - bulk loads, and logical clients on platform against virtual threads
+//   Every run reports throughput, latency percentiles and, through the GC profiler, allocation rate
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class Main {
+
+    private static String DEFAULT_THREADS = "1,4";
+    private static String DEFAULT_SET_SIZES = "100000";
+    private static String DEFAULT_HISTOGRAM_BUCKETS = "100";
+    private static String DEFAULT_ITERATION_TIME_SEC = "5";
+
+    private static String HOT_PATH_BENCHMARKS = "com.aerospike.example.(KeepAlive|HistogramFetch|Generate|LruCache|ValueCodec)Benchmark";
+    private static String EVICTION_BENCHMARKS = "com.aerospike.example.EvictionPassBenchmark";
+    // Runs its own loader threads
+    private static String BULK_LOAD_BENCHMARKS = "com.aerospike.example.BulkLoadBenchmark";
+    // Starts its own logical clients, on platform or virtual threads
+    private static String THREAD_MODE_BENCHMARKS = "com.aerospike.example.ThreadModeBenchmark";
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new Options();
+
+        Option threads = new Option("z", "threads", true, "Comma separated thread counts to run the hot path suites with");
+        threads.setRequired(false);
+        options.addOption(threads);
+
+        Option setSizes = new Option("c", "set-sizes", true, "Comma separated number of records in the set");
+        setSizes.setRequired(false);
+        options.addOption(setSizes);
+
+        Option buckets = new Option("b", "buckets", true, "Comma separated TTL histogram bucket counts");
+        buckets.setRequired(false);
+        options.addOption(buckets);
+
+        Option time = new Option("t", "time", true, "Seconds per warmup and measurement iteration");
+        time.setRequired(false);
+        options.addOption(time);
+
+        Option include = new Option("i", "include", true, "Only run benchmarks matching this regular expression");
+        include.setRequired(false);
+        options.addOption(include);
+
+        Option output = new Option("o", "output", true, "Write results as JSON to this file prefix");
+        output.setRequired(false);
+        options.addOption(output);
+
+        CommandLine cmd = null;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            System.out.println(e.getMessage());
+            new HelpFormatter().printHelp("microbenchmark", options);
+            System.exit(1);
+        }
+
+        String[] threadCounts = cmd.getOptionValue("threads", DEFAULT_THREADS).split(",");
+        String[] setSizeValues = cmd.getOptionValue("set-sizes", DEFAULT_SET_SIZES).split(",");
+        String[] bucketValues = cmd.getOptionValue("buckets", DEFAULT_HISTOGRAM_BUCKETS).split(",");
+        TimeValue iterationTime = TimeValue.seconds(Long.parseLong(cmd.getOptionValue("time", DEFAULT_ITERATION_TIME_SEC)));
+        String includeFilter = cmd.getOptionValue("include");
+        String outputPrefix = cmd.getOptionValue("output");
+
+        for (String threadCount : threadCounts) {
+            ChainedOptionsBuilder builder = baseOptions(includeFilter != null ? includeFilter : HOT_PATH_BENCHMARKS, setSizeValues, bucketValues, outputPrefix, "hotpath-t" + threadCount)
+                    .threads(Integer.parseInt(threadCount.trim()))
+                    .warmupIterations(2)
+                    .warmupTime(iterationTime)
+                    .measurementIterations(3)
+                    .measurementTime(iterationTime);
+            new Runner(builder.build()).run();
+        }
+
+        if (includeFilter == null) {
+            ChainedOptionsBuilder builder = baseOptions(EVICTION_BENCHMARKS, setSizeValues, bucketValues, outputPrefix, "eviction")
+                    .threads(1);
+            new Runner(builder.build()).run();
+
+            builder = baseOptions(BULK_LOAD_BENCHMARKS, setSizeValues, bucketValues, outputPrefix, "bulkload")
+                    .threads(1)
+                    .warmupIterations(1)
+                    .warmupTime(iterationTime)
+                    .measurementIterations(3)
+                    .measurementTime(iterationTime);
+            new Runner(builder.build()).run();
+
+            builder = baseOptions(THREAD_MODE_BENCHMARKS, setSizeValues, bucketValues, outputPrefix, "threadmode")
+                    .threads(1)
+                    .warmupIterations(1)
+                    .warmupTime(iterationTime)
+                    .measurementIterations(3)
+                    .measurementTime(iterationTime);
+            new Runner(builder.build()).run();
+        }
+    }
+
+    private static ChainedOptionsBuilder baseOptions(String include, String[] setSizes, String[] buckets, String outputPrefix, String runName) {
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .include(include)
+                .param("setSize", setSizes)
+                .param("histogramBuckets", buckets)
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .shouldFailOnError(true);
+
+        if (outputPrefix != null) {
+            builder.resultFormat(ResultFormatType.JSON).result(outputPrefix + "-" + runName + ".json");
+        }
+        return builder;
+    }
+}
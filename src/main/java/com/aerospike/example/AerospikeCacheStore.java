@@ -0,0 +1,278 @@
+package com.aerospike.example;
+
+import com.aerospike.client.*;
+import com.aerospike.client.Record;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.cluster.ClusterStats;
+import com.aerospike.client.cluster.ConnectionStats;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.cluster.NodeStats;
+import com.aerospike.client.cluster.Partition;
+import com.aerospike.client.listener.DeleteListener;
+import com.aerospike.client.listener.RecordListener;
+import com.aerospike.client.listener.WriteListener;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.IndexType;
+import com.aerospike.client.query.PartitionFilter;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+import com.aerospike.client.task.ExecuteTask;
+import com.aerospike.client.task.IndexTask;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// AerospikeCacheStore
+//
+//   CacheStore backed by an Aerospike cluster
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class AerospikeCacheStore implements CacheStore {
+    // How often to poll the server for background task completion, and how long to wait at most
+    private static final int BACKGROUND_TASK_POLL_INTERVAL = 100;
+    private static final int BACKGROUND_TASK_TIMEOUT = 60000;
+
+    private final AerospikeClient client;
+
+    // Event loops the client was created with (ClientPolicy.eventLoops), null for a sync only client
+    private final EventLoops eventLoops;
+
+    AerospikeCacheStore(AerospikeClient client) {
+        this(client, null);
+    }
+
+    AerospikeCacheStore(AerospikeClient client, EventLoops eventLoops) {
+        this.client = client;
+        this.eventLoops = eventLoops;
+    }
+
+    AerospikeClient getClient() {
+        return client;
+    }
+
+    public void put(WritePolicy policy, Key key, Bin... bins) {
+        client.put(policy, key, bins);
+    }
+
+    public Record get(Policy policy, Key key) {
+        return client.get(policy, key);
+    }
+
+    public Record operate(WritePolicy policy, Key key, Operation... operations) {
+        return client.operate(policy, key, operations);
+    }
+
+    public boolean delete(WritePolicy policy, Key key) {
+        return client.delete(policy, key);
+    }
+
+    public void scanAll(ScanPolicy policy, String namespace, String setName, RecordFilter filter, ScanCallback callback) {
+        if (filter != null) {
+            policy = new ScanPolicy(policy);
+            policy.filterExp = filter.toExpression();
+        }
+        client.scanAll(policy, namespace, setName, callback);
+    }
+
+    public void scanPartition(ScanPolicy policy, String namespace, String setName, int partitionId, byte[] afterDigest, RecordFilter filter, ScanCallback callback) {
+        if (filter != null) {
+            policy = new ScanPolicy(policy);
+            policy.filterExp = filter.toExpression();
+        }
+
+        // The digest alone identifies the partition and the place in it
+        PartitionFilter partitionFilter = afterDigest == null ? PartitionFilter.id(partitionId) : PartitionFilter.after(new Key(namespace, afterDigest, setName, null));
+        client.scanPartitions(policy, partitionFilter, namespace, setName, callback);
+    }
+
+    public void backgroundDelete(String namespace, String setName, RecordFilter filter) {
+        WritePolicy writePolicy = newWritePolicy();
+        writePolicy.filterExp = filter.toExpression();
+
+        Statement statement = new Statement();
+        statement.setNamespace(namespace);
+        statement.setSetName(setName);
+
+        ExecuteTask task = client.execute(writePolicy, statement, Operation.delete());
+        task.waitTillComplete(BACKGROUND_TASK_POLL_INTERVAL, BACKGROUND_TASK_TIMEOUT);
+    }
+
+    // Named <namespace>_<set>_<bin>, an index another process already created under that name is reused
+    public void createIndex(String namespace, String setName, String binName) {
+        try {
+            IndexTask task = client.createIndex(null, namespace, setName, namespace + "_" + setName + "_" + binName, binName, IndexType.NUMERIC);
+            task.waitTillComplete(BACKGROUND_TASK_POLL_INTERVAL, BACKGROUND_TASK_TIMEOUT);
+        } catch (AerospikeException e) {
+            if (e.getResultCode() != ResultCode.INDEX_ALREADY_EXISTS) throw e;
+        }
+    }
+
+    public void queryRange(QueryPolicy policy, String namespace, String setName, String binName, long begin, long end, RecordFilter filter, ScanCallback callback) {
+        if (filter != null) {
+            policy = new QueryPolicy(policy);
+            policy.filterExp = filter.toExpression();
+        }
+
+        Statement statement = new Statement();
+        statement.setNamespace(namespace);
+        statement.setSetName(setName);
+        statement.setFilter(Filter.range(binName, begin, end));
+
+        try (RecordSet records = client.query(policy, statement)) {
+            while (records.next()) {
+                callback.scanCallback(records.getKey(), records.getRecord());
+            }
+        }
+    }
+
+    public String[] getNodeNames() {
+        Node[] nodes = client.getNodes();
+        String[] names = new String[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            names[i] = nodes[i].getName();
+        }
+        return names;
+    }
+
+    // From the client's partition map, as a write to the key would be routed
+    public String nodeOf(Key key) {
+        try {
+            return Partition.write(client.getCluster(), client.writePolicyDefault, key).getNodeWrite(client.getCluster()).getName();
+        } catch (AerospikeException e) {
+            // No node owns the partition right now, e.g. during a cluster change
+            return null;
+        }
+    }
+
+    public String info(String nodeName, String command) {
+        return Info.request(client.infoPolicyDefault, client.getNode(nodeName), command);
+    }
+
+    public Map<String, String> info(String nodeName, String... commands) {
+        return Info.request(client.infoPolicyDefault, client.getNode(nodeName), commands);
+    }
+
+    public WritePolicy newWritePolicy() {
+        return new WritePolicy(client.writePolicyDefault);
+    }
+
+    public ScanPolicy newScanPolicy() {
+        return new ScanPolicy(client.scanPolicyDefault);
+    }
+
+    public QueryPolicy newQueryPolicy() {
+        return new QueryPolicy(client.queryPolicyDefault);
+    }
+
+    // Totals across nodes: in use / in pool, opened / closed since start
+    public String getConnectionStats() {
+        ClusterStats stats = client.getClusterStats();
+        int syncInUse = 0, syncInPool = 0, syncOpened = 0, syncClosed = 0;
+        int asyncInUse = 0, asyncInPool = 0, asyncOpened = 0, asyncClosed = 0;
+        for (NodeStats node : stats.nodes) {
+            syncInUse += node.sync.inUse;
+            syncInPool += node.sync.inPool;
+            syncOpened += node.sync.opened;
+            syncClosed += node.sync.closed;
+            ConnectionStats async = node.async;
+            if (async != null) {
+                asyncInUse += async.inUse;
+                asyncInPool += async.inPool;
+                asyncOpened += async.opened;
+                asyncClosed += async.closed;
+            }
+        }
+
+        String result = "conns sync=" + syncInUse + "/" + syncInPool + " (" + syncOpened + " opened, " + syncClosed + " closed)";
+        if (eventLoops != null) {
+            result += " async=" + asyncInUse + "/" + asyncInPool + " (" + asyncOpened + " opened, " + asyncClosed + " closed)";
+        }
+        return result + " threads in use=" + stats.threadsInUse;
+    }
+
+    public CompletableFuture<Void> putAsync(WritePolicy policy, Key key, Bin... bins) {
+        if (eventLoops == null) return CacheStore.super.putAsync(policy, key, bins);
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            client.put(eventLoops.next(), new WriteListener() {
+                public void onSuccess(Key key) {
+                    future.complete(null);
+                }
+
+                public void onFailure(AerospikeException e) {
+                    future.completeExceptionally(e);
+                }
+            }, policy, key, bins);
+        } catch (AerospikeException e) {
+            // Rejected before it was queued, e.g. the event loop's command queue is full
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public CompletableFuture<Record> getAsync(Policy policy, Key key) {
+        if (eventLoops == null) return CacheStore.super.getAsync(policy, key);
+
+        CompletableFuture<Record> future = new CompletableFuture<>();
+        try {
+            client.get(eventLoops.next(), recordListener(future), policy, key);
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public CompletableFuture<Record> operateAsync(WritePolicy policy, Key key, Operation... operations) {
+        if (eventLoops == null) return CacheStore.super.operateAsync(policy, key, operations);
+
+        CompletableFuture<Record> future = new CompletableFuture<>();
+        try {
+            client.operate(eventLoops.next(), recordListener(future), policy, key, operations);
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public CompletableFuture<Boolean> deleteAsync(WritePolicy policy, Key key) {
+        if (eventLoops == null) return CacheStore.super.deleteAsync(policy, key);
+
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        try {
+            client.delete(eventLoops.next(), new DeleteListener() {
+                public void onSuccess(Key key, boolean existed) {
+                    future.complete(existed);
+                }
+
+                public void onFailure(AerospikeException e) {
+                    future.completeExceptionally(e);
+                }
+            }, policy, key);
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public void close() {
+        client.close();
+    }
+
+    private static RecordListener recordListener(CompletableFuture<Record> future) {
+        return new RecordListener() {
+            public void onSuccess(Key key, Record record) {
+                future.complete(record);
+            }
+
+            public void onFailure(AerospikeException e) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
+}
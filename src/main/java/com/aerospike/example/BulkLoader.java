@@ -0,0 +1,284 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.policy.WritePolicy;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// BulkLoader
+//
+//   GIVEN  a number of records to pre-fill a set with
+//   WHEN   worker threads write them with non-blocking puts, at most maxInFlight outstanding, as fast as possible or
+//          on a fixed schedule at the target rate
+//   THEN   values get sizes from the value size distribution and TTLs spread evenly from minTTL to maxTTL, record i
+//          gets minTTL + i % (maxTTL - minTTL + 1), so every histogram bucket in that range fills at the same pace
+//          throughout the load
+//   THEN   record ids are prefix + index: nothing is buffered, ids are handed to the caller as their writes complete
+//          and can be rebuilt from the index with recordId(i)
+//
+//   With TtlTiers every record gets its key's tier bin and the TTL spread scaled to its tier's TTL, e.g. ttl=1:10 puts
+//   a tier with a 60s TTL at 6..60s
+//
+//   Stores without async support complete putAsync on the calling thread, the load is then limited by the threads
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class BulkLoader {
+    static final String DEFAULT_VALUE_SIZES = "fixed:16";
+
+    private static final long REPORT_INTERVAL_MILLIS = 5000;
+
+    private final CacheStore store;
+    private final String namespace;
+    private final String setName;
+    private final String binName;
+    private final Config config;
+    private final String recordIdPrefix = "record_id-" + UUID.randomUUID() + "-";
+
+    // Per key TTLs, null for the configured spread on every record
+    private TtlTiers tiers;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder writtenBytes = new LongAdder();
+
+    BulkLoader(CacheStore store, String namespace, String setName, String binName, Config config) {
+        this.store = store;
+        this.namespace = namespace;
+        this.setName = setName;
+        this.binName = binName;
+        this.config = config;
+    }
+
+    BulkLoader withTiers(TtlTiers tiers) {
+        this.tiers = tiers;
+        return this;
+    }
+
+    String recordId(long index) {
+        return recordIdPrefix + index;
+    }
+
+    // Write config.count records, recordIds (null for none) gets each id once its write succeeded - from several
+    // threads at once. Returns the number of records written
+    long load(Consumer<String> recordIds) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(config.maxInFlight);
+        long startNanos = System.nanoTime();
+
+        // Each worker owns every threads'th record and, with a target rate, every threads'th slot of the schedule
+        long intervalNanos = config.rate > 0 ? TimeUnit.SECONDS.toNanos(1) * config.threads / config.rate : 0;
+        ThreadFactory threads = Threads.factory("bulk-loader");
+        Thread[] workers = new Thread[config.threads];
+        for (int i = 0; i < workers.length; i++) {
+            int first = i;
+            long firstNanos = config.rate > 0 ? startNanos + TimeUnit.SECONDS.toNanos(1) * i / config.rate : 0;
+            workers[i] = threads.newThread(() -> runWorker(first, firstNanos, intervalNanos, inFlight, recordIds));
+            workers[i].start();
+        }
+
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                worker.join(REPORT_INTERVAL_MILLIS);
+                if (worker.isAlive()) report(startNanos);
+            }
+        }
+        inFlight.acquire(config.maxInFlight);
+        inFlight.release(config.maxInFlight);
+
+        report(startNanos);
+        if (failures.sum() > 0) {
+            System.out.println("ERROR: Failed to create " + failures.sum() + " LRU cache objects");
+        }
+        return written.sum();
+    }
+
+    private void runWorker(long first, long firstNanos, long intervalNanos, Semaphore inFlight, Consumer<String> recordIds) {
+        SplittableRandom random = new SplittableRandom();
+        WritePolicy basePolicy = store.newWritePolicy();
+        int ttlRange = config.maxTTL - config.minTTL + 1;
+
+        long intendedNanos = firstNanos;
+        for (long index = first; index < config.count; index += config.threads) {
+            if (intervalNanos > 0) {
+                sleepUntil(intendedNanos);
+                intendedNanos += intervalNanos;
+            }
+
+            // Policies are read when the command is sent, an in flight put needs its own
+            WritePolicy writePolicy = new WritePolicy(basePolicy);
+            writePolicy.expiration = config.minTTL + (int) (index % ttlRange);
+            String recordId = recordId(index);
+            Key key = new Key(namespace, setName, recordId);
+            byte[] value = randomBytes(random, config.valueSizes.next(random));
+            Bin[] bins = {new Bin(binName, value)};
+
+            if (tiers != null) {
+                TtlTiers.Tier tier = tiers.tierOf(key);
+                writePolicy.expiration = Math.max(1, (int) ((long) writePolicy.expiration * tier.ttl / config.maxTTL));
+                bins = new Bin[]{bins[0], new Bin(TtlTiers.BIN, (long) tier.id)};
+            }
+
+            inFlight.acquireUninterruptibly();
+            store.putAsync(writePolicy, key, bins).whenComplete((result, e) -> {
+                if (e != null) {
+                    failures.increment();
+                } else {
+                    written.increment();
+                    writtenBytes.add(value.length);
+                    if (recordIds != null) recordIds.accept(recordId);
+                }
+                inFlight.release();
+            });
+        }
+    }
+
+    private void report(long startNanos) {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        long count = written.sum();
+        System.out.println(String.format(">>Bulk load: %d/%d records, %d value bytes, %.0f records/s, %d failures", count, config.count, writtenBytes.sum(), count * 1e9 / elapsedNanos, failures.sum()));
+    }
+
+    private static byte[] randomBytes(SplittableRandom random, int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i += 8) {
+            long bits = random.nextLong();
+            for (int j = i; j < Math.min(size, i + 8); j++, bits >>>= 8) {
+                bytes[j] = (byte) bits;
+            }
+        }
+        return bytes;
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Config
+    //
+    //   Parsed from name=value pairs, e.g. "count=10000000,threads=8,in-flight=512,rate=0,values=uniform:100:1000,
+    //   ttl=1:5". rate=0 loads as fast as possible, ttl is minTTL:maxTTL or a single TTL
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    static final class Config {
+        final long count;
+        final int threads;
+        final int maxInFlight;
+        final long rate;
+        final ValueSizes valueSizes;
+        final int minTTL;
+        final int maxTTL;
+
+        Config(long count, int threads, int maxInFlight, long rate, ValueSizes valueSizes, int minTTL, int maxTTL) {
+            if (minTTL <= 0 || maxTTL < minTTL) {
+                throw new IllegalArgumentException("Expected 0 < min TTL <= max TTL: " + minTTL + ":" + maxTTL);
+            }
+            this.count = count;
+            this.threads = Math.max(1, threads);
+            this.maxInFlight = Math.max(1, maxInFlight);
+            this.rate = rate;
+            this.valueSizes = valueSizes;
+            this.minTTL = minTTL;
+            this.maxTTL = maxTTL;
+        }
+
+        // Settings left out keep the given defaults
+        static Config parse(String spec, long count, int maxInFlight, int ttl) {
+            int threads = 1;
+            long rate = 0;
+            String valueSizes = DEFAULT_VALUE_SIZES;
+            int minTTL = ttl;
+            int maxTTL = ttl;
+
+            for (String setting : spec.split(",")) {
+                setting = setting.trim();
+                if (setting.isEmpty()) continue;
+
+                String[] nameValue = setting.split("=");
+                if (nameValue.length != 2) {
+                    throw new IllegalArgumentException("Expected name=value in: " + setting);
+                }
+                String value = nameValue[1].trim();
+                switch (nameValue[0].trim()) {
+                    case "count":
+                        count = Long.parseLong(value);
+                        break;
+                    case "threads":
+                        threads = Integer.parseInt(value);
+                        break;
+                    case "in-flight":
+                        maxInFlight = Integer.parseInt(value);
+                        break;
+                    case "rate":
+                        rate = Long.parseLong(value);
+                        break;
+                    case "values":
+                        valueSizes = value;
+                        break;
+                    case "ttl":
+                        String[] range = value.split(":");
+                        minTTL = Integer.parseInt(range[0].trim());
+                        maxTTL = range.length > 1 ? Integer.parseInt(range[1].trim()) : minTTL;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown setting: " + setting);
+                }
+            }
+            return new Config(count, threads, maxInFlight, rate, ValueSizes.parse(valueSizes), minTTL, maxTTL);
+        }
+
+        public String toString() {
+            return "count=" + count + ", threads=" + threads + ", in-flight=" + maxInFlight + ", rate=" + (rate > 0 ? rate + " records/s" : "max") + ", ttl=" + minTTL + ":" + maxTTL;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // ValueSizes
+    //
+    //   fixed:size                     every value has the same size
+    //   uniform:min:max                sizes from min to max bytes, all equally likely
+    //   normal:mean:stddev             sizes around mean bytes, at least 1
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    interface ValueSizes {
+        int next(SplittableRandom random);
+
+        static ValueSizes parse(String spec) {
+            String[] parts = spec.split(":");
+            switch (parts[0].toLowerCase()) {
+                case "fixed": {
+                    int size = Integer.parseInt(parts[1]);
+                    return random -> size;
+                }
+                case "uniform": {
+                    int min = Integer.parseInt(parts[1]);
+                    int max = Integer.parseInt(parts[2]);
+                    return random -> min + random.nextInt(max - min + 1);
+                }
+                case "normal": {
+                    double mean = Double.parseDouble(parts[1]);
+                    double stddev = Double.parseDouble(parts[2]);
+                    return random -> Math.max(1, (int) Math.round(mean + stddev * gaussian(random)));
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown value size distribution: " + spec);
+            }
+        }
+
+        // Box-Muller, SplittableRandom has no nextGaussian
+        static double gaussian(SplittableRandom random) {
+            return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.aerospike.example;
+
+import com.aerospike.client.*;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// CacheStore
+//
+//   The record and cluster calls the LRU cache example relies on. AerospikeCacheStore talks to a live cluster,
+//   InMemoryCacheStore simulates one in process (TTL expiry, nsup sweeps, per node info) so the policies can be run
+//   and measured without a server.
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+interface CacheStore extends Closeable {
+
+    void put(WritePolicy policy, Key key, Bin... bins);
+
+    Record get(Policy policy, Key key);
+
+    // Only the operations used by the cache are required: touch, get (all bins or one), put and delete
+    Record operate(WritePolicy policy, Key key, Operation... operations);
+
+    boolean delete(WritePolicy policy, Key key);
+
+    // filter may be null, otherwise only records matching it are passed to the callback
+    void scanAll(ScanPolicy policy, String namespace, String setName, RecordFilter filter, ScanCallback callback);
+
+    // Scan one partition in digest order, after afterDigest when not null so an interrupted scan can carry on where it
+    // stopped. filter may be null
+    void scanPartition(ScanPolicy policy, String namespace, String setName, int partitionId, byte[] afterDigest, RecordFilter filter, ScanCallback callback);
+
+    // Delete every record matching the filter on the server side, returns once the delete has finished
+    void backgroundDelete(String namespace, String setName, RecordFilter filter);
+
+    // Create a numeric secondary index on the set's integer bin binName unless there is one, returns once it is built
+    void createIndex(String namespace, String setName, String binName);
+
+    // Records whose integer bin binName is from begin to end (inclusive), found through its secondary index, in no
+    // particular order. policy.maxRecords caps how many are returned. filter may be null
+    void queryRange(QueryPolicy policy, String namespace, String setName, String binName, long begin, long end, RecordFilter filter, ScanCallback callback);
+
+    String[] getNodeNames();
+
+    // Name of the node the key's partition is written to, null when not known
+    default String nodeOf(Key key) {
+        return null;
+    }
+
+    // Same request/response format as Info.request against the named node
+    String info(String nodeName, String command);
+
+    // Several commands in one request, responses keyed by command
+    default Map<String, String> info(String nodeName, String... commands) {
+        Map<String, String> responses = new HashMap<>();
+        for (String command : commands) {
+            responses.put(command, info(nodeName, command));
+        }
+        return responses;
+    }
+
+    void close();
+
+    // Policies starting from the store's defaults (timeouts, retries), callers then set what they need
+    default WritePolicy newWritePolicy() {
+        return new WritePolicy();
+    }
+
+    default ScanPolicy newScanPolicy() {
+        return new ScanPolicy();
+    }
+
+    default QueryPolicy newQueryPolicy() {
+        return new QueryPolicy();
+    }
+
+    // Connection pool usage, empty when the store has no connections
+    default String getConnectionStats() {
+        return "";
+    }
+
+    // Non-blocking variants, the future completes on the store's event loop. Stores without one run the call on the
+    // calling thread and return a completed future
+    default CompletableFuture<Void> putAsync(WritePolicy policy, Key key, Bin... bins) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            put(policy, key, bins);
+            future.complete(null);
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    default CompletableFuture<Record> getAsync(Policy policy, Key key) {
+        CompletableFuture<Record> future = new CompletableFuture<>();
+        try {
+            future.complete(get(policy, key));
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    default CompletableFuture<Record> operateAsync(WritePolicy policy, Key key, Operation... operations) {
+        CompletableFuture<Record> future = new CompletableFuture<>();
+        try {
+            future.complete(operate(policy, key, operations));
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    default CompletableFuture<Boolean> deleteAsync(WritePolicy policy, Key key) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        try {
+            future.complete(delete(policy, key));
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
@@ -0,0 +1,118 @@
+package com.aerospike.example;
+
+import java.util.Arrays;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// CandidateIndex
+//
+//   GIVEN  records offered in any order (scan order) with their TTL
+//   THEN   keep the capacity records with the lowest TTL, i.e. the least recently touched, in a max-heap on TTL
+//          stored in primitive arrays: a long per TTL and 20 bytes per digest, nothing allocated per record. The arrays
+//          grow as the index fills, a scan returning few candidates doesn't pay for the whole capacity
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class CandidateIndex {
+    private static final int DIGEST_SIZE = 20;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // The digests of a larger index wouldn't fit in one array
+    static final int MAX_CAPACITY = Integer.MAX_VALUE / DIGEST_SIZE;
+
+    private final int capacity;
+    private long[] ttls;
+    private byte[] digests;
+    private int size;
+
+    CandidateIndex(int capacity) {
+        if (capacity < 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity " + capacity + " is not from 0 to " + MAX_CAPACITY);
+        }
+        this.capacity = capacity;
+        this.ttls = new long[Math.min(capacity, INITIAL_CAPACITY)];
+        this.digests = new byte[ttls.length * DIGEST_SIZE];
+    }
+
+    // Keep the record when the index isn't full or it's older than the youngest candidate, which it then replaces.
+    // Returns false when the record wasn't kept
+    synchronized boolean offer(long ttl, byte[] digest) {
+        if (size < capacity) {
+            if (size == ttls.length) grow();
+            set(size, ttl, digest);
+            siftUp(size++);
+            return true;
+        }
+
+        if (capacity == 0 || ttl >= ttls[0]) return false;
+
+        set(0, ttl, digest);
+        siftDown(0, size);
+        return true;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized long ttlAt(int index) {
+        return ttls[index];
+    }
+
+    synchronized byte[] digestAt(int index) {
+        return Arrays.copyOfRange(digests, index * DIGEST_SIZE, (index + 1) * DIGEST_SIZE);
+    }
+
+    // Heap sort in place, oldest (lowest TTL) first. Offering more records afterwards is not supported
+    synchronized void sortOldestFirst() {
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    private void grow() {
+        int length = (int) Math.min(capacity, 2L * ttls.length);
+        ttls = Arrays.copyOf(ttls, length);
+        digests = Arrays.copyOf(digests, length * DIGEST_SIZE);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (ttls[parent] >= ttls[index]) return;
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int end) {
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < end && ttls[left] > ttls[largest]) largest = left;
+            if (right < end && ttls[right] > ttls[largest]) largest = right;
+            if (largest == index) return;
+            swap(index, largest);
+            index = largest;
+        }
+    }
+
+    private void set(int index, long ttl, byte[] digest) {
+        ttls[index] = ttl;
+        System.arraycopy(digest, 0, digests, index * DIGEST_SIZE, DIGEST_SIZE);
+    }
+
+    private void swap(int a, int b) {
+        long ttl = ttls[a];
+        ttls[a] = ttls[b];
+        ttls[b] = ttl;
+
+        int offsetA = a * DIGEST_SIZE;
+        int offsetB = b * DIGEST_SIZE;
+        for (int i = 0; i < DIGEST_SIZE; i++) {
+            byte digestByte = digests[offsetA + i];
+            digests[offsetA + i] = digests[offsetB + i];
+            digests[offsetB + i] = digestByte;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.aerospike.example;
+
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.policy.Policy;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// ClientPolicyBuilder
+//
+//   GIVEN  connection pool sizes, timeouts, tend interval and optionally event loops
+//   THEN   build the ClientPolicy for the one AerospikeClient shared by every worker and policy
+//
+//   Timeouts are applied to the client's default read, write, batch and info policies (scans and queries only take
+//   the socket timeout). Policies created with CacheStore.newWritePolicy / newScanPolicy start from those defaults.
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class ClientPolicyBuilder {
+    private final ClientPolicy clientPolicy = new ClientPolicy();
+    private int socketTimeout = -1;
+    private int totalTimeout = -1;
+    private int maxRetries = -1;
+
+    ClientPolicyBuilder maxConnsPerNode(int maxConnsPerNode) {
+        clientPolicy.maxConnsPerNode = maxConnsPerNode;
+        return this;
+    }
+
+    ClientPolicyBuilder minConnsPerNode(int minConnsPerNode) {
+        clientPolicy.minConnsPerNode = minConnsPerNode;
+        return this;
+    }
+
+    ClientPolicyBuilder connPoolsPerNode(int connPoolsPerNode) {
+        clientPolicy.connPoolsPerNode = connPoolsPerNode;
+        return this;
+    }
+
+    ClientPolicyBuilder asyncMaxConnsPerNode(int asyncMaxConnsPerNode) {
+        clientPolicy.asyncMaxConnsPerNode = asyncMaxConnsPerNode;
+        return this;
+    }
+
+    // Cluster connect and node login timeout
+    ClientPolicyBuilder connectTimeout(int connectTimeout) {
+        clientPolicy.timeout = connectTimeout;
+        return this;
+    }
+
+    ClientPolicyBuilder socketTimeout(int socketTimeout) {
+        this.socketTimeout = socketTimeout;
+        return this;
+    }
+
+    ClientPolicyBuilder totalTimeout(int totalTimeout) {
+        this.totalTimeout = totalTimeout;
+        return this;
+    }
+
+    ClientPolicyBuilder maxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    ClientPolicyBuilder tendInterval(int tendInterval) {
+        clientPolicy.tendInterval = tendInterval;
+        return this;
+    }
+
+    ClientPolicyBuilder eventLoops(EventLoops eventLoops) {
+        clientPolicy.eventLoops = eventLoops;
+        return this;
+    }
+
+    ClientPolicy build() {
+        applyTimeouts(clientPolicy.readPolicyDefault, true);
+        applyTimeouts(clientPolicy.writePolicyDefault, true);
+        applyTimeouts(clientPolicy.batchPolicyDefault, true);
+
+        // Scans and queries run for as long as the set takes, only bound the wait per socket read
+        applyTimeouts(clientPolicy.scanPolicyDefault, false);
+        applyTimeouts(clientPolicy.queryPolicyDefault, false);
+        if (totalTimeout >= 0) {
+            clientPolicy.infoPolicyDefault.timeout = totalTimeout;
+        }
+        return clientPolicy;
+    }
+
+    private void applyTimeouts(Policy policy, boolean includeTotalTimeout) {
+        if (socketTimeout >= 0) policy.socketTimeout = socketTimeout;
+        if (totalTimeout >= 0 && includeTotalTimeout) policy.totalTimeout = totalTimeout;
+        if (maxRetries >= 0) policy.maxRetries = maxRetries;
+    }
+}
@@ -0,0 +1,32 @@
+package com.aerospike.example;
+
+import java.util.Arrays;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// DigestKey
+//
+//   GIVEN  a record's 20 byte digest
+//   THEN   use it as a hash map key, equal to any other DigestKey of the same bytes. The array is kept, not copied,
+//          callers don't change it afterwards
+//
+//   Digests are uniformly distributed, so 4 bytes make the hash. The first bytes pick the partition, the hash is
+//   taken from bytes that vary within one so per partition maps spread as well as whole set maps
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class DigestKey {
+    private final byte[] digest;
+    private final int hash;
+
+    DigestKey(byte[] digest) {
+        this.digest = digest;
+        this.hash = (digest[12] & 0xFF) | (digest[13] & 0xFF) << 8 | (digest[14] & 0xFF) << 16 | (digest[15] & 0xFF) << 24;
+    }
+
+    public int hashCode() {
+        return hash;
+    }
+
+    public boolean equals(Object other) {
+        return other instanceof DigestKey && Arrays.equals(digest, ((DigestKey) other).digest);
+    }
+}
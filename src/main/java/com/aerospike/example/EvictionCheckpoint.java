@@ -0,0 +1,254 @@
+package com.aerospike.example;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.LongStream;
+import java.util.zip.CRC32;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// EvictionCheckpoint
+//
+//   GIVEN  a policy's progress after every eviction pass: the histogram it acted on, the partition scan cursors (with
+//          the partitions finished this round) and the objects requested and removed so far
+//   THEN   append it to a local file as one record (length, CRC32, data) and sync it, a crash part way through an
+//          append leaves a torn record at the end that load() skips and the next append overwrites
+//   THEN   load() returns the last complete record, so a restarted policy carries on from the partitions the last pass
+//          stopped at and doesn't act a second time on a histogram it already evicted from
+//   THEN   once the file grows past MAX_FILE_BYTES it is rewritten with the last record alone (temp file + atomic move)
+//
+//   One file per set, <dir>/<namespace>.<set>.checkpoint. A crash in the middle of a pass loses that pass's progress,
+//   the next run resumes from the pass before. Format 1 files (without the finished partitions) still load, as a round
+//   where no partition is finished yet
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class EvictionCheckpoint {
+    private static final int FORMAT = 2;
+    private static final int FORMAT_WITHOUT_FINISHED = 1;
+    private static final long MAX_FILE_BYTES = 1 << 20;
+
+    // Larger lengths are read as corruption instead of allocated. A record can be larger than MAX_FILE_BYTES (a histogram
+    // of 200000 buckets is 1.6MB), the file then holds it alone
+    private static final int MAX_RECORD_BYTES = 64 << 20;
+
+    private final Path path;
+
+    // End of the last complete record, appends go here
+    private long validBytes = -1;
+
+    EvictionCheckpoint(Path directory, String namespace, String setName) throws IOException {
+        Files.createDirectories(directory);
+        this.path = directory.resolve(namespace + "." + setName + ".checkpoint");
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    // The last complete record, null when there is none
+    synchronized State load() throws IOException {
+        validBytes = 0;
+        if (!Files.exists(path)) return null;
+
+        State last = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length;
+                long crc;
+                try {
+                    length = in.readInt();
+                    crc = in.readInt() & 0xFFFFFFFFL;
+                } catch (EOFException e) {
+                    break;
+                }
+
+                // Torn or corrupt, everything from here on is dropped
+                if (length <= 0 || length > MAX_RECORD_BYTES) break;
+                byte[] data = new byte[length];
+                try {
+                    in.readFully(data);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (crc(data) != crc) break;
+
+                last = State.read(new DataInputStream(new ByteArrayInputStream(data)));
+                validBytes += 8 + length;
+            }
+        }
+        return last;
+    }
+
+    synchronized void save(State state) throws IOException {
+        if (validBytes < 0) load();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        state.write(new DataOutputStream(bytes));
+        byte[] data = bytes.toByteArray();
+        if (data.length > MAX_RECORD_BYTES) {
+            // load() would drop it as torn and everything saved before with it
+            throw new IOException("Checkpoint of " + data.length + " bytes is over the " + MAX_RECORD_BYTES + " byte limit");
+        }
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream(8 + data.length);
+        DataOutputStream out = new DataOutputStream(record);
+        out.writeInt(data.length);
+        out.writeInt((int) crc(data));
+        out.write(data);
+
+        if (validBytes + record.size() > MAX_FILE_BYTES) {
+            // Compact: the new record alone, the old file stays until the new one is complete
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+                record.writeTo(file);
+                file.getFD().sync();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            validBytes = record.size();
+            return;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            // Over a torn record left by a crash
+            file.setLength(validBytes);
+            file.seek(validBytes);
+            file.write(record.toByteArray());
+            file.getFD().sync();
+        }
+        validBytes += record.size();
+    }
+
+    private static long crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // State
+    //
+    //   resumeDigests and finishedPartitions are indexed by partition id. A digest is null for partitions not stopped
+    //   part way, finished partitions are skipped until every partition is
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    static final class State {
+        final long savedMillis;
+        final long decisionMillis;
+        final long bucketWidth;
+        final long[] histogram;
+        final long passes;
+        final long requested;
+        final long removed;
+        final int nextPartition;
+        final byte[][] resumeDigests;
+        final boolean[] finishedPartitions;
+
+        State(long savedMillis, long decisionMillis, long bucketWidth, long[] histogram, long passes, long requested, long removed, int nextPartition, byte[][] resumeDigests, boolean[] finishedPartitions) {
+            this.savedMillis = savedMillis;
+            this.decisionMillis = decisionMillis;
+            this.bucketWidth = bucketWidth;
+            this.histogram = histogram;
+            this.passes = passes;
+            this.requested = requested;
+            this.removed = removed;
+            this.nextPartition = nextPartition;
+            this.resumeDigests = resumeDigests;
+            this.finishedPartitions = finishedPartitions;
+        }
+
+        int getResumedPartitions() {
+            int count = 0;
+            for (byte[] digest : resumeDigests) {
+                if (digest != null) count++;
+            }
+            return count;
+        }
+
+        int getFinishedPartitions() {
+            int count = 0;
+            for (boolean finished : finishedPartitions) {
+                if (finished) count++;
+            }
+            return count;
+        }
+
+        public String toString() {
+            return "saved " + ((System.currentTimeMillis() - savedMillis) / 1000) + "s ago, " + passes + " passes, " + removed + "/" + requested
+                    + " objects removed, next partition " + nextPartition + ", " + getResumedPartitions() + " partitions part way, " + getFinishedPartitions() + " finished, histogram of " + LongStream.of(histogram).sum() + " objects";
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeInt(FORMAT);
+            out.writeLong(savedMillis);
+            out.writeLong(decisionMillis);
+            out.writeLong(bucketWidth);
+            out.writeInt(histogram.length);
+            for (long count : histogram) {
+                out.writeLong(count);
+            }
+            out.writeLong(passes);
+            out.writeLong(requested);
+            out.writeLong(removed);
+            out.writeInt(nextPartition);
+
+            // Sparse: only partitions stopped part way
+            out.writeInt(resumeDigests.length);
+            out.writeInt(getResumedPartitions());
+            for (int partitionId = 0; partitionId < resumeDigests.length; partitionId++) {
+                byte[] digest = resumeDigests[partitionId];
+                if (digest == null) continue;
+                out.writeShort(partitionId);
+                out.writeByte(digest.length);
+                out.write(digest);
+            }
+
+            // One bit per partition
+            out.writeInt(finishedPartitions.length);
+            byte[] bits = new byte[(finishedPartitions.length + 7) / 8];
+            for (int partitionId = 0; partitionId < finishedPartitions.length; partitionId++) {
+                if (finishedPartitions[partitionId]) bits[partitionId >> 3] |= 1 << (partitionId & 7);
+            }
+            out.write(bits);
+            out.flush();
+        }
+
+        private static State read(DataInputStream in) throws IOException {
+            int format = in.readInt();
+            if (format != FORMAT && format != FORMAT_WITHOUT_FINISHED) {
+                throw new IOException("Unknown checkpoint format: " + format);
+            }
+            long savedMillis = in.readLong();
+            long decisionMillis = in.readLong();
+            long bucketWidth = in.readLong();
+            long[] histogram = new long[in.readInt()];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = in.readLong();
+            }
+            long passes = in.readLong();
+            long requested = in.readLong();
+            long removed = in.readLong();
+            int nextPartition = in.readInt();
+
+            byte[][] resumeDigests = new byte[in.readInt()][];
+            int resumed = in.readInt();
+            for (int i = 0; i < resumed; i++) {
+                int partitionId = in.readUnsignedShort();
+                byte[] digest = new byte[in.readUnsignedByte()];
+                in.readFully(digest);
+                resumeDigests[partitionId] = digest;
+            }
+
+            boolean[] finishedPartitions = new boolean[resumeDigests.length];
+            if (format != FORMAT_WITHOUT_FINISHED) {
+                finishedPartitions = new boolean[in.readInt()];
+                byte[] bits = new byte[(finishedPartitions.length + 7) / 8];
+                in.readFully(bits);
+                for (int partitionId = 0; partitionId < finishedPartitions.length; partitionId++) {
+                    finishedPartitions[partitionId] = (bits[partitionId >> 3] & 1 << (partitionId & 7)) != 0;
+                }
+            }
+            return new State(savedMillis, decisionMillis, bucketWidth, histogram, passes, requested, removed, nextPartition, resumeDigests, finishedPartitions);
+        }
+    }
+}
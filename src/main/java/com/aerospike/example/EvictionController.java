@@ -0,0 +1,42 @@
+package com.aerospike.example;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// EvictionController
+//
+//   GIVEN  the set's object count after each histogram refresh
+//   THEN   decide how many objects the next eviction pass removes and how long to wait before checking again
+//
+//   FixedEvictionController keeps the set under a goal checked at a fixed frequency, WatermarkEvictionController
+//   anticipates growth from the ingest rate and spreads deletes out
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+interface EvictionController {
+
+    Decision decide(long totalObjects, long nowMillis);
+
+    // The pass following the last decision removed this many objects
+    void removed(long objects);
+
+    // The goal the set is kept under
+    long getGoalObjects();
+
+    // Move the goal, e.g. when a bytes goal comes to a different number of objects as the average object size changes
+    void setGoalObjects(long goalObjects);
+
+    // When to check again after a pass where no decision could be made (e.g. too few nodes reported)
+    long getRetryMillis();
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Decision
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    final class Decision {
+        final long objectsToRemove;
+        final long nextCheckMillis;
+
+        Decision(long objectsToRemove, long nextCheckMillis) {
+            this.objectsToRemove = objectsToRemove;
+            this.nextCheckMillis = nextCheckMillis;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.aerospike.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// EvictionManager
+//
+//   GIVEN  many cache sets, each with its own goals (objects, bytes or both) and priority
+//   WHEN   sets are due for a check
+//   THEN   collect the histograms of all of them in one info request per node
+//   THEN   let each set's controller decide what to remove, share the global deletion budget out by priority
+//          (weighted max-min fair) and run the passes on one bounded pool, higher priority and longest waiting first
+//
+//   One thread and one client for every set instead of a thread (and formerly a client) per set
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class EvictionManager implements Runnable {
+    // Longest sleep between looking for sets that are due
+    private static final long MAX_IDLE_MILLIS = 1000;
+
+    private final AtomicBoolean cancelled;
+    private final List<ManagedSet> sets = new ArrayList<>();
+    private final NodeInfoCollector collector;
+    private final ExecutorService passes;
+    private final ExecutorService partitionScanWorkers;
+    private final long maxDeletesPerSecond;
+
+    // Token bucket for the global deletion budget, filled at maxDeletesPerSecond up to one second's worth
+    private double deleteAllowance;
+    private long lastRoundMillis;
+
+    // maxDeletesPerSecond <= 0 means no global limit
+    EvictionManager(AtomicBoolean cancelled, CacheStore store, List<SetConfig> setConfigs, int configTTL, Function<SetConfig, EvictionController> controllers, ManageMaxObjectsInLRUCachePolicy.EvictionMode evictionMode, int poolSize, int evictionWorkers, long maxDeletesPerSecond) {
+        this.cancelled = cancelled;
+        this.collector = new NodeInfoCollector(store);
+        this.passes = Executors.newFixedThreadPool(Math.max(1, poolSize), Threads.factory("eviction-pass"));
+        this.partitionScanWorkers = Executors.newFixedThreadPool(Math.max(1, evictionWorkers), Threads.factory("eviction-scan"));
+        this.maxDeletesPerSecond = maxDeletesPerSecond;
+        this.deleteAllowance = maxDeletesPerSecond;
+
+        for (SetConfig setConfig : setConfigs) {
+            ManageMaxObjectsInLRUCachePolicy policy = new ManageMaxObjectsInLRUCachePolicy(cancelled, store, setConfig.namespace, setConfig.setName, configTTL, controllers.apply(setConfig), evictionMode, ManageMaxObjectsInLRUCachePolicy.DEFAULT_MIN_NODE_COVERAGE, evictionWorkers);
+            policy.setGoalBytes(setConfig.goalBytes);
+            policy.setPartitionScanWorkers(partitionScanWorkers);
+            sets.add(new ManagedSet(setConfig, policy));
+        }
+    }
+
+    // Evict every set tier by tier, see ManageMaxObjectsInLRUCachePolicy.setTiers
+    EvictionManager setTiers(TtlTiers tiers) {
+        for (ManagedSet set : sets) {
+            set.policy.setTiers(tiers);
+        }
+        return this;
+    }
+
+    EvictionManager setPrintState(boolean printState) {
+        for (ManagedSet set : sets) {
+            set.policy.setPrintState(printState);
+        }
+        return this;
+    }
+
+    // See ManageMaxObjectsInLRUCachePolicy.setTtlSampling
+    EvictionManager setTtlSampling(int targetSamples) {
+        for (ManagedSet set : sets) {
+            set.policy.setTtlSampling(targetSamples);
+        }
+        return this;
+    }
+
+    // Save each set's progress in <directory>/<namespace>.<set>.checkpoint and resume from it
+    EvictionManager setCheckpointDirectory(Path directory) throws IOException {
+        for (ManagedSet set : sets) {
+            set.policy.setCheckpoint(new EvictionCheckpoint(directory, set.config.namespace, set.config.setName));
+        }
+        return this;
+    }
+
+    public void run() {
+        try {
+            // A failed round is retried after a backoff, the sets stay due
+            new EvictionSupervisor("eviction-manager", cancelled).run(this::step);
+
+        } finally {
+            passes.shutdownNow();
+            for (ManagedSet set : sets) {
+                set.policy.close();
+            }
+            partitionScanWorkers.shutdownNow();
+        }
+
+        // The store is shared, whoever created it closes it
+    }
+
+    // Run a round when sets are due, returns the milliseconds until the next set is due
+    long step() throws InterruptedException {
+        long nowMillis = System.currentTimeMillis();
+
+        List<ManagedSet> due = new ArrayList<>();
+        long nextCheckMillis = nowMillis + MAX_IDLE_MILLIS;
+        for (ManagedSet set : sets) {
+            if (set.nextCheckMillis <= nowMillis) {
+                due.add(set);
+            } else {
+                nextCheckMillis = Math.min(nextCheckMillis, set.nextCheckMillis);
+            }
+        }
+
+        if (!due.isEmpty()) {
+            round(due, nowMillis);
+            return 0;
+        }
+        return Math.max(1, nextCheckMillis - nowMillis);
+    }
+
+    // One check of the due sets: one batched info round, decisions, then the passes
+    void round(List<ManagedSet> due, long nowMillis) throws InterruptedException {
+        List<String> commands = new ArrayList<>();
+        for (ManagedSet set : due) {
+            Collections.addAll(commands, set.policy.getState().getRequests());
+        }
+        NodeInfoCollector.Responses<Map<String, String>> batch = collector.request(commands.toArray(new String[0]));
+
+        long[] wanted = new long[due.size()];
+        int[] weights = new int[due.size()];
+        for (int i = 0; i < due.size(); i++) {
+            ManagedSet set = due.get(i);
+            set.policy.getState().refresh(batch);
+
+            EvictionController.Decision decision = set.policy.decide();
+            if (decision == null) {
+                set.nextCheckMillis = nowMillis + set.policy.getController().getRetryMillis();
+                continue;
+            }
+            set.nextCheckMillis = nowMillis + decision.nextCheckMillis;
+            wanted[i] = decision.objectsToRemove;
+            weights[i] = set.config.priority;
+        }
+
+        long[] allowed = allocate(wanted, weights, takeBudget(nowMillis));
+
+        // Higher priority first, then the set that has waited longest since its last pass
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < due.size(); i++) {
+            if (allowed[i] > 0) order.add(i);
+        }
+        order.sort(Comparator.<Integer>comparingInt(i -> -due.get(i).config.priority).thenComparingLong(i -> due.get(i).lastPassMillis));
+
+        List<Future<Long>> results = new ArrayList<>();
+        for (int i : order) {
+            ManagedSet set = due.get(i);
+            long objectsToRemove = allowed[i];
+            set.lastPassMillis = nowMillis;
+            results.add(passes.submit(() -> set.policy.evict(objectsToRemove)));
+        }
+
+        // A set is never in two passes at once: wait for this round before deciding again
+        long removed = 0;
+        for (Future<Long> result : results) {
+            try {
+                removed += result.get();
+            } catch (ExecutionException e) {
+                System.out.println("Eviction pass > ERROR: " + e.getCause().getMessage());
+            }
+        }
+        deleteAllowance -= removed;
+    }
+
+    private long takeBudget(long nowMillis) {
+        if (maxDeletesPerSecond <= 0) return Long.MAX_VALUE;
+
+        if (lastRoundMillis > 0) {
+            deleteAllowance = Math.min(maxDeletesPerSecond, deleteAllowance + maxDeletesPerSecond * (nowMillis - lastRoundMillis) / 1000.0);
+        }
+        lastRoundMillis = nowMillis;
+        return Math.max(0, (long) deleteAllowance);
+    }
+
+    // Weighted max-min fair share of the budget: every set gets budget in proportion to its weight, sets that need
+    // less than their share give the rest back to the others
+    static long[] allocate(long[] wanted, int[] weights, long budget) {
+        long[] allowed = new long[wanted.length];
+        long remaining = budget;
+
+        while (remaining > 0) {
+            long totalWeight = 0;
+            for (int i = 0; i < wanted.length; i++) {
+                if (allowed[i] < wanted[i]) totalWeight += Math.max(1, weights[i]);
+            }
+            if (totalWeight == 0) break;
+
+            long given = 0;
+            for (int i = 0; i < wanted.length; i++) {
+                if (allowed[i] >= wanted[i]) continue;
+
+                long share = (long) ((double) remaining * Math.max(1, weights[i]) / totalWeight);
+                long give = Math.min(Math.max(share, 0), wanted[i] - allowed[i]);
+                allowed[i] += give;
+                given += give;
+            }
+
+            // Shares rounded down to nothing, hand out what's left one at a time by weight
+            if (given == 0) {
+                int best = -1;
+                for (int i = 0; i < wanted.length; i++) {
+                    if (allowed[i] < wanted[i] && (best < 0 || weights[i] > weights[best])) best = i;
+                }
+                allowed[best]++;
+                given = 1;
+            }
+            remaining -= given;
+        }
+        return allowed;
+    }
+
+    private static class ManagedSet {
+        final SetConfig config;
+        final ManageMaxObjectsInLRUCachePolicy policy;
+        long nextCheckMillis;
+        long lastPassMillis;
+
+        ManagedSet(SetConfig config, ManageMaxObjectsInLRUCachePolicy policy) {
+            this.config = config;
+            this.policy = policy;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // SetConfig
+    //
+    //   One managed set, parsed from namespace/set:objects=800,bytes=1048576,priority=2 entries separated by ';'. Either
+    //   goal can be left out, goalObjects is then Long.MAX_VALUE and goalBytes 0
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    static final class SetConfig {
+        final String namespace;
+        final String setName;
+        final long goalObjects;
+        final long goalBytes;
+        final int priority;
+
+        SetConfig(String namespace, String setName, long goalObjects, long goalBytes, int priority) {
+            this.namespace = namespace;
+            this.setName = setName;
+            this.goalObjects = goalObjects;
+            this.goalBytes = goalBytes;
+            this.priority = priority;
+        }
+
+        static List<SetConfig> parse(String spec) {
+            List<SetConfig> configs = new ArrayList<>();
+            for (String entry : spec.split(";")) {
+                entry = entry.trim();
+                if (entry.isEmpty()) continue;
+
+                int colon = entry.indexOf(':');
+                String name = colon < 0 ? entry : entry.substring(0, colon);
+                int slash = name.indexOf('/');
+                if (slash < 0) {
+                    throw new IllegalArgumentException("Expected namespace/set in: " + entry);
+                }
+
+                long goalObjects = 0;
+                long goalBytes = 0;
+                int priority = 1;
+                if (colon >= 0) {
+                    for (String setting : entry.substring(colon + 1).split(",")) {
+                        String[] nameValue = setting.trim().split("=");
+                        if (nameValue.length != 2) {
+                            throw new IllegalArgumentException("Expected name=value in: " + setting);
+                        }
+                        switch (nameValue[0].trim()) {
+                            case "objects":
+                                goalObjects = Long.parseLong(nameValue[1].trim());
+                                break;
+                            case "bytes":
+                                goalBytes = Long.parseLong(nameValue[1].trim());
+                                break;
+                            case "priority":
+                                priority = Integer.parseInt(nameValue[1].trim());
+                                break;
+                            default:
+                                throw new IllegalArgumentException("Unknown setting: " + setting);
+                        }
+                    }
+                }
+                if (goalObjects <= 0 && goalBytes <= 0) {
+                    throw new IllegalArgumentException("Expected objects=<goal> or bytes=<goal> in: " + entry);
+                }
+                configs.add(new SetConfig(name.substring(0, slash), name.substring(slash + 1), goalObjects > 0 ? goalObjects : Long.MAX_VALUE, goalBytes, priority));
+            }
+            return configs;
+        }
+    }
+}
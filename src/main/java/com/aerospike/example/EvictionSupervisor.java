@@ -0,0 +1,105 @@
+package com.aerospike.example;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.ResultCode;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// EvictionSupervisor
+//
+//   GIVEN  one step of an eviction loop (a policy's check, an EvictionManager round) returning the milliseconds until
+//          the next step
+//   WHEN   a step throws
+//   THEN   log it, count it in lru.eviction.failures{loop,result_code} and run the step again after a backoff picked
+//          by result code, doubling with every failure in a row and jittered so loops sharing a cluster spread out:
+//          - transient (timeouts, connections, node or partition changes)      100ms .. 5s
+//          - overloaded (device overload, key busy, out of memory, full queues)  1s .. 30s
+//          - anything else (configuration, permissions, bugs)                  10s .. 60s
+//   THEN   stop only when cancelled or interrupted
+//
+//   Errors that won't go away by themselves are retried too, slowly: a check is cheap and an operator can fix a missing
+//   namespace or a permission without restarting the process
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class EvictionSupervisor {
+    interface Step {
+        long run() throws Exception;
+    }
+
+    private final String name;
+    private final AtomicBoolean cancelled;
+
+    EvictionSupervisor(String name, AtomicBoolean cancelled) {
+        this.name = name;
+        this.cancelled = cancelled;
+    }
+
+    void run(Step step) {
+        int failures = 0;
+        try {
+            while (!cancelled.get()) {
+                long nextStepMillis;
+                try {
+                    nextStepMillis = step.run();
+                    failures = 0;
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    failures++;
+                    int resultCode = e instanceof AerospikeException ? ((AerospikeException) e).getResultCode() : ResultCode.CLIENT_ERROR;
+                    Metrics.GLOBAL.counter("lru.eviction.failures", "loop", name, "result_code", String.valueOf(resultCode)).increment();
+                    nextStepMillis = backoffMillis(resultCode, failures);
+                    System.out.println(name + " > ERROR (" + failures + " in a row, retrying in " + nextStepMillis + "ms): " + e);
+                    if (!(e instanceof AerospikeException)) {
+                        e.printStackTrace();
+                    }
+                }
+
+                if (nextStepMillis > 0) {
+                    Thread.sleep(nextStepMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Anywhere from half to all of the doubled delay
+    static long backoffMillis(int resultCode, int failures) {
+        long baseMillis;
+        long maxMillis;
+        switch (resultCode) {
+            case ResultCode.TIMEOUT:
+            case ResultCode.QUERY_TIMEOUT:
+            case ResultCode.SERVER_NOT_AVAILABLE:
+            case ResultCode.INVALID_NODE_ERROR:
+            case ResultCode.NO_MORE_CONNECTIONS:
+            case ResultCode.MAX_RETRIES_EXCEEDED:
+            case ResultCode.MAX_ERROR_RATE:
+            case ResultCode.PARTITION_UNAVAILABLE:
+            case ResultCode.CLUSTER_KEY_MISMATCH:
+            case ResultCode.SCAN_ABORT:
+            case ResultCode.QUERY_ABORTED:
+                baseMillis = 100;
+                maxMillis = 5000;
+                break;
+            case ResultCode.DEVICE_OVERLOAD:
+            case ResultCode.KEY_BUSY:
+            case ResultCode.SERVER_MEM_ERROR:
+            case ResultCode.ASYNC_QUEUE_FULL:
+            case ResultCode.BATCH_QUEUES_FULL:
+            case ResultCode.QUERY_QUEUEFULL:
+                baseMillis = 1000;
+                maxMillis = 30000;
+                break;
+            default:
+                baseMillis = 10000;
+                maxMillis = 60000;
+        }
+
+        long delayMillis = Math.min(maxMillis, baseMillis << Math.min(failures - 1, 16));
+        return delayMillis / 2 + ThreadLocalRandom.current().nextLong(delayMillis / 2 + 1);
+    }
+}
@@ -0,0 +1,39 @@
+package com.aerospike.example;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// FixedEvictionController
+//
+//   GIVEN  a goal of max number objects to keep
+//   WHEN   the set has reached the goal
+//   THEN   remove everything over it, checking again after a fixed interval
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class FixedEvictionController implements EvictionController {
+    private volatile long goalTotalMaxObjects;
+    private final long checkFrequency;
+
+    FixedEvictionController(long goalTotalMaxObjects, long checkFrequency) {
+        this.goalTotalMaxObjects = goalTotalMaxObjects;
+        this.checkFrequency = checkFrequency;
+    }
+
+    public Decision decide(long totalObjects, long nowMillis) {
+        long objectsToRemove = totalObjects < goalTotalMaxObjects ? 0 : totalObjects - goalTotalMaxObjects;
+        return new Decision(objectsToRemove, checkFrequency);
+    }
+
+    public void removed(long objects) {
+    }
+
+    public long getGoalObjects() {
+        return goalTotalMaxObjects;
+    }
+
+    public void setGoalObjects(long goalObjects) {
+        this.goalTotalMaxObjects = goalObjects;
+    }
+
+    public long getRetryMillis() {
+        return checkFrequency;
+    }
+}
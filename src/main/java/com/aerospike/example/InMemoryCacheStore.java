@@ -0,0 +1,615 @@
+package com.aerospike.example;
+
+import com.aerospike.client.*;
+import com.aerospike.client.Record;
+import com.aerospike.client.cluster.Partition;
+import com.aerospike.client.policy.GenerationPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// InMemoryCacheStore
+//
+//   GIVEN  a number of simulated nodes, a namespace default-ttl and a TTL histogram bucket count
+//   THEN   behave like a small Aerospike cluster held in process:
+//          - records live in 4096 partitions, each partition is owned by one node
+//          - expired records are invisible straight away but only removed (and uncounted) by an nsup sweep
+//          - "sets/<ns>/<set>" and "histogram:...;type=ttl" info calls answer per node in the server's format
+//          - numeric secondary indexes are sorted sets of (value, digest) kept up to date on every write, a range
+//            query costs the records in the range rather than the set
+//
+//   Time comes from a millisecond clock so runs can be made deterministic by supplying one and calling nsup()
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class InMemoryCacheStore implements CacheStore {
+    static final int PARTITIONS = 4096;
+    static final int DEFAULT_HISTOGRAM_BUCKETS = 100;
+
+    // Record expiration is sent as seconds since 2010-01-01, see Record.getTimeToLive
+    private static final long CITRUSLEAF_EPOCH = 1262304000L;
+
+    // Rough per record overhead, the primary index entry on the server is 64 bytes
+    private static final int RECORD_OVERHEAD_BYTES = 64;
+
+    private final String[] nodeNames;
+    private final long defaultTTL;
+    private final int histogramBuckets;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, SetData> sets = new ConcurrentHashMap<>();
+    private ScheduledExecutorService nsupExecutor;
+
+    InMemoryCacheStore(int nodeCount, long defaultTTL) {
+        this(nodeCount, defaultTTL, DEFAULT_HISTOGRAM_BUCKETS, System::currentTimeMillis);
+    }
+
+    InMemoryCacheStore(int nodeCount, long defaultTTL, int histogramBuckets, LongSupplier clock) {
+        this.nodeNames = new String[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodeNames[i] = "MEM" + String.format("%012X", i + 1);
+        }
+        this.defaultTTL = defaultTTL;
+        this.histogramBuckets = histogramBuckets;
+        this.clock = clock;
+    }
+
+    // Run nsup in the background like the server's nsup-period
+    synchronized InMemoryCacheStore startNsup(long periodMillis) {
+        if (nsupExecutor == null) {
+            nsupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "in-memory-nsup");
+                thread.setDaemon(true);
+                return thread;
+            });
+            nsupExecutor.scheduleAtFixedRate(this::nsup, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    // Remove expired records and rebuild the TTL histograms
+    void nsup() {
+        long now = clock.getAsLong();
+        for (SetData set : sets.values()) {
+            for (int partitionId = 0; partitionId < PARTITIONS; partitionId++) {
+                Iterator<Map.Entry<DigestKey, Entry>> it = set.partitions.get(partitionId).entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<DigestKey, Entry> mapEntry = it.next();
+                    Entry entry = mapEntry.getValue();
+                    if (entry.isExpired(now) && set.partitions.get(partitionId).remove(mapEntry.getKey(), entry)) {
+                        set.removed(partitionId, entry);
+                    }
+                }
+            }
+            set.histogram = buildHistogram(set, now);
+        }
+    }
+
+    public void put(WritePolicy policy, Key key, Bin... bins) {
+        Operation[] operations = new Operation[bins.length];
+        for (int i = 0; i < bins.length; i++) {
+            operations[i] = Operation.put(bins[i]);
+        }
+        operate(policy, key, operations);
+    }
+
+    public Record get(Policy policy, Key key) {
+        SetData set = sets.get(setKey(key.namespace, key.setName));
+        if (set == null) return null;
+
+        Entry entry = set.partitions.get(Partition.getPartitionId(key.digest)).get(new DigestKey(key.digest));
+        long now = clock.getAsLong();
+        if (entry == null || entry.isExpired(now)) return null;
+
+        return entry.toRecord(true, now);
+    }
+
+    public Record operate(WritePolicy policy, Key key, Operation... operations) {
+        SetData set = setData(key.namespace, key.setName);
+        int partitionId = Partition.getPartitionId(key.digest);
+        long now = clock.getAsLong();
+        Record[] result = new Record[1];
+
+        set.partitions.get(partitionId).compute(new DigestKey(key.digest), (digestKey, existing) -> {
+            Entry current = existing != null && existing.isExpired(now) ? null : existing;
+
+            Map<String, Object> bins = current != null ? current.bins : null;
+            long voidTime = current != null ? current.voidTime : 0;
+            boolean copied = false;
+            boolean modified = false;
+            boolean deleted = false;
+            boolean readAll = false;
+            boolean readHeader = false;
+            Map<String, Object> readBins = null;
+
+            for (Operation operation : operations) {
+                switch (operation.type) {
+                    case READ:
+                        if (operation.binName == null) {
+                            readAll = true;
+                        } else {
+                            if (readBins == null) readBins = new HashMap<>();
+                            readBins.put(operation.binName, null);
+                        }
+                        break;
+                    case READ_HEADER:
+                        readHeader = true;
+                        break;
+                    case WRITE:
+                        if (!copied) {
+                            bins = bins == null ? new HashMap<>() : new HashMap<>(bins);
+                            copied = true;
+                        }
+                        Object value = operation.value.getObject();
+                        if (value == null) {
+                            bins.remove(operation.binName);
+                        } else {
+                            bins.put(operation.binName, value);
+                        }
+                        voidTime = voidTime(policy, current, now);
+                        modified = true;
+                        deleted = false;
+                        break;
+                    case TOUCH:
+                        if (bins == null) {
+                            throw new AerospikeException(ResultCode.KEY_NOT_FOUND_ERROR);
+                        }
+                        voidTime = voidTime(policy, current, now);
+                        modified = true;
+                        break;
+                    case DELETE:
+                        bins = null;
+                        copied = false;
+                        deleted = true;
+                        modified = false;
+                        break;
+                    default:
+                        throw new AerospikeException(ResultCode.PARAMETER_ERROR, "InMemoryCacheStore does not support " + operation.type);
+                }
+            }
+
+            Entry next;
+            if (deleted) {
+                next = null;
+            } else if (modified) {
+                next = new Entry(key, bins, current != null ? current.generation + 1 : 1, voidTime);
+            } else {
+                next = current;
+            }
+
+            if (next != null && (readAll || readHeader || readBins != null)) {
+                if (readBins != null && !readAll) {
+                    for (String binName : readBins.keySet()) {
+                        readBins.put(binName, next.bins.get(binName));
+                    }
+                    result[0] = new Record(readBins, next.generation, next.expiration(now));
+                } else {
+                    result[0] = next.toRecord(readAll, now);
+                }
+            }
+
+            if (next != existing) {
+                set.replaced(partitionId, existing, next);
+            }
+            return next;
+        });
+
+        return result[0];
+    }
+
+    public boolean delete(WritePolicy policy, Key key) {
+        SetData set = sets.get(setKey(key.namespace, key.setName));
+        if (set == null) return false;
+
+        int partitionId = Partition.getPartitionId(key.digest);
+        ConcurrentHashMap<DigestKey, Entry> partition = set.partitions.get(partitionId);
+        DigestKey digestKey = new DigestKey(key.digest);
+        Entry entry;
+        if (policy != null && policy.generationPolicy == GenerationPolicy.EXPECT_GEN_EQUAL) {
+            // Only the generation the caller read, a record written since stays
+            entry = partition.get(digestKey);
+            if (entry == null) return false;
+            if (!entry.isExpired(clock.getAsLong()) && entry.generation != policy.generation || !partition.remove(digestKey, entry)) {
+                throw new AerospikeException(ResultCode.GENERATION_ERROR);
+            }
+        } else {
+            entry = partition.remove(digestKey);
+            if (entry == null) return false;
+        }
+
+        set.removed(partitionId, entry);
+        return !entry.isExpired(clock.getAsLong());
+    }
+
+    public void scanAll(ScanPolicy policy, String namespace, String setName, RecordFilter filter, ScanCallback callback) {
+        SetData set = sets.get(setKey(namespace, setName));
+        if (set == null) return;
+
+        long now = clock.getAsLong();
+        long returned = 0;
+        for (int partitionId = 0; partitionId < PARTITIONS; partitionId++) {
+            for (Entry entry : set.partitions.get(partitionId).values()) {
+                if (entry.isExpired(now)) continue;
+                if (policy.scanPercent < 100 && (entry.key.digest[8] & 0x7F) % 100 >= policy.scanPercent) continue;
+                if (filter != null && !filter.matches(entry.ttl(now), entry.key.digest, entry.bins)) continue;
+
+                callback.scanCallback(entry.key, entry.toRecord(policy.includeBinData, now));
+
+                if (policy.maxRecords > 0 && ++returned >= policy.maxRecords) return;
+            }
+        }
+    }
+
+    public void scanPartition(ScanPolicy policy, String namespace, String setName, int partitionId, byte[] afterDigest, RecordFilter filter, ScanCallback callback) {
+        SetData set = sets.get(setKey(namespace, setName));
+        if (set == null) return;
+
+        // Partitions are hash maps, sort the matching records by digest like the server's partition scan returns them
+        long now = clock.getAsLong();
+        List<Entry> entries = new ArrayList<>();
+        for (Entry entry : set.partitions.get(partitionId).values()) {
+            if (entry.isExpired(now)) continue;
+            if (afterDigest != null && compareDigests(entry.key.digest, afterDigest) <= 0) continue;
+            if (policy.scanPercent < 100 && (entry.key.digest[8] & 0x7F) % 100 >= policy.scanPercent) continue;
+            if (filter != null && !filter.matches(entry.ttl(now), entry.key.digest, entry.bins)) continue;
+            entries.add(entry);
+        }
+        entries.sort((a, b) -> compareDigests(a.key.digest, b.key.digest));
+
+        long returned = 0;
+        for (Entry entry : entries) {
+            callback.scanCallback(entry.key, entry.toRecord(policy.includeBinData, now));
+
+            if (policy.maxRecords > 0 && ++returned >= policy.maxRecords) return;
+        }
+    }
+
+    public void backgroundDelete(String namespace, String setName, RecordFilter filter) {
+        SetData set = sets.get(setKey(namespace, setName));
+        if (set == null) return;
+
+        long now = clock.getAsLong();
+        for (int partitionId = 0; partitionId < PARTITIONS; partitionId++) {
+            Iterator<Map.Entry<DigestKey, Entry>> it = set.partitions.get(partitionId).entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<DigestKey, Entry> mapEntry = it.next();
+                Entry entry = mapEntry.getValue();
+                if (!entry.isExpired(now) && filter.matches(entry.ttl(now), entry.key.digest, entry.bins) && set.partitions.get(partitionId).remove(mapEntry.getKey(), entry)) {
+                    set.removed(partitionId, entry);
+                }
+            }
+        }
+    }
+
+    public void createIndex(String namespace, String setName, String binName) {
+        SetData set = setData(namespace, setName);
+        ConcurrentSkipListSet<IndexEntry> index = new ConcurrentSkipListSet<>();
+        if (set.indexes.putIfAbsent(binName, index) != null) return;
+
+        // Writes from here on update the index themselves. Entries for records written during the build may be stale,
+        // queries check every entry against its record
+        for (ConcurrentHashMap<DigestKey, Entry> partition : set.partitions) {
+            for (Entry entry : partition.values()) {
+                Long value = entry.indexValue(binName);
+                if (value != null) index.add(new IndexEntry(value, entry.key.digest));
+            }
+        }
+    }
+
+    public void queryRange(QueryPolicy policy, String namespace, String setName, String binName, long begin, long end, RecordFilter filter, ScanCallback callback) {
+        SetData set = sets.get(setKey(namespace, setName));
+        ConcurrentSkipListSet<IndexEntry> index = set != null ? set.indexes.get(binName) : null;
+        if (index == null) {
+            throw new AerospikeException(ResultCode.INDEX_NOTFOUND, "No index on " + namespace + "/" + setName + " bin " + binName);
+        }
+
+        long now = clock.getAsLong();
+        long returned = 0;
+        for (IndexEntry indexEntry : index.subSet(new IndexEntry(begin, IndexEntry.FIRST_DIGEST), true, new IndexEntry(end, IndexEntry.LAST_DIGEST), true)) {
+            Entry entry = set.partitions.get(Partition.getPartitionId(indexEntry.digest)).get(new DigestKey(indexEntry.digest));
+            if (entry == null || entry.isExpired(now) || !Long.valueOf(indexEntry.value).equals(entry.indexValue(binName))) continue;
+            if (filter != null && !filter.matches(entry.ttl(now), entry.key.digest, entry.bins)) continue;
+
+            callback.scanCallback(entry.key, entry.toRecord(policy.includeBinData, now));
+
+            if (policy.maxRecords > 0 && ++returned >= policy.maxRecords) return;
+        }
+    }
+
+    public String[] getNodeNames() {
+        return nodeNames.clone();
+    }
+
+    public String nodeOf(Key key) {
+        return nodeNames[Partition.getPartitionId(key.digest) % nodeNames.length];
+    }
+
+    public String info(String nodeName, String command) {
+        int nodeIndex = Arrays.asList(nodeNames).indexOf(nodeName);
+        if (nodeIndex < 0) {
+            throw new AerospikeException.InvalidNode("Invalid node name: " + nodeName);
+        }
+
+        if (command.startsWith("sets/")) {
+            // sets/<namespace>/<set>
+            String[] parts = command.split("/");
+            SetData set = parts.length == 3 ? sets.get(setKey(parts[1], parts[2])) : null;
+            if (set == null) return "";
+
+            return "objects=" + set.objectsPerNode[nodeIndex].sum() + ":tombstones=0:memory_data_bytes=" + set.bytesPerNode[nodeIndex].sum() + ":device_data_bytes=0:truncate_lut=0:stop-writes-count=0:disable-eviction=false;";
+        }
+
+        if (command.startsWith("histogram:")) {
+            // histogram:namespace=<namespace>;set=<set>;type=ttl
+            String namespace = null;
+            String setName = null;
+            for (String parameter : command.substring("histogram:".length()).split(";")) {
+                if (parameter.startsWith("namespace=")) namespace = parameter.substring("namespace=".length());
+                if (parameter.startsWith("set=")) setName = parameter.substring("set=".length());
+            }
+
+            SetData set = setData(namespace, setName);
+            Histogram histogram = set.histogram;
+            if (histogram == null) {
+                histogram = set.histogram = buildHistogram(set, clock.getAsLong());
+            }
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("units=seconds:hist-width=").append(histogram.bucketWidth * histogramBuckets).append(":bucket-width=").append(histogram.bucketWidth).append(":buckets=");
+            long[] buckets = histogram.objectsPerBucket[nodeIndex];
+            for (int i = 0; i < buckets.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(buckets[i]);
+            }
+            return sb.toString();
+        }
+
+        return "";
+    }
+
+    // Unsigned byte order
+    private static int compareDigests(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int compare = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (compare != 0) return compare;
+        }
+        return 0;
+    }
+
+    public synchronized void close() {
+        if (nsupExecutor != null) {
+            nsupExecutor.shutdownNow();
+            nsupExecutor = null;
+        }
+    }
+
+    private Histogram buildHistogram(SetData set, long now) {
+        long maxTTL = 0;
+        for (int partitionId = 0; partitionId < PARTITIONS; partitionId++) {
+            for (Entry entry : set.partitions.get(partitionId).values()) {
+                if (entry.voidTime != 0 && !entry.isExpired(now)) maxTTL = Math.max(maxTTL, entry.ttl(now));
+            }
+        }
+
+        // Bucket widths are whole seconds, at least 1
+        long bucketWidth = Math.max(1, (maxTTL + histogramBuckets - 1) / histogramBuckets);
+        long[][] objectsPerBucket = new long[nodeNames.length][histogramBuckets];
+        for (int partitionId = 0; partitionId < PARTITIONS; partitionId++) {
+            long[] buckets = objectsPerBucket[partitionId % nodeNames.length];
+            for (Entry entry : set.partitions.get(partitionId).values()) {
+                if (entry.voidTime == 0 || entry.isExpired(now)) continue;
+                buckets[(int) Math.min(histogramBuckets - 1, entry.ttl(now) / bucketWidth)]++;
+            }
+        }
+
+        return new Histogram(bucketWidth, objectsPerBucket);
+    }
+
+    private long voidTime(WritePolicy policy, Entry current, long now) {
+        int expiration = policy != null ? policy.expiration : 0;
+        if (expiration == -1) return 0;                                      // never expire
+        if (expiration == -2) return current != null ? current.voidTime : voidTimeAfter(defaultTTL, now);   // keep existing TTL
+        return voidTimeAfter(expiration == 0 ? defaultTTL : expiration, now);
+    }
+
+    private static long voidTimeAfter(long ttl_sec, long now) {
+        return ttl_sec <= 0 ? 0 : now + ttl_sec * 1000;
+    }
+
+    private SetData setData(String namespace, String setName) {
+        return sets.computeIfAbsent(setKey(namespace, setName), k -> new SetData(nodeNames.length));
+    }
+
+    private static String setKey(String namespace, String setName) {
+        return namespace + "/" + setName;
+    }
+
+    private static final class SetData {
+        final List<ConcurrentHashMap<DigestKey, Entry>> partitions = new ArrayList<>(PARTITIONS);
+        final LongAdder[] objectsPerNode;
+        final LongAdder[] bytesPerNode;
+        volatile Histogram histogram;
+
+        // Secondary indexes by bin name
+        final ConcurrentHashMap<String, ConcurrentSkipListSet<IndexEntry>> indexes = new ConcurrentHashMap<>();
+
+        SetData(int nodeCount) {
+            for (int i = 0; i < PARTITIONS; i++) {
+                partitions.add(new ConcurrentHashMap<>());
+            }
+            objectsPerNode = new LongAdder[nodeCount];
+            bytesPerNode = new LongAdder[nodeCount];
+            for (int i = 0; i < nodeCount; i++) {
+                objectsPerNode[i] = new LongAdder();
+                bytesPerNode[i] = new LongAdder();
+            }
+        }
+
+        void replaced(int partitionId, Entry previous, Entry next) {
+            int node = partitionId % objectsPerNode.length;
+            if (previous != null) {
+                objectsPerNode[node].decrement();
+                bytesPerNode[node].add(-previous.size);
+            }
+            if (next != null) {
+                objectsPerNode[node].increment();
+                bytesPerNode[node].add(next.size);
+            }
+
+            for (Map.Entry<String, ConcurrentSkipListSet<IndexEntry>> index : indexes.entrySet()) {
+                String binName = index.getKey();
+                Long previousValue = previous != null ? previous.indexValue(binName) : null;
+                Long nextValue = next != null ? next.indexValue(binName) : null;
+                if (previousValue != null && previousValue.equals(nextValue)) continue;
+
+                if (previousValue != null) {
+                    byte[] digest = previous.key.digest;
+                    index.getValue().remove(new IndexEntry(previousValue, digest));
+
+                    // Removals happen outside the record's compute, a write with the same value may have come in since
+                    Entry current = next == null ? partitions.get(partitionId).get(new DigestKey(digest)) : null;
+                    if (current != null && previousValue.equals(current.indexValue(binName))) {
+                        index.getValue().add(new IndexEntry(previousValue, digest));
+                    }
+                }
+                if (nextValue != null) {
+                    index.getValue().add(new IndexEntry(nextValue, next.key.digest));
+                }
+            }
+        }
+
+        void removed(int partitionId, Entry entry) {
+            replaced(partitionId, entry, null);
+        }
+    }
+
+    private static final class Histogram {
+        final long bucketWidth;
+        final long[][] objectsPerBucket;
+
+        Histogram(long bucketWidth, long[][] objectsPerBucket) {
+            this.bucketWidth = bucketWidth;
+            this.objectsPerBucket = objectsPerBucket;
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        final Map<String, Object> bins;
+        final int generation;
+        final long voidTime;
+        final int size;
+
+        Entry(Key key, Map<String, Object> bins, int generation, long voidTime) {
+            this.key = key;
+            this.bins = bins;
+            this.generation = generation;
+            this.voidTime = voidTime;
+            this.size = RECORD_OVERHEAD_BYTES + sizeOf(bins);
+        }
+
+        boolean isExpired(long now) {
+            return voidTime != 0 && voidTime <= now;
+        }
+
+        // The bin's value as a secondary index sees it, null unless it is an integer
+        Long indexValue(String binName) {
+            Object value = bins.get(binName);
+            return value instanceof Long || value instanceof Integer ? ((Number) value).longValue() : null;
+        }
+
+        // Remaining TTL in whole seconds, rounded up like the server
+        long ttl(long now) {
+            return voidTime == 0 ? -1 : (voidTime - now + 999) / 1000;
+        }
+
+        // Translate our clock's void time to an expiration relative to the wall clock, so Record.getTimeToLive matches
+        int expiration(long now) {
+            return voidTime == 0 ? 0 : (int) (System.currentTimeMillis() / 1000 - CITRUSLEAF_EPOCH + ttl(now));
+        }
+
+        Record toRecord(boolean includeBins, long now) {
+            return new Record(includeBins ? new HashMap<>(bins) : null, generation, expiration(now));
+        }
+
+        private static int sizeOf(Map<String, Object> bins) {
+            int size = 0;
+            for (Map.Entry<String, Object> bin : bins.entrySet()) {
+                size += bin.getKey().length();
+                Object value = bin.getValue();
+                if (value instanceof byte[]) {
+                    size += ((byte[]) value).length;
+                } else if (value instanceof String) {
+                    size += utf8Length((String) value);
+                } else {
+                    size += 8;
+                }
+            }
+            return size;
+        }
+    }
+
+    // Strings are stored UTF-8 encoded
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    // Ordered by value, then digest
+    private static final class IndexEntry implements Comparable<IndexEntry> {
+        static final byte[] FIRST_DIGEST = new byte[20];
+        static final byte[] LAST_DIGEST = new byte[20];
+
+        static {
+            Arrays.fill(LAST_DIGEST, (byte) 0xFF);
+        }
+
+        final long value;
+        final byte[] digest;
+
+        IndexEntry(long value, byte[] digest) {
+            this.value = value;
+            this.digest = digest;
+        }
+
+        public int compareTo(IndexEntry other) {
+            int compare = Long.compare(value, other.value);
+            return compare != 0 ? compare : compareDigests(digest, other.digest);
+        }
+
+        public boolean equals(Object o) {
+            return o instanceof IndexEntry && compareTo((IndexEntry) o) == 0;
+        }
+
+        public int hashCode() {
+            return Long.hashCode(value) * 31 + Arrays.hashCode(digest);
+        }
+    }
+}
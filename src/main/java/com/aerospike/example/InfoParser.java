@@ -0,0 +1,74 @@
+package com.aerospike.example;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// InfoParser
+//
+//   GIVEN  an info response made of name=value fields separated by ':' or ';'
+//   THEN   find and read fields in place, without substring/split or boxing, so parsing on every policy tick
+//          allocates nothing
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class InfoParser {
+
+    // Use static methods
+    private InfoParser() {
+    }
+
+    // Index of the first character of the named field's value, -1 when the field isn't present
+    static int valueStart(String info, String name) {
+        int from = 0;
+        while (true) {
+            int index = info.indexOf(name, from);
+            if (index < 0) return -1;
+
+            int valueIndex = index + name.length();
+            boolean startsField = index == 0 || isSeparator(info.charAt(index - 1));
+            if (startsField && valueIndex < info.length() && info.charAt(valueIndex) == '=') {
+                return valueIndex + 1;
+            }
+            from = index + 1;
+        }
+    }
+
+    // Index just past the value starting at start
+    static int valueEnd(String info, int start) {
+        int end = start;
+        while (end < info.length() && !isSeparator(info.charAt(end))) end++;
+        return end;
+    }
+
+    // The named field as a number, defaultValue when the field isn't present
+    static long longValue(String info, String name, long defaultValue) {
+        int start = valueStart(info, name);
+        if (start < 0) return defaultValue;
+        return parseLong(info, start, valueEnd(info, start));
+    }
+
+    // True when the named field's value is exactly expected
+    static boolean valueEquals(String info, String name, String expected) {
+        int start = valueStart(info, name);
+        if (start < 0) return false;
+        return valueEnd(info, start) - start == expected.length() && info.startsWith(expected, start);
+    }
+
+    // Non-negative decimal number in info[start, end)
+    static long parseLong(String info, int start, int end) {
+        if (start >= end) {
+            throw new NumberFormatException("Empty number at " + start + " in: " + info);
+        }
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = info.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Unexpected '" + info.charAt(i) + "' at " + i + " in: " + info);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ':' || c == ';';
+    }
+}
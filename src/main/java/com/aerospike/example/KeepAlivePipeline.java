@@ -0,0 +1,201 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.WritePolicy;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// KeepAlivePipeline
+//
+//   GIVEN  keep alive requests from many threads, often for the same keys
+//   WHEN   collecting them for up to the window, or until batchSize distinct keys are waiting
+//   THEN   send one keep alive per distinct digest and complete every caller's future with its result, so touch
+//          traffic follows the number of distinct keys rather than the number of accesses
+//
+//   Client 5.0.7 only batches reads (no batch operate or batch touch), so each distinct key is sent as its own async
+//   command, pipelined with at most maxInFlight outstanding. Only a store with event loops pipelines them: without
+//   (the default sync client, the in memory store) operateAsync runs on the sender thread, one command at a time, and
+//   only the coalescing saves commands
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class KeepAlivePipeline implements Closeable {
+    static final int DEFAULT_BATCH_SIZE = 100;
+    static final long DEFAULT_WINDOW_MILLIS = 5;
+    static final int DEFAULT_MAX_IN_FLIGHT = 100;
+
+    private final CacheStore store;
+    private final Operation[] operations;
+    private final int batchSize;
+    private final long windowNanos;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+
+    // Requests waiting for the next batch, keyed by digest. Swapped out whole when a batch is sent
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchFull = lock.newCondition();
+    private Map<DigestKey, Pending> pending = new HashMap<>();
+    private boolean closed;
+
+    private final Thread sender;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+
+    // Keep alive with touch + get (the record comes back to every caller)
+    KeepAlivePipeline(CacheStore store) {
+        this(store, DEFAULT_BATCH_SIZE, DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_IN_FLIGHT, Operation.touch(), Operation.get());
+    }
+
+    KeepAlivePipeline(CacheStore store, int batchSize, long windowMillis, int maxInFlight, Operation... operations) {
+        this.store = store;
+        this.operations = operations;
+        this.batchSize = Math.max(1, batchSize);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.inFlight = new Semaphore(this.maxInFlight);
+
+        this.sender = Threads.factory("keep-alive-pipeline").newThread(this::runSender);
+        sender.start();
+    }
+
+    // Keep the record alive for expiration seconds (WritePolicy.expiration semantics). A request for a digest that
+    // is already waiting joins it and gets the same future, with the expiration of the first request
+    CompletableFuture<Record> keepAlive(Key key, int expiration) {
+        requests.increment();
+        DigestKey digestKey = new DigestKey(key.digest);
+
+        lock.lock();
+        try {
+            if (closed) {
+                CompletableFuture<Record> future = new CompletableFuture<>();
+                future.completeExceptionally(new IllegalStateException("Keep alive pipeline is closed"));
+                return future;
+            }
+
+            Pending request = pending.get(digestKey);
+            if (request == null) {
+                request = new Pending(key, expiration);
+                pending.put(digestKey, request);
+
+                // Wake the sender to start the window, or to send now that the batch is full
+                if (pending.size() == 1 || pending.size() >= batchSize) {
+                    batchFull.signal();
+                }
+            }
+            return request.future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Accesses per command sent so far, 1 when nothing was coalesced
+    double getCoalescingRatio() {
+        long sentCount = sent.sum();
+        return sentCount == 0 ? 1 : (double) requests.sum() / sentCount;
+    }
+
+    String getStats() {
+        return String.format("keep alive requests=%d sent=%d (%.1fx coalesced)", requests.sum(), sent.sum(), getCoalescingRatio());
+    }
+
+    // Send what's waiting and wait for every outstanding keep alive
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            batchFull.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            sender.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        inFlight.acquireUninterruptibly(maxInFlight);
+        inFlight.release(maxInFlight);
+    }
+
+    private void runSender() {
+        while (true) {
+            Map<DigestKey, Pending> batch;
+            boolean last;
+
+            lock.lock();
+            try {
+                // The window starts with the first request of the batch
+                while (pending.isEmpty() && !closed) {
+                    batchFull.awaitUninterruptibly();
+                }
+                long deadline = System.nanoTime() + windowNanos;
+                long remaining;
+                while (pending.size() < batchSize && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+                    batchFull.awaitNanos(remaining);
+                }
+
+                batch = pending;
+                pending = new HashMap<>();
+                last = closed;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            for (Pending request : batch.values()) {
+                send(request);
+            }
+            if (last) return;
+        }
+    }
+
+    private void send(Pending request) {
+        inFlight.acquireUninterruptibly();
+        sent.increment();
+
+        WritePolicy policy = store.newWritePolicy();
+        policy.expiration = request.expiration;
+
+        CompletableFuture<Record> result;
+        try {
+            result = store.operateAsync(policy, request.key, operations);
+        } catch (RuntimeException e) {
+            // Not only AerospikeException, anything else would end the sender and leave every waiting future open
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+
+        result.whenComplete((record, e) -> {
+            inFlight.release();
+            if (e != null) {
+                request.future.completeExceptionally(e);
+            } else {
+                request.future.complete(record);
+            }
+        });
+    }
+
+    private static final class Pending {
+        final Key key;
+        final int expiration;
+        final CompletableFuture<Record> future = new CompletableFuture<>();
+
+        Pending(Key key, int expiration) {
+            this.key = key;
+            this.expiration = expiration;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.aerospike.example;
+
+import com.aerospike.client.*;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// LastAccessCacheStore
+//
+//   GIVEN  a store
+//   WHEN   writing a record, or keeping one alive (any operate that touches or writes it)
+//   THEN   write the time of the access to the integer bin BIN in the same call, as seconds since 2010-01-01 like the
+//          server's void times (fits in 32 bits, one second resolution)
+//   THEN   with a numeric secondary index on BIN the least recently used records are a range query away, see
+//          LastAccessEvictor
+//
+//   Wrap the store under the tracing store and the near cache so every round trip that reaches the store is stamped,
+//   near cache hits are stamped when their deferred touch goes out
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class LastAccessCacheStore implements CacheStore {
+    static final String BIN = "lru_access";
+
+    // Seconds since 1970-01-01 of the 2010-01-01 epoch the server's void times use
+    private static final long CITRUSLEAF_EPOCH = 1262304000L;
+
+    private final CacheStore store;
+
+    LastAccessCacheStore(CacheStore store) {
+        this.store = store;
+    }
+
+    static long nowSeconds() {
+        return System.currentTimeMillis() / 1000 - CITRUSLEAF_EPOCH;
+    }
+
+    public void put(WritePolicy policy, Key key, Bin... bins) {
+        store.put(policy, key, stamp(bins));
+    }
+
+    public CompletableFuture<Void> putAsync(WritePolicy policy, Key key, Bin... bins) {
+        return store.putAsync(policy, key, stamp(bins));
+    }
+
+    public Record get(Policy policy, Key key) {
+        return store.get(policy, key);
+    }
+
+    public CompletableFuture<Record> getAsync(Policy policy, Key key) {
+        return store.getAsync(policy, key);
+    }
+
+    public Record operate(WritePolicy policy, Key key, Operation... operations) {
+        return store.operate(policy, key, stamp(operations));
+    }
+
+    public CompletableFuture<Record> operateAsync(WritePolicy policy, Key key, Operation... operations) {
+        return store.operateAsync(policy, key, stamp(operations));
+    }
+
+    public boolean delete(WritePolicy policy, Key key) {
+        return store.delete(policy, key);
+    }
+
+    public CompletableFuture<Boolean> deleteAsync(WritePolicy policy, Key key) {
+        return store.deleteAsync(policy, key);
+    }
+
+    public void scanAll(ScanPolicy policy, String namespace, String setName, RecordFilter filter, ScanCallback callback) {
+        store.scanAll(policy, namespace, setName, filter, callback);
+    }
+
+    public void scanPartition(ScanPolicy policy, String namespace, String setName, int partitionId, byte[] afterDigest, RecordFilter filter, ScanCallback callback) {
+        store.scanPartition(policy, namespace, setName, partitionId, afterDigest, filter, callback);
+    }
+
+    public void createIndex(String namespace, String setName, String binName) {
+        store.createIndex(namespace, setName, binName);
+    }
+
+    public void queryRange(QueryPolicy policy, String namespace, String setName, String binName, long begin, long end, RecordFilter filter, ScanCallback callback) {
+        store.queryRange(policy, namespace, setName, binName, begin, end, filter, callback);
+    }
+
+    public void backgroundDelete(String namespace, String setName, RecordFilter filter) {
+        store.backgroundDelete(namespace, setName, filter);
+    }
+
+    public String[] getNodeNames() {
+        return store.getNodeNames();
+    }
+
+    public String nodeOf(Key key) {
+        return store.nodeOf(key);
+    }
+
+    public String info(String nodeName, String command) {
+        return store.info(nodeName, command);
+    }
+
+    public Map<String, String> info(String nodeName, String... commands) {
+        return store.info(nodeName, commands);
+    }
+
+    public WritePolicy newWritePolicy() {
+        return store.newWritePolicy();
+    }
+
+    public ScanPolicy newScanPolicy() {
+        return store.newScanPolicy();
+    }
+
+    public QueryPolicy newQueryPolicy() {
+        return store.newQueryPolicy();
+    }
+
+    public String getConnectionStats() {
+        return store.getConnectionStats();
+    }
+
+    public void close() {
+        store.close();
+    }
+
+    private static Bin[] stamp(Bin[] bins) {
+        Bin[] stamped = new Bin[bins.length + 1];
+        System.arraycopy(bins, 0, stamped, 0, bins.length);
+        stamped[bins.length] = new Bin(BIN, nowSeconds());
+        return stamped;
+    }
+
+    // Last, so a get in the same call returns the record as it was before this access
+    private static Operation[] stamp(Operation[] operations) {
+        boolean access = false;
+        for (Operation operation : operations) {
+            if (operation.type == Operation.Type.TOUCH || operation.type == Operation.Type.WRITE) access = true;
+        }
+        if (!access) return operations;
+
+        Operation[] stamped = new Operation[operations.length + 1];
+        System.arraycopy(operations, 0, stamped, 0, operations.length);
+        stamped[operations.length] = Operation.put(new Bin(BIN, nowSeconds()));
+        return stamped;
+    }
+}
@@ -0,0 +1,143 @@
+package com.aerospike.example;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.GenerationPolicy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.WritePolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// LastAccessEvictor
+//
+//   GIVEN  records stamped with their last access (LastAccessCacheStore.BIN) and a number of records to remove
+//   WHEN   evicting
+//   THEN   walk the last access times from the oldest up in windows of maxIdleSeconds / windows, and in each window
+//          range query the bin's secondary index a page at a time, deleting every record a page returns, until enough
+//          are removed. The first window also takes everything older, so nothing before it is missed
+//   THEN   delete each record only at the generation the query saw, a record read between the query and its delete
+//          isn't least recently used any more and stays
+//   THEN   remember the end of the last window that was emptied, the next pass starts there
+//
+//   A pass costs the records it removes plus one query per window walked, not the size of the set. Within a window
+//   records go in no particular order, so the order is exact to windowSeconds. Records without the bin (written
+//   before stamping started) are never found, the namespace TTL still expires them
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class LastAccessEvictor {
+    // As many windows as the TTL histogram has buckets
+    static final int DEFAULT_WINDOWS = 100;
+    static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private static final int DELETES_IN_FLIGHT = 100;
+
+    private final long maxIdleSeconds;
+    private final long windowSeconds;
+    private final int pageSize;
+
+    // The index is created on the first pass
+    private boolean indexed;
+
+    // Every record last accessed before this (seconds since 2010-01-01) was removed, 0 until a window is emptied
+    private long floor;
+
+    // maxIdleSeconds is the longest a record can go unread before it expires, the longest TTL
+    LastAccessEvictor(long maxIdleSeconds) {
+        this(maxIdleSeconds, DEFAULT_WINDOWS, DEFAULT_PAGE_SIZE);
+    }
+
+    LastAccessEvictor(long maxIdleSeconds, int windows, int pageSize) {
+        this.maxIdleSeconds = maxIdleSeconds;
+        this.windowSeconds = Math.max(1, maxIdleSeconds / Math.max(1, windows));
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    synchronized long getFloor() {
+        return floor;
+    }
+
+    // Returns the number of records removed, no more than objectsToRemove. Only filter's tier is used, the last access
+    // orders the records instead of the TTL. One pass at a time
+    synchronized long evict(CacheStore store, String namespace, String setName, RecordFilter filter, long objectsToRemove) {
+        if (objectsToRemove <= 0) return 0;
+
+        if (!indexed) {
+            store.createIndex(namespace, setName, LastAccessCacheStore.BIN);
+            indexed = true;
+        }
+
+        // An emptied window only holds for the tier it was emptied for
+        RecordFilter tierFilter = filter != null && filter.hasTier() ? filter.withTtlAtMost(Long.MAX_VALUE) : null;
+
+        QueryPolicy policy = store.newQueryPolicy();
+        policy.includeBinData = false;
+
+        Metrics.Counter scanned = ManageMaxObjectsInLRUCachePolicy.ForceObjectEvictionPolicy.scannedCounter(namespace, setName);
+        Metrics.Timer deletes = ManageMaxObjectsInLRUCachePolicy.ForceObjectEvictionPolicy.deleteTimer(namespace, setName);
+
+        long now = LastAccessCacheStore.nowSeconds();
+        long begin = 0;
+        long end = Math.max(floor, now - maxIdleSeconds) + windowSeconds;
+        long removed = 0;
+
+        while (removed < objectsToRemove && begin <= now) {
+            long limit = Math.min(pageSize, objectsToRemove - removed);
+            policy.maxRecords = limit;
+
+            List<Key> keys = new ArrayList<>();
+            List<Integer> generations = new ArrayList<>();
+            store.queryRange(policy, namespace, setName, LastAccessCacheStore.BIN, begin, end, tierFilter, (key, record) -> {
+                scanned.increment();
+                keys.add(key);
+                generations.add(record.generation);
+            });
+
+            long pageRemoved = delete(store, keys, generations, deletes);
+            removed += pageRemoved;
+
+            // A full page may have left more in the window, unless none of it could be deleted (then move on rather
+            // than ask for the same records again)
+            if (keys.size() >= limit && pageRemoved > 0) continue;
+
+            // Stamps only move forward, a window that ended before now stays empty
+            if (keys.size() < limit && tierFilter == null && end < now) {
+                floor = end + 1;
+            }
+            begin = end + 1;
+            end += windowSeconds;
+        }
+        return removed;
+    }
+
+    private static long delete(CacheStore store, List<Key> keys, List<Integer> generations, Metrics.Timer deletes) {
+        AtomicLong removed = new AtomicLong();
+        Semaphore inFlight = new Semaphore(DELETES_IN_FLIGHT);
+        for (int i = 0; i < keys.size(); i++) {
+            WritePolicy writePolicy = store.newWritePolicy();
+            writePolicy.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
+            writePolicy.generation = generations.get(i);
+
+            inFlight.acquireUninterruptibly();
+            long deleteStartNanos = System.nanoTime();
+            store.deleteAsync(writePolicy, keys.get(i)).whenComplete((existed, failure) -> {
+                deletes.recordSince(deleteStartNanos);
+                Throwable e = failure instanceof CompletionException ? failure.getCause() : failure;
+                if (e == null && existed) {
+                    removed.incrementAndGet();
+                } else if (e != null && !(e instanceof AerospikeException && ((AerospikeException) e).getResultCode() == ResultCode.GENERATION_ERROR)) {
+                    // Touched since the query is expected, anything else is left for a later pass
+                    System.out.println("Last access delete > ERROR: " + e.getMessage());
+                }
+                inFlight.release();
+            });
+        }
+        inFlight.acquireUninterruptibly(DELETES_IN_FLIGHT);
+        return removed.get();
+    }
+}
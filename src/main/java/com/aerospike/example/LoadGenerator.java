@@ -0,0 +1,452 @@
+package com.aerospike.example;
+
+import com.aerospike.client.*;
+import com.aerospike.client.policy.WritePolicy;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// LoadGenerator
+//
+//   GIVEN  a target rate (ops/s), a duration, an operation mix and a key distribution
+//   WHEN   worker threads issue operations on a fixed schedule (open loop) - a slow operation does not delay the
+//          intended start time of the ones behind it
+//   THEN   record latency from the intended start time (corrected for coordinated omission) in HDR histograms and
+//          periodically print p50/p99/p99.9/max and throughput per operation type
+//
+//   In async mode the worker threads only issue commands, completions arrive on the store's event loops. At most
+//   maxInFlight commands are outstanding, once that many are pending the workers wait (backpressure) - the waiting
+//   time still counts towards latency as it is measured from the intended start
+//
+//   With a KeepAlivePipeline touches for the same key from different threads are coalesced into one command
+//
+//   With TtlTiers writes and touches use the TTL of the key's tier, and writes store the tier bin
+//
+//   Keep alives are also counted in Metrics: lru.keepalive.hits (record found), lru.keepalive.misses (gone) and
+//   lru.keepalive.latency
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class LoadGenerator {
+    private static final int VALUE_SIZE = 16;
+
+    enum OperationType {
+        TOUCH,  // keep alive: touch + get
+        READ,   // get without resetting the TTL
+        WRITE,  // put a new value
+        MISS    // get a key that doesn't exist
+    }
+
+    private final CacheStore store;
+    private final String namespace;
+    private final String setName;
+    private final String binName;
+    private final int ttl_sec;
+    private final Key[] keys;
+    private final int threadCount;
+    private final long targetRate;
+    private final long durationMillis;
+    private final long reportIntervalMillis;
+    private final Mix mix;
+    private final KeyDistribution keyDistribution;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+
+    // Keep alive through the pipeline instead of one command per touch, null for none
+    private KeepAlivePipeline keepAlivePipeline;
+
+    // Per key TTLs, null for ttl_sec on every key
+    private TtlTiers tiers;
+
+    private final Recorder[] recorders = new Recorder[OperationType.values().length];
+    private final Histogram[] totals = new Histogram[OperationType.values().length];
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private final Metrics.Counter keepAliveHits;
+    private final Metrics.Counter keepAliveMisses;
+    private final Metrics.Timer keepAliveLatency;
+
+    LoadGenerator(CacheStore store, String namespace, String setName, String binName, int ttl_sec, Key[] keys, int threadCount, long targetRate, long durationMillis, long reportIntervalMillis, Mix mix, KeyDistribution keyDistribution) {
+        this(store, namespace, setName, binName, ttl_sec, keys, threadCount, targetRate, durationMillis, reportIntervalMillis, mix, keyDistribution, 0);
+    }
+
+    // maxInFlight > 0 selects async mode with at most that many outstanding commands
+    LoadGenerator(CacheStore store, String namespace, String setName, String binName, int ttl_sec, Key[] keys, int threadCount, long targetRate, long durationMillis, long reportIntervalMillis, Mix mix, KeyDistribution keyDistribution, int maxInFlight) {
+        this.store = store;
+        this.namespace = namespace;
+        this.setName = setName;
+        this.binName = binName;
+        this.ttl_sec = ttl_sec;
+        this.keys = keys;
+        this.threadCount = threadCount;
+        this.targetRate = targetRate;
+        this.durationMillis = durationMillis;
+        this.reportIntervalMillis = reportIntervalMillis;
+        this.mix = mix;
+        this.keyDistribution = keyDistribution;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = maxInFlight > 0 ? new Semaphore(maxInFlight) : null;
+
+        for (int i = 0; i < recorders.length; i++) {
+            recorders[i] = new Recorder(3);
+            totals[i] = new Histogram(3);
+        }
+
+        String set = namespace + "/" + setName;
+        this.keepAliveHits = Metrics.GLOBAL.counter("lru.keepalive.hits", "set", set);
+        this.keepAliveMisses = Metrics.GLOBAL.counter("lru.keepalive.misses", "set", set);
+        this.keepAliveLatency = Metrics.GLOBAL.timer("lru.keepalive.latency", "set", set);
+    }
+
+    LoadGenerator keepAliveThrough(KeepAlivePipeline keepAlivePipeline) {
+        this.keepAlivePipeline = keepAlivePipeline;
+        return this;
+    }
+
+    LoadGenerator withTiers(TtlTiers tiers) {
+        this.tiers = tiers;
+        return this;
+    }
+
+    void run() throws InterruptedException {
+        long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+        long endNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+
+        // Each worker owns every threadCount'th slot of the global schedule
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) * threadCount / targetRate;
+        ThreadFactory threads = Threads.factory("load-generator");
+        Thread[] workers = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            long firstNanos = startNanos + TimeUnit.SECONDS.toNanos(1) * i / targetRate;
+            workers[i] = threads.newThread(() -> runWorker(firstNanos, intervalNanos, endNanos));
+            workers[i].start();
+        }
+
+        long reportStartNanos = startNanos;
+        long nextReportNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(reportIntervalMillis);
+        while (nextReportNanos < endNanos) {
+            sleepUntil(nextReportNanos);
+            report("[" + TimeUnit.NANOSECONDS.toSeconds(nextReportNanos - startNanos) + "s]", nextReportNanos - reportStartNanos);
+            reportStartNanos = nextReportNanos;
+            nextReportNanos += TimeUnit.MILLISECONDS.toNanos(reportIntervalMillis);
+        }
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (inFlight != null) {
+            // Wait for outstanding async commands
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        }
+        report("[" + TimeUnit.NANOSECONDS.toSeconds(endNanos - startNanos) + "s]", Math.max(1, System.nanoTime() - reportStartNanos));
+
+        System.out.println("\nLoad summary (latency from intended start, ms):");
+        for (OperationType type : OperationType.values()) {
+            Histogram total = totals[type.ordinal()];
+            if (total.getTotalCount() == 0) continue;
+            System.out.println(String.format("  %-5s count=%d, avg ops/s=%.0f, %s", type, total.getTotalCount(), total.getTotalCount() * 1000.0 / durationMillis, percentiles(total)));
+        }
+        System.out.println("  not found=" + notFound.sum() + ", errors=" + errors.sum());
+        if (keepAlivePipeline != null) {
+            System.out.println("  " + keepAlivePipeline.getStats());
+        }
+    }
+
+    private void runWorker(long firstNanos, long intervalNanos, long endNanos) {
+        SplittableRandom random = new SplittableRandom();
+        WritePolicy writePolicy = store.newWritePolicy();
+        writePolicy.expiration = ttl_sec;
+        byte[] value = new byte[VALUE_SIZE];
+
+        // One policy per tier, async commands read theirs after the worker moved on
+        WritePolicy[] tierPolicies = new WritePolicy[tiers != null ? tiers.getTiers().size() : 0];
+        for (int i = 0; i < tierPolicies.length; i++) {
+            tierPolicies[i] = new WritePolicy(writePolicy);
+            tierPolicies[i].expiration = tiers.getTiers().get(i).ttl;
+        }
+
+        for (long intendedNanos = firstNanos; intendedNanos < endNanos; intendedNanos += intervalNanos) {
+            sleepUntil(intendedNanos);
+
+            OperationType type = mix.next(random);
+            Key key = type == OperationType.MISS ? new Key(namespace, setName, "missing-" + random.nextLong()) : keys[keyDistribution.next(random)];
+            WritePolicy policy = tiers != null ? tierPolicies[tiers.tierOf(key).id] : writePolicy;
+            if (type == OperationType.WRITE) {
+                for (int i = 0; i < value.length; i++) {
+                    value[i] = (byte) random.nextInt(256);
+                }
+            }
+
+            if (inFlight != null) {
+                inFlight.acquireUninterruptibly();
+
+                long startNanos = intendedNanos;
+                executeAsync(type, policy, key, value).whenComplete((result, e) -> {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (cause != null) {
+                        countFailure(cause);
+                    } else if (result == null && type != OperationType.WRITE) {
+                        notFound.increment();
+                    }
+                    long latencyNanos = Math.max(0, System.nanoTime() - startNanos);
+                    recorders[type.ordinal()].recordValue(latencyNanos);
+                    if (type == OperationType.TOUCH) recordKeepAlive(result != null, cause, latencyNanos);
+                    inFlight.release();
+                });
+                continue;
+            }
+
+            Object result = null;
+            AerospikeException failure = null;
+            try {
+                result = execute(type, policy, key, value);
+                if (result == null && type != OperationType.WRITE) {
+                    notFound.increment();
+                }
+            } catch (AerospikeException e) {
+                failure = e;
+                countFailure(e);
+            }
+
+            long latencyNanos = Math.max(0, System.nanoTime() - intendedNanos);
+            recorders[type.ordinal()].recordValue(latencyNanos);
+            if (type == OperationType.TOUCH) recordKeepAlive(result != null, failure, latencyNanos);
+        }
+    }
+
+    private Object execute(OperationType type, WritePolicy writePolicy, Key key, byte[] value) {
+        switch (type) {
+            case TOUCH:
+                if (keepAlivePipeline != null) {
+                    try {
+                        return keepAlivePipeline.keepAlive(key, writePolicy.expiration).join();
+                    } catch (CompletionException e) {
+                        throw e.getCause() instanceof AerospikeException ? (AerospikeException) e.getCause() : e;
+                    }
+                }
+
+                // Reset the cached items TTL and fetch the record - this is done atomically on the Aerospike
+                // server where record exists (single network call)
+                Operation[] fetchCachedItemOperation = new Operation[]{
+                        Operation.touch(),
+                        Operation.get()
+                };
+                return store.operate(writePolicy, key, fetchCachedItemOperation);
+            case WRITE:
+                store.put(writePolicy, key, writeBins(key, value));
+                return null;
+            default:
+                return store.get(null, key);
+        }
+    }
+
+    private CompletableFuture<?> executeAsync(OperationType type, WritePolicy writePolicy, Key key, byte[] value) {
+        switch (type) {
+            case TOUCH:
+                if (keepAlivePipeline != null) {
+                    return keepAlivePipeline.keepAlive(key, writePolicy.expiration);
+                }
+
+                Operation[] fetchCachedItemOperation = new Operation[]{
+                        Operation.touch(),
+                        Operation.get()
+                };
+                return store.operateAsync(writePolicy, key, fetchCachedItemOperation);
+            case WRITE:
+                return store.putAsync(writePolicy, key, writeBins(key, value));
+            default:
+                return store.getAsync(null, key);
+        }
+    }
+
+    private Bin[] writeBins(Key key, byte[] value) {
+        if (tiers == null) return new Bin[]{new Bin(binName, value.clone())};
+        return new Bin[]{new Bin(binName, value.clone()), new Bin(TtlTiers.BIN, (long) tiers.tierOf(key).id)};
+    }
+
+    private void recordKeepAlive(boolean found, Throwable failure, long latencyNanos) {
+        keepAliveLatency.record(latencyNanos);
+        if (found) {
+            keepAliveHits.increment();
+        } else if (failure == null || (failure instanceof AerospikeException && ((AerospikeException) failure).getResultCode() == ResultCode.KEY_NOT_FOUND_ERROR)) {
+            keepAliveMisses.increment();
+        }
+    }
+
+    private void countFailure(Throwable e) {
+        if (e instanceof AerospikeException && ((AerospikeException) e).getResultCode() == ResultCode.KEY_NOT_FOUND_ERROR) {
+            notFound.increment();
+        } else {
+            errors.increment();
+        }
+    }
+
+    private void report(String label, long elapsedNanos) {
+        StringBuilder line = new StringBuilder(label);
+        long operations = 0;
+        for (OperationType type : OperationType.values()) {
+            Histogram interval = recorders[type.ordinal()].getIntervalHistogram();
+            totals[type.ordinal()].add(interval);
+            if (interval.getTotalCount() == 0) continue;
+
+            operations += interval.getTotalCount();
+            line.append(" | ").append(type).append(' ').append(percentiles(interval));
+        }
+
+        double opsPerSecond = operations * 1e9 / elapsedNanos;
+        String connectionStats = store.getConnectionStats();
+        System.out.println(String.format("%s | ops/s=%.0f (target %d)%s", line, opsPerSecond, targetRate, connectionStats.isEmpty() ? "" : " | " + connectionStats));
+    }
+
+    private static String percentiles(Histogram histogram) {
+        return String.format("p50=%.3f p99=%.3f p99.9=%.3f max=%.3f",
+                histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getValueAtPercentile(99.9) / 1e6,
+                histogram.getMaxValue() / 1e6);
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Mix
+    //
+    //   GIVEN  relative weights per operation type, e.g. "touch=80,read=10,write=5,miss=5"
+    //   THEN   pick an operation type at random with those weights
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    static class Mix {
+        private final int[] cumulativeWeights = new int[OperationType.values().length];
+
+        private Mix(int[] weights) {
+            int total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                total += weights[i];
+                cumulativeWeights[i] = total;
+            }
+            if (total <= 0) {
+                throw new IllegalArgumentException("Operation mix needs at least one positive weight");
+            }
+        }
+
+        static Mix parse(String spec) {
+            int[] weights = new int[OperationType.values().length];
+            for (String part : spec.split(",")) {
+                String[] nameAndWeight = part.trim().split("=");
+                if (nameAndWeight.length != 2) {
+                    throw new IllegalArgumentException("Invalid operation mix entry: " + part);
+                }
+                weights[OperationType.valueOf(nameAndWeight[0].trim().toUpperCase()).ordinal()] = Integer.parseInt(nameAndWeight[1].trim());
+            }
+            return new Mix(weights);
+        }
+
+        OperationType next(SplittableRandom random) {
+            int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (value < cumulativeWeights[i]) return OperationType.values()[i];
+            }
+            return OperationType.TOUCH;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // KeyDistribution
+    //
+    //   uniform                        every key is equally likely
+    //   zipf[:theta]                   key i is chosen with probability proportional to 1 / (i + 1)^theta (default 0.99)
+    //   hotspot[:hotKeys:hotOps]       a fraction hotKeys of the keys receive a fraction hotOps of the operations
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    interface KeyDistribution {
+        int next(SplittableRandom random);
+
+        static KeyDistribution parse(String spec, int keyCount) {
+            String[] parts = spec.split(":");
+            switch (parts[0].toLowerCase()) {
+                case "uniform":
+                    return random -> random.nextInt(keyCount);
+                case "zipf":
+                    return new Zipfian(keyCount, parts.length > 1 ? Double.parseDouble(parts[1]) : Zipfian.DEFAULT_THETA);
+                case "hotspot":
+                    return new Hotspot(keyCount, parts.length > 1 ? Double.parseDouble(parts[1]) : Hotspot.DEFAULT_HOT_KEYS, parts.length > 2 ? Double.parseDouble(parts[2]) : Hotspot.DEFAULT_HOT_OPERATIONS);
+                default:
+                    throw new IllegalArgumentException("Unknown key distribution: " + spec);
+            }
+        }
+    }
+
+    // Gray et al, "Quickly Generating Billion-Record Synthetic Databases" - as used by YCSB
+    static class Zipfian implements KeyDistribution {
+        static final double DEFAULT_THETA = 0.99;
+
+        private final int keyCount;
+        private final double theta;
+        private final double alpha;
+        private final double zetaN;
+        private final double eta;
+
+        Zipfian(int keyCount, double theta) {
+            this.keyCount = keyCount;
+            this.theta = theta;
+
+            double zeta2 = zeta(2, theta);
+            this.zetaN = zeta(keyCount, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / keyCount, 1 - theta)) / (1 - zeta2 / zetaN);
+        }
+
+        public int next(SplittableRandom random) {
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            if (uz < 1.0) return 0;
+            if (uz < 1.0 + Math.pow(0.5, theta)) return Math.min(1, keyCount - 1);
+            return Math.min(keyCount - 1, (int) (keyCount * Math.pow(eta * u - eta + 1, alpha)));
+        }
+
+        private static double zeta(long n, double theta) {
+            double sum = 0;
+            for (long i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+    }
+
+    static class Hotspot implements KeyDistribution {
+        static final double DEFAULT_HOT_KEYS = 0.2;
+        static final double DEFAULT_HOT_OPERATIONS = 0.8;
+
+        private final int keyCount;
+        private final int hotKeyCount;
+        private final double hotOperations;
+
+        Hotspot(int keyCount, double hotKeys, double hotOperations) {
+            this.keyCount = keyCount;
+            this.hotKeyCount = Math.max(1, Math.min(keyCount, (int) (keyCount * hotKeys)));
+            this.hotOperations = hotOperations;
+        }
+
+        public int next(SplittableRandom random) {
+            if (hotKeyCount == keyCount || random.nextDouble() < hotOperations) {
+                return random.nextInt(hotKeyCount);
+            }
+            return hotKeyCount + random.nextInt(keyCount - hotKeyCount);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.aerospike.example;
+
+import com.aerospike.client.*;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.WritePolicy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// LruCache
+//
+//   GIVEN  a namespace, set and bin holding the cache, a TTL and a codec between values and bin values
+//   THEN   get keeps the record alive with touch + get in one call, as the eviction policies expect of an LRU cache,
+//          put writes with the TTL and invalidate deletes
+//   THEN   getOrLoad loads a missing value with the loader and writes it. Concurrent misses on one key in this process
+//          share one load: the first caller loads, the others wait for its value (or its failure). The winner reads
+//          the store once more before loading, a load that finished just before it started is not repeated
+//   THEN   with refresh ahead reads don't touch. A read that finds the record with less than refreshAheadFraction of
+//          its TTL left returns it and reloads it in the background (once per key at a time), so hot keys are
+//          rewritten before they expire and never miss, and keys nobody reads expire
+//
+//   Keys are user keys (String, Long, Integer), misses are shared between equal keys. Records hold the value bin only,
+//   the eviction policies see them like any other cache record. Counted in Metrics as lru.cache.hits,
+//   lru.cache.misses, lru.cache.loads, lru.cache.load.shared (misses that waited for another caller's load),
+//   lru.cache.refreshes and lru.cache.load.latency
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class LruCache<K, V> {
+    interface Loader<K, V> {
+        // null when there is no value, nothing is cached then
+        V load(K key) throws Exception;
+    }
+
+    // Between values and what's stored in the bin (String, Long, byte[], List, Map). ValueCodec stores serialized values
+    // as byte[], compressed above a size
+    interface Codec<V> {
+        Object encode(V value);
+
+        V decode(Object binValue);
+    }
+
+    // A loader threw, the loader's exception is the cause
+    static final class LoadException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        LoadException(Object key, Throwable cause) {
+            super("Loading " + key + " failed: " + cause, cause);
+        }
+    }
+
+    private final CacheStore store;
+    private final String namespace;
+    private final String setName;
+    private final String binName;
+    private final int ttlSeconds;
+    private final Codec<V> codec;
+    private final Loader<K, V> defaultLoader;
+
+    private final WritePolicy writePolicy;
+    private final Operation[] keepAlive;
+
+    // Loads running in this process, by key
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loads = new ConcurrentHashMap<>();
+
+    // Refresh ahead, off when refreshAheadFraction is 0
+    private double refreshAheadFraction;
+    private Executor refreshExecutor;
+
+    private final Metrics.Counter hits;
+    private final Metrics.Counter misses;
+    private final Metrics.Counter loadCount;
+    private final Metrics.Counter sharedLoads;
+    private final Metrics.Counter refreshes;
+    private final Metrics.Timer loadLatency;
+
+    // loader may be null when only getOrLoad(key, loader) is used
+    LruCache(CacheStore store, String namespace, String setName, String binName, int ttlSeconds, Codec<V> codec, Loader<K, V> loader) {
+        this.store = store;
+        this.namespace = namespace;
+        this.setName = setName;
+        this.binName = binName;
+        this.ttlSeconds = ttlSeconds;
+        this.codec = codec;
+        this.defaultLoader = loader;
+
+        this.writePolicy = store.newWritePolicy();
+        this.writePolicy.expiration = ttlSeconds;
+        this.keepAlive = new Operation[]{Operation.touch(), Operation.get()};
+
+        String set = namespace + "/" + setName;
+        this.hits = Metrics.GLOBAL.counter("lru.cache.hits", "set", set);
+        this.misses = Metrics.GLOBAL.counter("lru.cache.misses", "set", set);
+        this.loadCount = Metrics.GLOBAL.counter("lru.cache.loads", "set", set);
+        this.sharedLoads = Metrics.GLOBAL.counter("lru.cache.load.shared", "set", set);
+        this.refreshes = Metrics.GLOBAL.counter("lru.cache.refreshes", "set", set);
+        this.loadLatency = Metrics.GLOBAL.timer("lru.cache.load.latency", "set", set);
+    }
+
+    // Values stored as they are, for the types a bin holds
+    @SuppressWarnings("unchecked")
+    static <V> Codec<V> binValues() {
+        return new Codec<V>() {
+            public Object encode(V value) {
+                return value;
+            }
+
+            public V decode(Object binValue) {
+                return (V) binValue;
+            }
+        };
+    }
+
+    // Reload records read with less than fraction of their TTL left on executor instead of touching them, 0 to touch
+    LruCache<K, V> withRefreshAhead(double fraction, Executor executor) {
+        if (fraction < 0 || fraction >= 1) {
+            throw new IllegalArgumentException("Refresh ahead fraction must be from 0 up to 1: " + fraction);
+        }
+        this.refreshAheadFraction = fraction;
+        this.refreshExecutor = executor;
+        return this;
+    }
+
+    // The cached value, null on a miss
+    V get(K key) {
+        Record record = read(key);
+        if (record == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return codec.decode(record.getValue(binName));
+    }
+
+    V getOrLoad(K key) {
+        if (defaultLoader == null) {
+            throw new IllegalStateException("No loader given for " + namespace + "/" + setName);
+        }
+        return getOrLoad(key, defaultLoader);
+    }
+
+    V getOrLoad(K key, Loader<K, V> loader) {
+        Record record = read(key);
+        if (record != null) {
+            hits.increment();
+            refreshIfExpiring(key, record, loader);
+            return codec.decode(record.getValue(binName));
+        }
+        misses.increment();
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = loads.putIfAbsent(key, load);
+        if (running != null) {
+            sharedLoads.increment();
+            return join(key, running);
+        }
+
+        try {
+            // A load that finished between the miss and now already wrote it
+            record = store.get(null, toKey(key));
+            V value = record != null ? codec.decode(record.getValue(binName)) : loadAndPut(key, loader);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    void put(K key, V value) {
+        store.put(writePolicy, toKey(key), new Bin(binName, codec.encode(value)));
+    }
+
+    // True when there was a record to delete
+    boolean invalidate(K key) {
+        return store.delete(writePolicy, toKey(key));
+    }
+
+    Key toKey(K key) {
+        if (key instanceof String) return new Key(namespace, setName, (String) key);
+        if (key instanceof Long) return new Key(namespace, setName, (Long) key);
+        if (key instanceof Integer) return new Key(namespace, setName, (Integer) key);
+        return new Key(namespace, setName, Value.get(key));
+    }
+
+    private Record read(K key) {
+        if (refreshAheadFraction > 0) {
+            return store.get(null, toKey(key));
+        }
+        try {
+            return store.operate(writePolicy, toKey(key), keepAlive);
+        } catch (AerospikeException e) {
+            // Touching a record that isn't there
+            if (e.getResultCode() == ResultCode.KEY_NOT_FOUND_ERROR) return null;
+            throw e;
+        }
+    }
+
+    private V loadAndPut(K key, Loader<K, V> loader) {
+        long startNanos = System.nanoTime();
+        V value;
+        try {
+            value = loader.load(key);
+        } catch (RuntimeException e) {
+            throw e instanceof LoadException ? e : new LoadException(key, e);
+        } catch (Exception e) {
+            throw new LoadException(key, e);
+        } finally {
+            loadCount.increment();
+            loadLatency.recordSince(startNanos);
+        }
+
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    // At most one refresh per key at a time, sharing the key's slot with loads so a refresh and a miss don't both load
+    private void refreshIfExpiring(K key, Record record, Loader<K, V> loader) {
+        if (refreshAheadFraction <= 0 || record.expiration == 0 || record.getTimeToLive() > ttlSeconds * refreshAheadFraction) {
+            return;
+        }
+
+        CompletableFuture<V> refresh = new CompletableFuture<>();
+        if (loads.putIfAbsent(key, refresh) != null) return;
+
+        refreshes.increment();
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh.complete(loadAndPut(key, loader));
+                } catch (RuntimeException e) {
+                    // The current value stays until it expires, the next read near expiry tries again
+                    System.out.println(namespace + "/" + setName + " refresh > ERROR: " + e.getMessage());
+                    refresh.completeExceptionally(e);
+                } finally {
+                    loads.remove(key, refresh);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Executor rejected the refresh
+            loads.remove(key, refresh);
+            refresh.complete(null);
+        }
+    }
+
+    private V join(K key, CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new LoadException(key, cause);
+        }
+    }
+}
@@ -2,16 +2,18 @@ package com.aerospike.example;
 
 import com.aerospike.client.*;
 import com.aerospike.client.Record;
-import com.aerospike.client.cluster.Node;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.async.EventPolicy;
+import com.aerospike.client.async.NioEventLoops;
+import com.aerospike.client.policy.ClientPolicy;
 import com.aerospike.client.policy.WritePolicy;
+import com.sun.net.httpserver.HttpServer;
 import org.apache.commons.cli.*;
 
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -19,6 +21,9 @@ public class Main {
 
     private static int DEFAULT_NUMBER_OF_THREADS = 2 * 16; /// Use: lscpu for number of CPUs eg. 16
     private static int DEFAULT_NUMBER_OF_OPERATIONS_PER_THREAD = 10;
+    private static String DEFAULT_OPERATION_MIX = "touch=100";
+    private static String DEFAULT_KEY_DISTRIBUTION = "uniform";
+    private static int DEFAULT_REPORT_INTERVAL_SECONDS = 1;
 
     // See namespace configuration lru_test
     private static int AEROSPIKE_CONF_LRU_TTL = 10;     // must match default-ttl in aerospike.conf
@@ -26,18 +31,83 @@ public class Main {
 
     private static int TEST_INITIAL_DATA_SET_SIZE = 1000;
     private static int TEST_GROWTH_DATA_SET_SIZE = 200;
+    // Bulk loads can be far larger, the load generator only picks from the first records
+    private static int TEST_MAX_LOAD_KEYS = 1000000;
 
     private static int POLICY_CONFIG_MAX_OBJECTS_GOAL = 800;
     private static int POLICY_CONFIG_MAX_OBJECTS_GOAL_CHECK_FREQUENCY = 500;
+    private static long DEFAULT_MAX_BYTES_GOAL = 0;
+    private static String DEFAULT_EVICTION_MODE = "scan";
+    private static String DEFAULT_CONTROLLER = "fixed";
+
+    // Watermark controller: evict down to the low watermark when the set is about to pass the goal, checking between
+    // every 100ms and 2s depending on how fast the set grows
+    private static double POLICY_CONFIG_LOW_WATERMARK_RATIO = 0.9;
+    private static int POLICY_CONFIG_MIN_CHECK_FREQUENCY = 100;
+    private static int POLICY_CONFIG_MAX_CHECK_FREQUENCY = 2000;
+    private static long DEFAULT_MAX_DELETES_PER_SECOND = 0;
+    // Eviction manager (-b): passes running at the same time across all managed sets
+    private static int POLICY_CONFIG_EVICTION_PASSES = 4;
+    private static double POLICY_CONFIG_MIN_NODE_COVERAGE = ManageMaxObjectsInLRUCachePolicy.DEFAULT_MIN_NODE_COVERAGE;
+    // Longest wait for the policy and generator threads to see they were cancelled, a pass under way finishes first
+    private static long BACKGROUND_JOIN_MILLIS = 30000;
 
     private static String TEST_NAMESPACE_NAME = "lru_test";
     private static String TEST_SET_NAME = "mycache";
     private static String TEST_BIN_NAME = "bin1";
 
-    private static Random random = new Random(LocalDateTime.now().getNano() * LocalDateTime.now().getSecond());
+    private static int IN_MEMORY_STORE_NODE_COUNT = 1;
+    private static String DEFAULT_STORE = "aerospike";
 
-    private static AerospikeClient createAerospikeClient() {
-        return new AerospikeClient(null, new Host("127.0.0.1", 4000));
+    // Set when running against the in memory store, used in place of the client
+    private static InMemoryCacheStore inMemoryStore;
+
+    // Outstanding commands allowed in async mode, 0 in sync mode
+    private static int asyncMaxInFlight;
+
+    // Near cache in front of the store, 0 for none
+    private static long DEFAULT_NEAR_CACHE_BYTES = 0;
+
+    private static String DEFAULT_CLIENT_MODE = "sync";
+    private static int DEFAULT_MAX_IN_FLIGHT = 1000;
+
+    // Set in async mode, used by the shared client
+    private static EventLoops eventLoops;
+
+    // Set with --metrics-port
+    private static HttpServer metricsServer;
+
+    // Client connection pool and timeouts, -1 keeps the client default
+    private static int DEFAULT_MAX_CONNS_PER_NODE = -1;
+    private static int DEFAULT_TIMEOUT_MILLIS = -1;
+    private static int DEFAULT_TEND_INTERVAL_MILLIS = -1;
+
+    // One client for the whole run: the load generator, the eviction policy, the object generator and the
+    // verifications all share its connection pools and cluster tend thread
+    private static CacheStore createStore(int maxConnsPerNode, int timeoutMillis, int tendIntervalMillis) {
+        if (inMemoryStore != null) {
+            return inMemoryStore;
+        }
+
+        ClientPolicyBuilder clientPolicyBuilder = new ClientPolicyBuilder();
+        if (maxConnsPerNode > 0) clientPolicyBuilder.maxConnsPerNode(maxConnsPerNode);
+        if (timeoutMillis >= 0) clientPolicyBuilder.socketTimeout(timeoutMillis).totalTimeout(timeoutMillis);
+        if (tendIntervalMillis > 0) clientPolicyBuilder.tendInterval(tendIntervalMillis);
+        if (eventLoops != null) {
+            // Enough async connections for every command in flight
+            clientPolicyBuilder.eventLoops(eventLoops).asyncMaxConnsPerNode(Math.max(new ClientPolicy().asyncMaxConnsPerNode, asyncMaxInFlight));
+        }
+
+        return new AerospikeCacheStore(new AerospikeClient(clientPolicyBuilder.build(), new Host("127.0.0.1", 4000)), eventLoops);
+    }
+
+    // Bounded in flight async commands per event loop, the client queues the rest (up to the same number again) and
+    // rejects commands beyond that
+    private static EventLoops createEventLoops(int eventLoopCount, int maxInFlight) {
+        EventPolicy eventPolicy = new EventPolicy();
+        eventPolicy.maxCommandsInProcess = Math.max(1, (maxInFlight + eventLoopCount - 1) / eventLoopCount);
+        eventPolicy.maxCommandsInQueue = eventPolicy.maxCommandsInProcess;
+        return new NioEventLoops(eventPolicy, eventLoopCount);
     }
 
     private static class CacheItemUsageTracking {
@@ -71,7 +141,13 @@ public class Main {
 
     public static void main(String[] args) {
 
-        AerospikeClient client = null;
+        CacheStore client = null;
+        AtomicBoolean cancelMonitor = new AtomicBoolean();
+        AtomicBoolean cancelGenerator = new AtomicBoolean();
+
+        // Policy, eviction manager and generator loops. Threads.factory makes daemon (or virtual) threads, they are
+        // joined before the client they share is closed
+        List<Thread> backgroundThreads = new ArrayList<>();
 
         try {
             ////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -80,7 +156,7 @@ public class Main {
 
             Options options = new Options();
 
-            Option numberOfOperationsPerThread = new Option("c", "operations", true, "Number of operations to carry out per thread");
+            Option numberOfOperationsPerThread = new Option("c", "operations", true, "Number of operations per thread at the default rate of one per second per thread (sets the default duration)");
             numberOfOperationsPerThread.setRequired(false);
             options.addOption(numberOfOperationsPerThread);
 
@@ -88,6 +164,126 @@ public class Main {
             numberOfThreads.setRequired(false);
             options.addOption(numberOfThreads);
 
+            Option rate = new Option("r", "rate", true, "Target operations per second across all threads (default: one per thread)");
+            rate.setRequired(false);
+            options.addOption(rate);
+
+            Option duration = new Option("d", "duration", true, "Seconds to generate load for (default: the number of operations per thread)");
+            duration.setRequired(false);
+            options.addOption(duration);
+
+            Option mix = new Option("m", "mix", true, "Operation mix, e.g. touch=80,read=10,write=5,miss=5 (default touch=100)");
+            mix.setRequired(false);
+            options.addOption(mix);
+
+            Option distribution = new Option("k", "keys", true, "Key distribution: uniform, zipf[:theta] or hotspot[:hotKeys:hotOps] (default uniform)");
+            distribution.setRequired(false);
+            options.addOption(distribution);
+
+            Option reportInterval = new Option("i", "report-interval", true, "Seconds between latency reports (default 1)");
+            reportInterval.setRequired(false);
+            options.addOption(reportInterval);
+
+            Option clientMode = new Option("a", "client-mode", true, "sync (one blocking command per thread) or async (non-blocking commands on event loops) (default sync)");
+            clientMode.setRequired(false);
+            options.addOption(clientMode);
+
+            Option maxInFlight = new Option("f", "max-in-flight", true, "Async mode: maximum outstanding commands, further commands wait (default 1000)");
+            maxInFlight.setRequired(false);
+            options.addOption(maxInFlight);
+
+            Option eventLoopCount = new Option("l", "event-loops", true, "Async mode: number of event loops (default number of CPUs)");
+            eventLoopCount.setRequired(false);
+            options.addOption(eventLoopCount);
+
+            Option evictionMode = new Option("e", "eviction", true, "Eviction mode: scan (client side TTL check and delete), filtered (server side TTL filter), background (server side delete), partitions (parallel filtered partition scans that resume where the last pass stopped) oldest (index the oldest records in one scan and delete exactly those) or last-access (stamp a last access bin on every keep alive, range query its secondary index for the least recently used records)");
+            evictionMode.setRequired(false);
+            options.addOption(evictionMode);
+
+            Option controller = new Option("g", "controller", true, "Eviction controller: fixed (remove everything over the goal every 500ms) or watermark (anticipate growth from the ingest rate, evict to 90% of the goal, adaptive check interval) (default fixed)");
+            controller.setRequired(false);
+            options.addOption(controller);
+
+            Option maxDeletes = new Option("q", "max-deletes", true, "Watermark controller: maximum evictions per second, with -b the budget shared by all sets, 0 for no limit (default 0)");
+            maxDeletes.setRequired(false);
+            options.addOption(maxDeletes);
+
+            Option maxBytes = new Option("y", "max-bytes", true, "Also keep the set's data under this many bytes, whichever of the two goals is tighter applies (default no bytes goal)");
+            maxBytes.setRequired(false);
+            options.addOption(maxBytes);
+
+            Option managedSets = new Option("b", "sets", true, "Manage several sets with one eviction manager, e.g. lru_test/mycache:objects=800,priority=2;lru_test/other:bytes=20000 (default only " + TEST_NAMESPACE_NAME + "/" + TEST_SET_NAME + " with its own policy)");
+            managedSets.setRequired(false);
+            options.addOption(managedSets);
+
+            Option evictionWorkers = new Option("x", "eviction-workers", true, "Eviction mode partitions: number of partitions scanned at the same time (default number of CPUs)");
+            evictionWorkers.setRequired(false);
+            options.addOption(evictionWorkers);
+
+            Option maxConns = new Option("n", "max-conns", true, "Maximum sync connections per node in the shared client's pool (default client default)");
+            maxConns.setRequired(false);
+            options.addOption(maxConns);
+
+            Option timeout = new Option("t", "timeout", true, "Socket and total timeout in milliseconds for reads, writes and info calls, scans only take the socket timeout (default client default)");
+            timeout.setRequired(false);
+            options.addOption(timeout);
+
+            Option tendInterval = new Option("w", "tend-interval", true, "Milliseconds between cluster tends (default client default)");
+            tendInterval.setRequired(false);
+            options.addOption(tendInterval);
+
+            Option nearCache = new Option("v", "near-cache", true, "Serve keep alive reads from an in process cache of this many bytes, touches reach the store at most once per touch fraction of the TTL (default no near cache)");
+            nearCache.setRequired(false);
+            options.addOption(nearCache);
+
+            Option touchFraction = new Option("p", "touch-fraction", true, "Near cache: fraction of the TTL a record uses up on the store before a hit touches it again (default " + NearCacheStore.DEFAULT_TOUCH_FRACTION + ")");
+            touchFraction.setRequired(false);
+            options.addOption(touchFraction);
+
+            Option keepAliveBatch = new Option("u", "keep-alive-batch", true, "Coalesce keep alive touches: send one per distinct key every window or once this many keys are waiting (default one command per touch)");
+            keepAliveBatch.setRequired(false);
+            options.addOption(keepAliveBatch);
+
+            Option keepAliveWindow = new Option("j", "keep-alive-window", true, "Keep alive coalescing: milliseconds to collect touches for (default " + KeepAlivePipeline.DEFAULT_WINDOW_MILLIS + ")");
+            keepAliveWindow.setRequired(false);
+            options.addOption(keepAliveWindow);
+
+            Option bulkLoad = new Option("o", "bulk-load", true, "Initial fill, e.g. count=10000000,threads=8,in-flight=512,rate=0,values=uniform:100:1000,ttl=1:" + AEROSPIKE_CONF_LRU_TTL + " (default count=" + TEST_INITIAL_DATA_SET_SIZE + ",threads=1,values=" + BulkLoader.DEFAULT_VALUE_SIZES + ",ttl=" + AEROSPIKE_CONF_LRU_TTL + ", in-flight follows -a)");
+            bulkLoad.setRequired(false);
+            options.addOption(bulkLoad);
+
+            Option tiers = new Option(null, "tiers", true, "TTL tiers sharing the set, evicted lowest value first, e.g. session:ttl=" + AEROSPIKE_CONF_LRU_TTL + ",share=80,value=1;reference:ttl=60,share=20,value=10 (default one TTL of " + AEROSPIKE_CONF_LRU_TTL + "s)");
+            tiers.setRequired(false);
+            options.addOption(tiers);
+
+            Option metricsPort = new Option(null, "metrics-port", true, "Serve the metrics in the Prometheus text format on http://127.0.0.1:<port>/metrics (always on JMX as " + Metrics.OBJECT_NAME + ")");
+            metricsPort.setRequired(false);
+            options.addOption(metricsPort);
+
+            Option quiet = new Option(null, "quiet", false, "Don't print the histogram and policy state on every check, watch the metrics instead");
+            quiet.setRequired(false);
+            options.addOption(quiet);
+
+            Option trace = new Option(null, "trace", true, "Record sampled store operations and every eviction pass in a ring buffer, dump them from http://127.0.0.1:<metrics-port>/trace?seconds=60, e.g. " + OperationTracer.DEFAULT_SPEC);
+            trace.setRequired(false);
+            options.addOption(trace);
+
+            Option checkpointDir = new Option(null, "checkpoint-dir", true, "Save each set's eviction progress (partition cursors, last histogram) in this directory after every pass and resume from it on restart");
+            checkpointDir.setRequired(false);
+            options.addOption(checkpointDir);
+
+            Option ttlSample = new Option(null, "ttl-sample", true, "Sample about this many records of the TTL histogram bucket a pass ends in (sampled partition scans) for a watermark inside it, so one pass removes the goal from the oldest records (default 0, whole buckets; try " + TtlEstimator.DEFAULT_TARGET_SAMPLES + ")");
+            ttlSample.setRequired(false);
+            options.addOption(ttlSample);
+
+            Option virtual = new Option(null, "virtual-threads", false, "Run every blocking store call (load generator threads, bulk loader, eviction scans, info requests) on virtual threads, so -z can go to 100000 and more logical clients. Needs Java 21 or later at runtime, platform threads otherwise");
+            virtual.setRequired(false);
+            options.addOption(virtual);
+
+            Option store = new Option("s", "store", true, "Store to run against: aerospike (server on 127.0.0.1:4000) or memory (in process simulation)");
+            store.setRequired(false);
+            options.addOption(store);
+
             CommandLineParser parser = new DefaultParser();
             HelpFormatter formatter = new HelpFormatter();
             CommandLine cmd = null;
@@ -102,8 +298,79 @@ public class Main {
 
             int threadCount = cmd != null ? Integer.parseInt(cmd.getOptionValue("threads", String.valueOf(DEFAULT_NUMBER_OF_THREADS))) : DEFAULT_NUMBER_OF_THREADS;
             int operationsPerThreadCount = cmd != null ? Integer.parseInt(cmd.getOptionValue("operations", String.valueOf(DEFAULT_NUMBER_OF_OPERATIONS_PER_THREAD))) : DEFAULT_NUMBER_OF_OPERATIONS_PER_THREAD;
+            // Open loop load: by default match the old one operation per second per thread for -c seconds
+            long targetRate = cmd != null ? Long.parseLong(cmd.getOptionValue("rate", String.valueOf(threadCount))) : threadCount;
+            int durationSeconds = cmd != null ? Integer.parseInt(cmd.getOptionValue("duration", String.valueOf(operationsPerThreadCount))) : operationsPerThreadCount;
+            String operationMix = cmd != null ? cmd.getOptionValue("mix", DEFAULT_OPERATION_MIX) : DEFAULT_OPERATION_MIX;
+            String keyDistribution = cmd != null ? cmd.getOptionValue("keys", DEFAULT_KEY_DISTRIBUTION) : DEFAULT_KEY_DISTRIBUTION;
+            int reportIntervalSeconds = cmd != null ? Integer.parseInt(cmd.getOptionValue("report-interval", String.valueOf(DEFAULT_REPORT_INTERVAL_SECONDS))) : DEFAULT_REPORT_INTERVAL_SECONDS;
+            ManageMaxObjectsInLRUCachePolicy.EvictionMode policyEvictionMode = ManageMaxObjectsInLRUCachePolicy.EvictionMode.parse(cmd != null ? cmd.getOptionValue("eviction", DEFAULT_EVICTION_MODE) : DEFAULT_EVICTION_MODE);
+
+            String controllerName = cmd != null ? cmd.getOptionValue("controller", DEFAULT_CONTROLLER) : DEFAULT_CONTROLLER;
+            long maxDeletesPerSecond = cmd != null ? Long.parseLong(cmd.getOptionValue("max-deletes", String.valueOf(DEFAULT_MAX_DELETES_PER_SECOND))) : DEFAULT_MAX_DELETES_PER_SECOND;
+            EvictionController evictionController = "watermark".equals(controllerName)
+                    ? new WatermarkEvictionController(POLICY_CONFIG_MAX_OBJECTS_GOAL, (long) (POLICY_CONFIG_MAX_OBJECTS_GOAL * POLICY_CONFIG_LOW_WATERMARK_RATIO), POLICY_CONFIG_MIN_CHECK_FREQUENCY, POLICY_CONFIG_MAX_CHECK_FREQUENCY, maxDeletesPerSecond)
+                    : new FixedEvictionController(POLICY_CONFIG_MAX_OBJECTS_GOAL, POLICY_CONFIG_MAX_OBJECTS_GOAL_CHECK_FREQUENCY);
+            int evictionWorkerCount = cmd != null ? Integer.parseInt(cmd.getOptionValue("eviction-workers", String.valueOf(PartitionScanEvictor.DEFAULT_WORKERS))) : PartitionScanEvictor.DEFAULT_WORKERS;
+            long goalBytes = cmd != null ? Long.parseLong(cmd.getOptionValue("max-bytes", String.valueOf(DEFAULT_MAX_BYTES_GOAL))) : DEFAULT_MAX_BYTES_GOAL;
+            List<EvictionManager.SetConfig> managedSetConfigs = cmd != null && cmd.hasOption("sets") ? EvictionManager.SetConfig.parse(cmd.getOptionValue("sets")) : null;
+            TtlTiers ttlTiers = cmd != null && cmd.hasOption("tiers") ? TtlTiers.parse(cmd.getOptionValue("tiers")) : null;
+            boolean printState = cmd == null || !cmd.hasOption("quiet");
+            Path checkpointDirectory = cmd != null && cmd.hasOption("checkpoint-dir") ? Paths.get(cmd.getOptionValue("checkpoint-dir")) : null;
+            int ttlSampleTarget = cmd != null ? Integer.parseInt(cmd.getOptionValue("ttl-sample", "0")) : 0;
+            boolean virtualThreads = Threads.useVirtual(cmd != null && cmd.hasOption("virtual-threads"));
+
+            Metrics.GLOBAL.registerMBean();
+            if (cmd != null && cmd.hasOption("metrics-port")) {
+                metricsServer = Metrics.GLOBAL.startHttpServer(Integer.parseInt(cmd.getOptionValue("metrics-port")));
+                System.out.println("Metrics on http://127.0.0.1:" + metricsServer.getAddress().getPort() + "/metrics");
+            }
+            if (cmd != null && cmd.hasOption("trace")) {
+                OperationTracer.GLOBAL.configure(cmd.getOptionValue("trace"));
+                if (metricsServer != null) {
+                    OperationTracer.GLOBAL.serveOn(metricsServer);
+                    System.out.println("Trace on http://127.0.0.1:" + metricsServer.getAddress().getPort() + "/trace?seconds=60");
+                } else {
+                    System.out.println("WARNING: --trace records without --metrics-port but can't be dumped");
+                }
+            }
+
+            // Records of a long tier outlive the namespace TTL
+            int longestTTL = ttlTiers != null ? Math.max(AEROSPIKE_CONF_LRU_TTL, ttlTiers.getMaxTTL()) : AEROSPIKE_CONF_LRU_TTL;
+
+            if ("memory".equals(cmd != null ? cmd.getOptionValue("store", DEFAULT_STORE) : DEFAULT_STORE)) {
+                inMemoryStore = new InMemoryCacheStore(IN_MEMORY_STORE_NODE_COUNT, AEROSPIKE_CONF_LRU_TTL).startNsup(AEROSPIKE_CONF_NSUP_PERIOD * 1000L);
+            }
+
+            if ("async".equals(cmd != null ? cmd.getOptionValue("client-mode", DEFAULT_CLIENT_MODE) : DEFAULT_CLIENT_MODE)) {
+                asyncMaxInFlight = cmd != null ? Integer.parseInt(cmd.getOptionValue("max-in-flight", String.valueOf(DEFAULT_MAX_IN_FLIGHT))) : DEFAULT_MAX_IN_FLIGHT;
+                int eventLoopCountValue = cmd != null ? Integer.parseInt(cmd.getOptionValue("event-loops", String.valueOf(Runtime.getRuntime().availableProcessors()))) : Runtime.getRuntime().availableProcessors();
+                if (inMemoryStore == null) {
+                    // The in memory store completes async calls on the calling thread, no event loops needed
+                    eventLoops = createEventLoops(eventLoopCountValue, asyncMaxInFlight);
+                }
+            }
 
-            client = createAerospikeClient();
+            int maxConnsPerNode = cmd != null ? Integer.parseInt(cmd.getOptionValue("max-conns", String.valueOf(DEFAULT_MAX_CONNS_PER_NODE))) : DEFAULT_MAX_CONNS_PER_NODE;
+            int timeoutMillis = cmd != null ? Integer.parseInt(cmd.getOptionValue("timeout", String.valueOf(DEFAULT_TIMEOUT_MILLIS))) : DEFAULT_TIMEOUT_MILLIS;
+            int tendIntervalMillis = cmd != null ? Integer.parseInt(cmd.getOptionValue("tend-interval", String.valueOf(DEFAULT_TEND_INTERVAL_MILLIS))) : DEFAULT_TEND_INTERVAL_MILLIS;
+
+            client = createStore(maxConnsPerNode, timeoutMillis, tendIntervalMillis);
+            if (policyEvictionMode == ManageMaxObjectsInLRUCachePolicy.EvictionMode.LAST_ACCESS_QUERY_DELETE) {
+                // Every write and keep alive that reaches the store stamps the bin eviction queries
+                client = new LastAccessCacheStore(client);
+            }
+            if (OperationTracer.GLOBAL.isEnabled()) {
+                // Under the near cache: its hits never reach the store
+                client = new TracingCacheStore(client, OperationTracer.GLOBAL);
+            }
+
+            // Everything goes through the near cache, so the eviction passes' deletes drop its entries too
+            long nearCacheBytes = cmd != null ? Long.parseLong(cmd.getOptionValue("near-cache", String.valueOf(DEFAULT_NEAR_CACHE_BYTES))) : DEFAULT_NEAR_CACHE_BYTES;
+            if (nearCacheBytes > 0) {
+                double nearCacheTouchFraction = cmd != null ? Double.parseDouble(cmd.getOptionValue("touch-fraction", String.valueOf(NearCacheStore.DEFAULT_TOUCH_FRACTION))) : NearCacheStore.DEFAULT_TOUCH_FRACTION;
+                client = new NearCacheStore(client, nearCacheBytes, nearCacheTouchFraction);
+            }
 
             ////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             // Verify: empty cache to start off with
@@ -119,56 +386,94 @@ public class Main {
             System.out.println("\nCreating random records to test in LRU cache ... ");
 
             // Load up and initially large volume of objects
-            RandomObjectGeneratorPolicy.RandomObjectGenerator.generate(client, TEST_NAMESPACE_NAME, TEST_SET_NAME, TEST_BIN_NAME, AEROSPIKE_CONF_LRU_TTL, TEST_INITIAL_DATA_SET_SIZE);
+            BulkLoader.Config bulkLoadConfig = BulkLoader.Config.parse(cmd != null ? cmd.getOptionValue("bulk-load", "") : "", TEST_INITIAL_DATA_SET_SIZE, asyncMaxInFlight, AEROSPIKE_CONF_LRU_TTL);
+            System.out.println("Bulk load: " + bulkLoadConfig);
+            BulkLoader bulkLoader = new BulkLoader(client, TEST_NAMESPACE_NAME, TEST_SET_NAME, TEST_BIN_NAME, bulkLoadConfig).withTiers(ttlTiers);
+            bulkLoader.load(null);
 
             ////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             // Run test
             ////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-            System.out.println("\nRunning tests: threads=" + threadCount + ", operations per thread=" + operationsPerThreadCount + ", ttl=" + AEROSPIKE_CONF_LRU_TTL + " seconds ... ");
+            System.out.println("\nRunning tests: threads=" + threadCount + ", rate=" + targetRate + " ops/s, duration=" + durationSeconds + "s, mix=" + operationMix + ", keys=" + keyDistribution + ", ttl=" + (ttlTiers != null ? ttlTiers : AEROSPIKE_CONF_LRU_TTL + " seconds") + ", eviction=" + policyEvictionMode + (asyncMaxInFlight > 0 ? ", async max in flight=" + asyncMaxInFlight + (eventLoops != null ? " event loops=" + eventLoops.getSize() : "") : ", sync") + (virtualThreads ? " on virtual threads" : "") + " ... ");
 
             ////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             // Monitor number of objects in the various histogram TTL buckets
             ////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-            AtomicBoolean cancelMonitor = new AtomicBoolean();
-            new Thread(new ManageMaxObjectsInLRUCachePolicy(cancelMonitor, createAerospikeClient(), TEST_NAMESPACE_NAME, TEST_SET_NAME, AEROSPIKE_CONF_LRU_TTL, POLICY_CONFIG_MAX_OBJECTS_GOAL, POLICY_CONFIG_MAX_OBJECTS_GOAL_CHECK_FREQUENCY)).start();
+            if (managedSetConfigs == null) {
+                ManageMaxObjectsInLRUCachePolicy policy = new ManageMaxObjectsInLRUCachePolicy(cancelMonitor, client, TEST_NAMESPACE_NAME, TEST_SET_NAME, AEROSPIKE_CONF_LRU_TTL, evictionController, policyEvictionMode, POLICY_CONFIG_MIN_NODE_COVERAGE, evictionWorkerCount);
+                policy.setGoalBytes(goalBytes);
+                policy.setTiers(ttlTiers);
+                policy.setPrintState(printState);
+                policy.setTtlSampling(ttlSampleTarget);
+                if (checkpointDirectory != null) {
+                    policy.setCheckpoint(new EvictionCheckpoint(checkpointDirectory, TEST_NAMESPACE_NAME, TEST_SET_NAME));
+                }
+                backgroundThreads.add(Threads.start("lru-policy", policy));
+            } else {
+                // One controller per set, the global budget limits deletes so the controllers don't
+                EvictionManager manager = new EvictionManager(cancelMonitor, client, managedSetConfigs, AEROSPIKE_CONF_LRU_TTL, setConfig -> "watermark".equals(controllerName)
+                        ? new WatermarkEvictionController(setConfig.goalObjects, (long) (setConfig.goalObjects * POLICY_CONFIG_LOW_WATERMARK_RATIO), POLICY_CONFIG_MIN_CHECK_FREQUENCY, POLICY_CONFIG_MAX_CHECK_FREQUENCY, 0)
+                        : new FixedEvictionController(setConfig.goalObjects, POLICY_CONFIG_MAX_OBJECTS_GOAL_CHECK_FREQUENCY),
+                        policyEvictionMode, POLICY_CONFIG_EVICTION_PASSES, evictionWorkerCount, maxDeletesPerSecond).setTiers(ttlTiers).setPrintState(printState).setTtlSampling(ttlSampleTarget);
+                if (checkpointDirectory != null) {
+                    manager.setCheckpointDirectory(checkpointDirectory);
+                }
+                backgroundThreads.add(Threads.start("eviction-manager", manager));
+            }
 
             // Randomly add new objects so we can test max LRU object size
-            AtomicBoolean cancelGenerator = new AtomicBoolean();
-            new Thread(new RandomObjectGeneratorPolicy(cancelGenerator, createAerospikeClient(), TEST_NAMESPACE_NAME, TEST_SET_NAME, TEST_BIN_NAME, AEROSPIKE_CONF_LRU_TTL, TEST_GROWTH_DATA_SET_SIZE)).start();
+            List<RandomObjectGeneratorPolicy> generators = new ArrayList<>();
+            generators.add(new RandomObjectGeneratorPolicy(cancelGenerator, client, TEST_NAMESPACE_NAME, TEST_SET_NAME, TEST_BIN_NAME, AEROSPIKE_CONF_LRU_TTL, TEST_GROWTH_DATA_SET_SIZE));
+            if (managedSetConfigs != null) {
+                for (EvictionManager.SetConfig setConfig : managedSetConfigs) {
+                    if (setConfig.namespace.equals(TEST_NAMESPACE_NAME) && setConfig.setName.equals(TEST_SET_NAME)) continue;
+                    generators.add(new RandomObjectGeneratorPolicy(cancelGenerator, client, setConfig.namespace, setConfig.setName, TEST_BIN_NAME, AEROSPIKE_CONF_LRU_TTL, TEST_GROWTH_DATA_SET_SIZE));
+                }
+            }
+            for (RandomObjectGeneratorPolicy generator : generators) {
+                generator.setTiers(ttlTiers);
+                backgroundThreads.add(Threads.start("object-generator", generator));
+            }
 
             ////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             // Launch object creators with varying random TTL
             ////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             // This is for internal tracking for the test
-            // - We will hand over this tracking information to threads for them to choose a random key they wish to
-            //   keep alive. Threads may be choosing the same key, which is fine since this would happen in real life.
+            // - We will hand over this tracking information to the load generator for its threads to choose a random key
+            //   they wish to keep alive. Threads may be choosing the same key, which is fine since this would happen in
+            //   real life.
             // - Everytime a key is used, the key's tracking counter will increase
             // - At the end of the test, we check if the last used keys from the cache are still in the cache. Also, if
             //   the keys that weren't used have expired due to the automatic expiry of records by Aerospike server (NSUP)
             ArrayList<CacheItemUsageTracking> cacheItemUsageTrackers = new ArrayList<>();
 
-            ExecutorService es = Executors.newCachedThreadPool();
+            // Keys the load generator picks from: the tracked records first (the hottest keys under zipf and hotspot),
+            // followed by the initial records
+            List<Key> loadKeys = new ArrayList<>();
 
             int n = threadCount;
             while (n-- > 0) {
 
                 // Randomly generate a record for each worker thread to keep alive
-                List<String> generatedRecordIds = RandomObjectGeneratorPolicy.RandomObjectGenerator.generate(client, TEST_NAMESPACE_NAME, TEST_SET_NAME, TEST_BIN_NAME, AEROSPIKE_CONF_LRU_TTL, 1);
+                List<String> generatedRecordIds = RandomObjectGeneratorPolicy.RandomObjectGenerator.generate(client, TEST_NAMESPACE_NAME, TEST_SET_NAME, TEST_BIN_NAME, AEROSPIKE_CONF_LRU_TTL, 1, 0, ttlTiers);
                 String recordId = generatedRecordIds.get(0);
                 Key key = new Key(TEST_NAMESPACE_NAME, TEST_SET_NAME, recordId);
-                CacheItemUsageTracking randomCachedItemTracker = new CacheItemUsageTracking(key, recordId);
                 cacheItemUsageTrackers.add(new CacheItemUsageTracking(key, recordId));
-
-                es.execute(new BenchmarkWorker(randomCachedItemTracker, operationsPerThreadCount, AEROSPIKE_CONF_LRU_TTL, random));
+                loadKeys.add(key);
+            }
+            // Rebuilt from the loader's id scheme rather than kept during the load
+            for (long i = 0; i < Math.min(bulkLoadConfig.count, TEST_MAX_LOAD_KEYS); i++) {
+                loadKeys.add(new Key(TEST_NAMESPACE_NAME, TEST_SET_NAME, bulkLoader.recordId(i)));
             }
 
-            es.shutdown();
+            int keepAliveBatchSize = cmd != null ? Integer.parseInt(cmd.getOptionValue("keep-alive-batch", "0")) : 0;
+            long keepAliveWindowMillis = cmd != null ? Long.parseLong(cmd.getOptionValue("keep-alive-window", String.valueOf(KeepAlivePipeline.DEFAULT_WINDOW_MILLIS))) : KeepAlivePipeline.DEFAULT_WINDOW_MILLIS;
+            KeepAlivePipeline keepAlivePipeline = keepAliveBatchSize > 0 ? new KeepAlivePipeline(client, keepAliveBatchSize, keepAliveWindowMillis, KeepAlivePipeline.DEFAULT_MAX_IN_FLIGHT, Operation.touch(), Operation.get()) : null;
 
-            // Wait for termination
-            try {
-                boolean finished = es.awaitTermination(1, TimeUnit.MINUTES);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+            new LoadGenerator(client, TEST_NAMESPACE_NAME, TEST_SET_NAME, TEST_BIN_NAME, AEROSPIKE_CONF_LRU_TTL, loadKeys.toArray(new Key[0]), threadCount, targetRate, durationSeconds * 1000L, reportIntervalSeconds * 1000L,
+                    LoadGenerator.Mix.parse(operationMix), LoadGenerator.KeyDistribution.parse(keyDistribution, loadKeys.size()), asyncMaxInFlight).keepAliveThrough(keepAlivePipeline).withTiers(ttlTiers).run();
+            if (keepAlivePipeline != null) {
+                keepAlivePipeline.close();
             }
 
             // Stop generator and monitor
@@ -192,7 +497,6 @@ public class Main {
             System.out.print("Verifying: expected records have been kept alive... ");
 
             boolean failed = false;
-            client = createAerospikeClient();
             for (CacheItemUsageTracking cachedItem : cacheItemUsageTrackers) {
                 // Fetch the record
                 Record r = client.get(null, cachedItem.getKey());
@@ -214,10 +518,9 @@ public class Main {
             System.out.print("Verifying: wait for just after TTL, all cache records should have disappeared ... ");
 
             // Wait for Aerospike server to sweep and clear out records
-            Thread.sleep(1000 * (AEROSPIKE_CONF_LRU_TTL + AEROSPIKE_CONF_NSUP_PERIOD * 2));
+            Thread.sleep(1000 * (longestTTL + AEROSPIKE_CONF_NSUP_PERIOD * 2));
 
             failed = false;
-            client = createAerospikeClient();
             for (CacheItemUsageTracking cachedItem : cacheItemUsageTrackers) {
                 // Fetch the record
                 Record r = client.get(null, cachedItem.getKey());
@@ -246,100 +549,85 @@ public class Main {
             ex.printStackTrace();
         }
 
+        // The policies share the client, stop them before closing it
+        cancelGenerator.set(true);
+        cancelMonitor.set(true);
+        joinAll(backgroundThreads, BACKGROUND_JOIN_MILLIS);
+
         if (client != null) {
             client.close();
         }
+        if (eventLoops != null) {
+            eventLoops.close();
+        }
+        if (metricsServer != null) {
+            metricsServer.stop(0);
+        }
     }
 
-
-    private static long getObjectCountInSet(AerospikeClient client, String namespaceName, String setName) {
-        // Counting records in a set using Info
-        long objectCount = 0;
-        Node[] nodes = client.getNodes();
-        for (Node node : nodes) {
-            // Invoke an info call to each node in the cluster and sum the objectCount value
-            // The infoString will contain a result like this:
-            // objects=0:tombstones=0:memory_data_bytes=0:device_data_bytes=0:truncate_lut=0:stop-writes-count=0:disable-eviction=false;
-            String infoString = Info.request(node, "sets/" + namespaceName + "/" + setName);
-            if (infoString.equals("") || infoString.equals("ns_type=unknown")) continue;
-
-            String objectsString = infoString.substring(infoString.indexOf("=") + 1, infoString.indexOf(":"));
-            objectCount += Long.parseLong(objectsString);
+    // Wait for cancelled threads to finish, all within timeoutMillis. Daemon threads still running are left behind
+    private static void joinAll(List<Thread> threads, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            for (Thread thread : threads) {
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+                if (thread.isAlive()) {
+                    System.out.println("WARNING: " + thread.getName() + " still running after " + timeoutMillis + "ms, closing the client under it");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-
-        return objectCount;
     }
 
 
-    static class BenchmarkWorker implements Runnable {
-        private CacheItemUsageTracking cachedItemTracker;
-        private int operationsPerThreadCount;
-        private int lruTTL_sec;
-        private Random random;
-
-        public BenchmarkWorker(CacheItemUsageTracking cachedItemTracker, int operationsPerThreadCount, int ttl_sec, Random random) {
-            this.cachedItemTracker = cachedItemTracker;
-            this.operationsPerThreadCount = operationsPerThreadCount;
-            this.lruTTL_sec = ttl_sec;
-            this.random = random;
+    static long getObjectCountInSet(CacheStore store, String namespaceName, String setName) {
+        SetObjectCount count = countObjectsInSet(store, namespaceName, setName);
+        if (!count.isComplete()) {
+            System.out.println("WARNING: Only " + count.respondedNodes + "/" + count.totalNodes + " nodes reported their object count");
         }
+        return count.objects;
+    }
 
-        public void run() {
-
-            Key testKey = cachedItemTracker.getKey();
-
-            AerospikeClient client = null;
-
-            try {
-
-                // Connect to the clusterbbbbbbb
-                client = createAerospikeClient();
-                WritePolicy writePolicy = new WritePolicy();
-                writePolicy.expiration = AEROSPIKE_CONF_LRU_TTL;
-
-                int n = this.operationsPerThreadCount;
-                while (n-- > 0) {
-
-                    ////////////////////////////////////////////////////////////////////////////////////////////////////
-                    // User's code - to keep a cached item alive
-
-                    // Reset the cached items TTL and fetch the record - this is done atomically on the Aerospike
-                    // server where record exists (single network call)
-                    Operation[] fetchCachedItemOperation = new Operation[]{
-                            Operation.touch(),
-                            Operation.get()
-                    };
-
-                    Record r = client.operate(writePolicy, testKey, fetchCachedItemOperation);
-                    if (r == null) {
-                        throw new Exception("Record should still exist: " + this.cachedItemTracker.getRecordId());
-                    }
+    static SetObjectCount countObjectsInSet(CacheStore store, String namespaceName, String setName) {
+        // Counting records in a set using Info, every node is asked at the same time
+        NodeInfoCollector.Responses<String> responses = new NodeInfoCollector(store).request("sets/" + namespaceName + "/" + setName);
 
-                    //System.out.println("DEBUG: Kept record alive key=" + testKey + ", TTL=" + r.getTimeToLive());
+        long objectCount = 0;
+        int respondedNodes = 0;
+        for (int i = 0; i < responses.getNodeCount(); i++) {
+            // Sum the objectCount value of each node
+            // The infoString will contain a result like this:
+            // objects=0:tombstones=0:memory_data_bytes=0:device_data_bytes=0:truncate_lut=0:stop-writes-count=0:disable-eviction=false;
+            String infoString = responses.get(i);
+            if (infoString == null) {
+                System.out.println("sets/" + namespaceName + "/" + setName + " on " + responses.nodeNames[i] + " > ERROR: " + responses.getError(i).getMessage());
+                continue;
+            }
 
-                    ////////////////////////////////////////////////////////////////////////////////////////////////////
+            respondedNodes++;
+            if (infoString.equals("") || infoString.equals("ns_type=unknown")) continue;
 
-                    // This is for testing only
-                    this.cachedItemTracker.hit();
+            objectCount += InfoParser.longValue(infoString, "objects", 0);
+        }
 
-                    // Show use being busy
-                    //if (n % 20 == 0) System.out.println(".");
-                    //System.out.print(".");
+        return new SetObjectCount(objectCount, respondedNodes, responses.getNodeCount());
+    }
 
-                    // Keep the cache item alive, use time (seconds) between 0 and (TTL / 2) - just before expiry
-//                    int randomTime_sec = random.nextInt(lruTTL_sec );
-                    Thread.sleep(1000);
+    // Objects in a set summed over the nodes that answered
+    static class SetObjectCount {
+        final long objects;
+        final int respondedNodes;
+        final int totalNodes;
 
-                }
-            } catch (Exception e) {
-                System.out.println("ERROR: Problem record with digest=" + ByteToHex.convert(testKey.digest) + ": " + e.getMessage());
-                e.printStackTrace();
-            } finally {
+        SetObjectCount(long objects, int respondedNodes, int totalNodes) {
+            this.objects = objects;
+            this.respondedNodes = respondedNodes;
+            this.totalNodes = totalNodes;
+        }
 
-                if (client != null) {
-                    client.close();
-                }
-            }
+        boolean isComplete() {
+            return respondedNodes == totalNodes;
         }
     }
 }
@@ -4,89 +4,479 @@ import com.aerospike.client.*;
 import com.aerospike.client.cluster.Node;
 import com.aerospike.client.policy.Priority;
 import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
 
+import java.io.IOException;
 import java.security.InvalidParameterException;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 class ManageMaxObjectsInLRUCachePolicy implements Runnable {
-    AerospikeClient client;
+    static final double DEFAULT_MIN_NODE_COVERAGE = 0.5;
+
+    // Exported as lru.histogram.ttl, a few gauges sum up a histogram of up to evict-hist-buckets buckets
+    static final double[] OLDEST_SHARES = {0.01, 0.1, 0.5, 0.9, 0.99};
+
+    CacheStore store;
     private AtomicBoolean cancelled;
     private String namespace;
     private String setName;
     private int configTTL;
-    private long goalTotalMaxObjects;
-    private int checkFrequency;
+    private EvictionController controller;
+    private EvictionMode evictionMode;
+
+    // The controller's goal as configured, and an optional goal on the set's data size (0 for none). With a bytes goal
+    // the controller keeps the set under whichever goal is tighter at the set's current average object size
+    private long goalObjects;
+    private long goalBytes;
+
+    // Key classes with their own TTLs, evicted lowest value tier first. null when every record has the same TTL
+    private TtlTiers tiers;
+
+    // Skip eviction when fewer than this fraction of the nodes reported their histogram, the totals would be too low
+    private double minNodeCoverage;
+
+    // Workers for PARTITION_SCAN_DELETE, the evictor keeps its partition cursors from one pass to the next
+    private int evictionWorkers;
+    private PartitionScanEvictor partitionScanEvictor;
+    private ExecutorService partitionScanWorkers;
+
+    // Refines the watermark inside the histogram's bucket from a sampled scan, null to evict by whole buckets
+    private TtlEstimator ttlEstimator;
+
+    // For LAST_ACCESS_QUERY_DELETE, keeps the last access window the next pass starts from
+    private LastAccessEvictor lastAccessEvictor;
+
+    // Refreshed in place on every pass
+    private ObjectsPerTTLHistogramState state;
+
+    // The server rebuilds its histograms every nsup period, passes in between see the same counts. Only act on a new
+    // histogram (deletes from the last pass aren't in the old one) unless it hasn't changed for this long
+    private static final long UNCHANGED_HISTOGRAM_MAX_MILLIS = 5000;
+    private long lastDecisionMillis;
+
+    // Print the histogram and state on every check, off when the metrics are watched instead
+    private boolean printState = true;
+
+    // Progress saved after every pass, null for none. Restored cursors wait until the partition scan evictor exists,
+    // the restored histogram until the first decision
+    private EvictionCheckpoint checkpoint;
+    private EvictionCheckpoint.State restoredCursors;
+    private EvictionCheckpoint.State restoredHistogram;
+    private long totalPasses;
+    private long totalRequested;
+    private long totalRemoved;
+
+    // Tagged with namespace/set, see registerMetrics
+    private Metrics.Counter passCount;
+    private Metrics.Counter requestedCount;
+    private Metrics.Counter removedCount;
+    private Metrics.Timer passTimer;
+
+    public ManageMaxObjectsInLRUCachePolicy(AtomicBoolean cancelled, CacheStore store, String namespace, String setName, int configTTL, long goalTotalMaxObjects, int checkFrequency) {
+        this(cancelled, store, namespace, setName, configTTL, goalTotalMaxObjects, checkFrequency, EvictionMode.SCAN_AND_DELETE);
+    }
+
+    public ManageMaxObjectsInLRUCachePolicy(AtomicBoolean cancelled, CacheStore store, String namespace, String setName, int configTTL, long goalTotalMaxObjects, int checkFrequency, EvictionMode evictionMode) {
+        this(cancelled, store, namespace, setName, configTTL, goalTotalMaxObjects, checkFrequency, evictionMode, DEFAULT_MIN_NODE_COVERAGE);
+    }
+
+    public ManageMaxObjectsInLRUCachePolicy(AtomicBoolean cancelled, CacheStore store, String namespace, String setName, int configTTL, long goalTotalMaxObjects, int checkFrequency, EvictionMode evictionMode, double minNodeCoverage) {
+        this(cancelled, store, namespace, setName, configTTL, goalTotalMaxObjects, checkFrequency, evictionMode, minNodeCoverage, PartitionScanEvictor.DEFAULT_WORKERS);
+    }
+
+    public ManageMaxObjectsInLRUCachePolicy(AtomicBoolean cancelled, CacheStore store, String namespace, String setName, int configTTL, long goalTotalMaxObjects, int checkFrequency, EvictionMode evictionMode, double minNodeCoverage, int evictionWorkers) {
+        this(cancelled, store, namespace, setName, configTTL, new FixedEvictionController(goalTotalMaxObjects, checkFrequency), evictionMode, minNodeCoverage, evictionWorkers);
+    }
 
-    public ManageMaxObjectsInLRUCachePolicy(AtomicBoolean cancelled, AerospikeClient client, String namespace, String setName, int configTTL, long goalTotalMaxObjects, int checkFrequency) {
-        this.client = client;
+    public ManageMaxObjectsInLRUCachePolicy(AtomicBoolean cancelled, CacheStore store, String namespace, String setName, int configTTL, EvictionController controller, EvictionMode evictionMode, double minNodeCoverage, int evictionWorkers) {
+        this.store = store;
         this.cancelled = cancelled;
         this.namespace = namespace;
         this.setName = setName;
         this.configTTL = configTTL;
-        this.goalTotalMaxObjects = goalTotalMaxObjects;
-        this.checkFrequency = checkFrequency;
+        this.controller = controller;
+        this.goalObjects = controller.getGoalObjects();
+        this.evictionMode = evictionMode;
+        this.minNodeCoverage = minNodeCoverage;
+        this.evictionWorkers = evictionWorkers;
+        registerMetrics();
+    }
+
+    private void registerMetrics() {
+        String set = namespace + "/" + setName;
+        Metrics metrics = Metrics.GLOBAL;
+        metrics.gauge("lru.objects", () -> state == null ? 0 : state.totalObjects, "set", set);
+        metrics.gauge("lru.bytes", () -> state == null ? 0 : state.totalBytes, "set", set);
+        metrics.gauge("lru.goal.objects", () -> controller.getGoalObjects(), "set", set);
+        // What eviction still has to catch up on, alert when it stays above 0
+        metrics.gauge("lru.objects.over.goal", () -> state == null ? 0 : Math.max(0, state.totalObjects - controller.getGoalObjects()), "set", set);
+        metrics.gauge("lru.nodes.responded", () -> state == null ? 0 : state.respondedNodes, "set", set);
+        passCount = metrics.counter("lru.eviction.passes", "set", set);
+        requestedCount = metrics.counter("lru.eviction.requested", "set", set);
+        removedCount = metrics.counter("lru.eviction.removed", "set", set);
+        passTimer = metrics.timer("lru.eviction.pass", "set", set);
+        metrics.gauge("lru.histogram.bucket.width", () -> state == null ? 0 : state.durationPerBucket, "set", set);
+        // The TTL the oldest share of the objects live at most, what the next passes go after
+        for (double share : OLDEST_SHARES) {
+            metrics.gauge("lru.histogram.ttl", () -> state == null ? 0 : state.calculateTTLOfOldest(share), "set", set, "oldest", String.valueOf(share));
+        }
     }
 
     public void run() {
 
         try {
-            // Periodically show number objects in the various histogram TTL buckets
-            while (!cancelled.get()) {
-
-                // State Space: get the state of the namespace and set
-                ObjectsPerTTLHistogramState state = ObjectsPerTTLHistogramState.fetch(client, namespace, setName, configTTL);
-
-                System.out.println("\n" + state);
-
-                // Calculate the eviction behavior's using a reward function
-                if (!ManageMaxObjectsInLRUCacheRewardFunction.is_satisfied(state, goalTotalMaxObjects)) {
-                    // Not satisfied, so run our policy again with the following parameters
-                    long subGoalObjectsToRemove = state.totalObjects - goalTotalMaxObjects;
-
-                    // Find the TTL bucket with some objects to remove, start from oldest
-                    int candidateBucketIndex = -1;
-                    long candidateBucketCount = -1;
-                    for (int bucketIndex = 0; bucketIndex < state.objectsPerBucket.length; bucketIndex++) {
-                        long objectCount = state.objectsPerBucket[bucketIndex];
-                        if (objectCount > 0) {
-                            candidateBucketIndex = bucketIndex;
-                            candidateBucketCount = objectCount;
-                            break;
-                        }
-                    }
-                    if (candidateBucketIndex == -1) {
-                        System.out.println("WARNING: No candidate buckets found to remove from");
-                    } else {
+            // Periodically show number objects in the various histogram TTL buckets, as often as the controller asks.
+            // A failed check is retried after a backoff instead of ending the loop
+            new EvictionSupervisor(namespace + "/" + setName, cancelled).run(this::enforce);
+
+        } finally {
+            close();
+        }
 
-                        // What's the TTL low watermark we need to look above from
-                        // - TTL bucket sizes can't be fractional, they need to be 1s min. Consider when our configTTL
-                        //   is less than the number of buckets
-                        long candidateBucketTTL = state.calculateBucketTTL(candidateBucketIndex);
+        // The store is shared, whoever created it closes it
+    }
 
-                        // How many to remove this bucket?
-                        // - Consider that we may not have enough, we will get more on next iteration
-                        long candidateBucketRemoveCount = Math.min(subGoalObjectsToRemove, candidateBucketCount);
-                        System.out.println("LRU POLICY - State:\n  Total Objects:\t\t\t\t" + state.totalObjects + "\n  Goal Max Objects:\t\t\t\t" + goalTotalMaxObjects + "\n> Objects To Remove:\t\t\t" + subGoalObjectsToRemove + "\n\n> Candidate Bucket Index:\t\t" + candidateBucketIndex + "\n  Candidate Bucket TTL:\t\t\t" + candidateBucketTTL + "\n> Candidate Bucket Remove:\t\t" + candidateBucketRemoveCount + "/" + candidateBucketCount + "\n");
+    // One pass of the policy: fetch the state and evict from the oldest bucket when the controller asks for it. Returns
+    // the milliseconds until the next pass
+    long enforce() {
+        // State Space: get the state of the namespace and set
+        getState().refresh(store);
 
-                        ForceObjectEvictionPolicy.run(client, namespace, setName, candidateBucketTTL, candidateBucketRemoveCount);
-                    }
-                }
+        EvictionController.Decision decision = decide();
+        if (decision == null) {
+            return controller.getRetryMillis();
+        }
+
+        evict(decision.objectsToRemove);
+        return decision.nextCheckMillis;
+    }
 
-                // Run frequently
-                Thread.sleep(checkFrequency);
+    // Refreshed by enforce, or by whoever collects the histograms for several policies (see EvictionManager)
+    ObjectsPerTTLHistogramState getState() {
+        if (state == null) {
+            state = ObjectsPerTTLHistogramState.create(namespace, setName, configTTL);
+        }
+        return state;
+    }
+
+    EvictionController getController() {
+        return controller;
+    }
+
+    // Ask the controller about the refreshed state, null when the state can't be acted on
+    EvictionController.Decision decide() {
+        if (printState) {
+            System.out.println("\n" + namespace + "/" + setName + "\n" + state);
+        }
+
+        // Missing nodes make the cluster look smaller than it is, acting on a small part of it would evict from the
+        // wrong buckets
+        if (state.getCoverage() < minNodeCoverage) {
+            System.out.println("WARNING: Only " + state.respondedNodes + "/" + state.totalNodes + " nodes reported, skipping eviction");
+            return null;
+        }
+
+        if (goalBytes > 0) {
+            controller.setGoalObjects(calculateGoalObjects());
+        }
+
+        // The histogram the last run acted on, if nsup hasn't rebuilt it since its deletes aren't in it
+        boolean changed = state.isChanged();
+        if (restoredHistogram != null) {
+            changed = restoredHistogram.bucketWidth != state.durationPerBucket || !Arrays.equals(restoredHistogram.histogram, state.objectsPerBucket);
+            restoredHistogram = null;
+        }
+
+        long nowMillis = System.currentTimeMillis();
+        if (!changed && lastDecisionMillis > 0 && nowMillis - lastDecisionMillis < UNCHANGED_HISTOGRAM_MAX_MILLIS) {
+            return null;
+        }
+        lastDecisionMillis = nowMillis;
+
+        // Calculate the eviction behavior's using the controller
+        return controller.decide(state.totalObjects, nowMillis);
+    }
+
+    // The objects goal the bytes goal comes to at the set's average object size, the configured objects goal when that
+    // is lower or the average isn't known yet (empty set)
+    long calculateGoalObjects() {
+        double averageObjectBytes = state.getAverageObjectBytes();
+        if (goalBytes <= 0 || averageObjectBytes <= 0) return goalObjects;
+
+        return Math.min(goalObjects, (long) (goalBytes / averageObjectBytes));
+    }
+
+    // Remove up to subGoalObjectsToRemove objects starting from the oldest bucket, returns the number removed
+    long evict(long subGoalObjectsToRemove) {
+        if (ManageMaxObjectsInLRUCacheRewardFunction.is_satisfied(subGoalObjectsToRemove)) {
+            return 0;
+        }
+
+        long startNanos = System.nanoTime();
+        long removed = evictFromOldestBuckets(subGoalObjectsToRemove);
+        passTimer.recordSince(startNanos);
+        OperationTracer.GLOBAL.recordPass(namespace + "/" + setName, startNanos, removed);
+        totalPasses++;
+        totalRequested += subGoalObjectsToRemove;
+        totalRemoved += removed;
+        saveCheckpoint();
+        passCount.increment();
+        requestedCount.add(subGoalObjectsToRemove);
+        removedCount.add(removed);
+        return removed;
+    }
+
+    private long evictFromOldestBuckets(long subGoalObjectsToRemove) {
+        // Not satisfied, so run our policy again with the following parameters
+        // Find the TTL bucket with some objects to remove, start from oldest
+        int candidateBucketIndex = -1;
+        long candidateBucketCount = -1;
+        for (int bucketIndex = 0; bucketIndex < state.objectsPerBucket.length; bucketIndex++) {
+            long objectCount = state.objectsPerBucket[bucketIndex];
+            if (objectCount > 0) {
+                candidateBucketIndex = bucketIndex;
+                candidateBucketCount = objectCount;
+                break;
             }
+        }
+        if (candidateBucketIndex == -1) {
+            System.out.println("WARNING: No candidate buckets found to remove from");
+            return 0;
+        }
+        if (evictionMode == EvictionMode.LAST_ACCESS_QUERY_DELETE) {
+            return evictByLastAccess(subGoalObjectsToRemove);
+        }
+        if (tiers != null) {
+            return evictByTier(subGoalObjectsToRemove);
+        }
 
-        } catch (Exception e) {
-            // TODO:auto recovery after error
-            e.printStackTrace();
+        // What's the TTL low watermark we need to look above from
+        // - TTL bucket sizes can't be fractional, they need to be 1s min. Consider when our configTTL
+        //   is less than the number of buckets
+        long candidateBucketTTL = state.calculateBucketTTL(candidateBucketIndex);
 
-        } finally {
-            if (client != null) {
-                client.close();
+        // How many to remove this bucket?
+        // - Consider that we may not have enough, we will get more on next iteration
+        long candidateBucketRemoveCount = Math.min(subGoalObjectsToRemove, candidateBucketCount);
+
+        // The candidate index orders records itself, so take the whole goal in one pass from as many of the
+        // oldest buckets as it spans
+        if (evictionMode == EvictionMode.OLDEST_FIRST_DELETE) {
+            int lastBucketIndex = state.calculateBucketIndexCovering(subGoalObjectsToRemove);
+            candidateBucketTTL = state.calculateBucketTTL(lastBucketIndex + 1) - 1;
+            candidateBucketRemoveCount = subGoalObjectsToRemove;
+            candidateBucketCount = state.calculateObjectsUpToBucket(lastBucketIndex);
+        }
+
+        // A watermark inside the bucket the goal ends in, so one filtered pass takes the whole goal from the oldest
+        // records instead of a bucket at a time
+        TtlEstimator.Watermark watermark = null;
+        if (ttlEstimator != null && evictionMode != EvictionMode.OLDEST_FIRST_DELETE) {
+            watermark = ttlEstimator.estimate(store, namespace, setName, state.durationPerBucket, state.objectsPerBucket, subGoalObjectsToRemove);
+            candidateBucketTTL = watermark.ttl;
+            candidateBucketRemoveCount = subGoalObjectsToRemove;
+            candidateBucketCount = watermark.objects;
+        }
+        if (printState) System.out.println("LRU POLICY - State:\n  Total Objects:\t\t\t\t" + state.totalObjects + "\n  Goal Max Objects:\t\t\t\t" + controller.getGoalObjects() + (goalBytes > 0 ? "\n  Goal Max Bytes:\t\t\t\t" + goalBytes + " (" + state.totalBytes + " now, " + Math.round(state.getAverageObjectBytes()) + " per object)" : "") + "\n> Objects To Remove:\t\t\t" + subGoalObjectsToRemove + "\n\n> Candidate Bucket Index:\t\t" + candidateBucketIndex + "\n  Candidate Bucket TTL:\t\t\t" + candidateBucketTTL + "\n> Candidate Bucket Remove:\t\t" + candidateBucketRemoveCount + "/" + candidateBucketCount + (watermark != null ? "\n  Sampled Watermark:\t\t\t" + watermark : "") + "\n");
+
+        long removed = ForceObjectEvictionPolicy.run(store, namespace, setName, candidateBucketTTL, candidateBucketRemoveCount, candidateBucketCount, evictionMode, partitionScanEvictor());
+        controller.removed(removed);
+        return removed;
+    }
+
+    // The histogram doesn't tell tiers apart, so for each tier in eviction order take its records from the oldest
+    // buckets that could cover what's left to remove, then the rest of the tier if that wasn't enough. The buckets
+    // also count other tiers' records, later passes make up for what the estimate missed
+    private long evictByTier(long subGoalObjectsToRemove) {
+        if (printState) System.out.println("LRU POLICY - State:\n  Total Objects:\t\t\t\t" + state.totalObjects + "\n  Goal Max Objects:\t\t\t\t" + controller.getGoalObjects() + (goalBytes > 0 ? "\n  Goal Max Bytes:\t\t\t\t" + goalBytes + " (" + state.totalBytes + " now, " + Math.round(state.getAverageObjectBytes()) + " per object)" : "") + "\n> Objects To Remove:\t\t\t" + subGoalObjectsToRemove + "\n  Tiers:\t\t\t\t\t\t" + tiers + "\n");
+
+        PartitionScanEvictor evictor = partitionScanEvictor();
+        long removed = 0;
+        for (TtlTiers.Tier tier : tiers.getEvictionOrder()) {
+            long remaining = subGoalObjectsToRemove - removed;
+            if (remaining <= 0) break;
+
+            int lastBucketIndex = state.calculateBucketIndexCovering(remaining);
+            long candidateBucketTTL = Math.min(tier.ttl, state.calculateBucketTTL(lastBucketIndex + 1) - 1);
+            long candidateBucketCount = state.calculateObjectsUpToBucket(lastBucketIndex);
+            if (printState) System.out.println("> Tier " + tier.name + ": TTL <= " + candidateBucketTTL + ", remove " + remaining);
+            removed += ForceObjectEvictionPolicy.run(store, namespace, setName, tiers.filter(tier, candidateBucketTTL), remaining, candidateBucketCount, evictionMode, evictor);
+
+            remaining = subGoalObjectsToRemove - removed;
+            if (remaining > 0 && candidateBucketTTL < tier.ttl) {
+                if (printState) System.out.println("> Tier " + tier.name + ": TTL <= " + tier.ttl + ", remove " + remaining);
+                removed += ForceObjectEvictionPolicy.run(store, namespace, setName, tiers.filter(tier, tier.ttl), remaining, state.totalObjects, evictionMode, evictor);
+            }
+        }
+        controller.removed(removed);
+        return removed;
+    }
+
+    // The histogram only tells how many to remove, the last access bin picks which. With tiers, each tier in eviction
+    // order gives up its least recently used records until enough are removed
+    private long evictByLastAccess(long subGoalObjectsToRemove) {
+        if (printState) System.out.println("LRU POLICY - State:\n  Total Objects:\t\t\t\t" + state.totalObjects + "\n  Goal Max Objects:\t\t\t\t" + controller.getGoalObjects() + (goalBytes > 0 ? "\n  Goal Max Bytes:\t\t\t\t" + goalBytes + " (" + state.totalBytes + " now, " + Math.round(state.getAverageObjectBytes()) + " per object)" : "") + "\n> Objects To Remove:\t\t\t" + subGoalObjectsToRemove + (tiers != null ? "\n  Tiers:\t\t\t\t\t\t" + tiers : "") + "\n");
+
+        if (lastAccessEvictor == null) {
+            lastAccessEvictor = new LastAccessEvictor(tiers != null ? Math.max(configTTL, tiers.getMaxTTL()) : configTTL);
+        }
+
+        long removed = 0;
+        if (tiers == null) {
+            removed = ForceObjectEvictionPolicy.runLastAccess(store, namespace, setName, null, subGoalObjectsToRemove, lastAccessEvictor);
+        } else {
+            for (TtlTiers.Tier tier : tiers.getEvictionOrder()) {
+                long remaining = subGoalObjectsToRemove - removed;
+                if (remaining <= 0) break;
+
+                if (printState) System.out.println("> Tier " + tier.name + ": remove " + remaining);
+                removed += ForceObjectEvictionPolicy.runLastAccess(store, namespace, setName, tiers.filter(tier, tier.ttl), remaining, lastAccessEvictor);
+            }
+        }
+        controller.removed(removed);
+        return removed;
+    }
+
+    // The partition scan evictor for PARTITION_SCAN_DELETE, created on the first pass with any restored cursors. null
+    // in the other modes
+    private PartitionScanEvictor partitionScanEvictor() {
+        if (evictionMode != EvictionMode.PARTITION_SCAN_DELETE) return null;
+
+        if (partitionScanEvictor == null) {
+            partitionScanEvictor = partitionScanWorkers != null ? new PartitionScanEvictor(partitionScanWorkers, evictionWorkers) : new PartitionScanEvictor(evictionWorkers);
+            if (restoredCursors != null) {
+                partitionScanEvictor.restore(restoredCursors.nextPartition, restoredCursors.resumeDigests, restoredCursors.finishedPartitions);
+                restoredCursors = null;
+            }
+        }
+        return partitionScanEvictor;
+    }
+
+    // Save progress after every pass and pick up where the last run saved it
+    void setCheckpoint(EvictionCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        EvictionCheckpoint.State restored;
+        try {
+            restored = checkpoint.load();
+        } catch (IOException e) {
+            System.out.println("WARNING: Starting without checkpoint " + checkpoint.getPath() + ": " + e.getMessage());
+            return;
+        }
+        if (restored == null) return;
+
+        System.out.println(namespace + "/" + setName + " > Resuming from checkpoint, " + restored);
+        restoredCursors = restored;
+        restoredHistogram = restored;
+        lastDecisionMillis = restored.decisionMillis;
+        totalPasses = restored.passes;
+        totalRequested = restored.requested;
+        totalRemoved = restored.removed;
+    }
+
+    private void saveCheckpoint() {
+        if (checkpoint == null) return;
+
+        // Modes without partition cursors keep the restored ones
+        int nextPartition = 0;
+        byte[][] resumeDigests = new byte[Node.PARTITIONS][];
+        boolean[] finishedPartitions = new boolean[Node.PARTITIONS];
+        if (partitionScanEvictor != null) {
+            nextPartition = partitionScanEvictor.getNextPartition();
+            resumeDigests = partitionScanEvictor.getResumeDigests();
+            finishedPartitions = partitionScanEvictor.getFinishedPartitions();
+        } else if (restoredCursors != null) {
+            nextPartition = restoredCursors.nextPartition;
+            resumeDigests = restoredCursors.resumeDigests;
+            finishedPartitions = restoredCursors.finishedPartitions;
+        }
+
+        try {
+            checkpoint.save(new EvictionCheckpoint.State(System.currentTimeMillis(), lastDecisionMillis, state.durationPerBucket, state.objectsPerBucket.clone(), totalPasses, totalRequested, totalRemoved, nextPartition, resumeDigests, finishedPartitions));
+        } catch (IOException e) {
+            // Eviction goes on, only a restart would start over
+            System.out.println("WARNING: Checkpoint " + checkpoint.getPath() + " not saved: " + e.getMessage());
+        }
+    }
+
+    // Keep the set's data (memory_data_bytes, or device_data_bytes when larger) under goalBytes as well, 0 for no bytes
+    // goal. For a bytes goal alone give the controller a goal of Long.MAX_VALUE objects
+    void setGoalBytes(long goalBytes) {
+        this.goalBytes = goalBytes;
+    }
+
+    // Evict tier by tier, lowest value first, instead of by TTL alone
+    void setTiers(TtlTiers tiers) {
+        this.tiers = tiers;
+    }
+
+    void setPrintState(boolean printState) {
+        this.printState = printState;
+    }
+
+    // Sample about targetSamples records of the bucket the goal ends in for a watermark inside it, 0 for the
+    // histogram's buckets alone. Not used with tiers, OLDEST_FIRST_DELETE or LAST_ACCESS_QUERY_DELETE
+    void setTtlSampling(int targetSamples) {
+        this.ttlEstimator = targetSamples > 0 ? new TtlEstimator(namespace, setName, targetSamples) : null;
+    }
+
+    // Share a pool of partition scan workers with other policies instead of starting one per policy
+    void setPartitionScanWorkers(ExecutorService partitionScanWorkers) {
+        this.partitionScanWorkers = partitionScanWorkers;
+    }
+
+    // Release the policy's own threads, for policies run without run()
+    void close() {
+        if (partitionScanEvictor != null) {
+            partitionScanEvictor.close();
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // EvictionMode
+    //
+    //   SCAN_AND_DELETE        scan the whole set, check the TTL on the client and delete one record at a time
+    //   FILTERED_SCAN_DELETE   the server only returns records at or below the TTL watermark (filter expression)
+    //   BACKGROUND_DELETE      the server deletes records at or below the TTL watermark in background operations, one
+    //                          counted slice of the digest space at a time so no more than asked for go
+    //   OLDEST_FIRST_DELETE    one filtered scan indexes the oldest records (lowest TTL) up to the number to remove, then
+    //                          exactly those are deleted
+    //   PARTITION_SCAN_DELETE  filtered scans of one partition at a time on a pool of workers, stopped as soon as
+    //                          enough records are removed and resumed from there on the next pass
+    //   LAST_ACCESS_QUERY_DELETE
+    //                          keep alives stamp a last access bin (LastAccessCacheStore), range queries on its
+    //                          secondary index find the least recently used records and exactly those are deleted
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    enum EvictionMode {
+        SCAN_AND_DELETE,
+        FILTERED_SCAN_DELETE,
+        BACKGROUND_DELETE,
+        PARTITION_SCAN_DELETE,
+        OLDEST_FIRST_DELETE,
+        LAST_ACCESS_QUERY_DELETE;
+
+        static EvictionMode parse(String name) {
+            switch (name.toLowerCase()) {
+                case "scan":
+                    return SCAN_AND_DELETE;
+                case "filtered":
+                    return FILTERED_SCAN_DELETE;
+                case "background":
+                    return BACKGROUND_DELETE;
+                case "partitions":
+                    return PARTITION_SCAN_DELETE;
+                case "oldest":
+                    return OLDEST_FIRST_DELETE;
+                case "last-access":
+                    return LAST_ACCESS_QUERY_DELETE;
+                default:
+                    return EvictionMode.valueOf(name.toUpperCase());
             }
         }
     }
@@ -100,26 +490,86 @@ class ManageMaxObjectsInLRUCachePolicy implements Runnable {
     /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     static class ForceObjectEvictionPolicy {
+        // Resolution of the digest slices BACKGROUND_DELETE deletes, see digestModulo, and the most slices one pass
+        // counts before it settles for fewer removed
+        private static final int DIGEST_MODULO = 1 << 16;
+        private static final int MAX_BACKGROUND_SLICES = 32;
+
+        // Outstanding deletes when removing the indexed candidates (the client has no batch delete)
+        private static final int CANDIDATE_DELETES_IN_FLIGHT = 100;
+
         // Use factory methods
         private ForceObjectEvictionPolicy() {
         }
 
-        private static void run(AerospikeClient client, String namespace, String setName, long ttlLowWatermark, long subgoal_objects_to_remove) {
-            ScanPolicy policy = new ScanPolicy();
+        static long run(CacheStore store, String namespace, String setName, long ttlLowWatermark, long subgoal_objects_to_remove, long candidate_bucket_count, EvictionMode mode) {
+            return run(store, namespace, setName, ttlLowWatermark, subgoal_objects_to_remove, candidate_bucket_count, mode, null);
+        }
+
+        // Returns the number of objects removed. evictor is only used by PARTITION_SCAN_DELETE, without one the pass
+        // starts from partition 0
+        static long run(CacheStore store, String namespace, String setName, long ttlLowWatermark, long subgoal_objects_to_remove, long candidate_bucket_count, EvictionMode mode, PartitionScanEvictor evictor) {
+            return run(store, namespace, setName, RecordFilter.ttlAtMost(ttlLowWatermark), subgoal_objects_to_remove, candidate_bucket_count, mode, evictor);
+        }
+
+        // Remove records matching filter (a TTL watermark, optionally narrowed to a tier)
+        static long run(CacheStore store, String namespace, String setName, RecordFilter filter, long subgoal_objects_to_remove, long candidate_bucket_count, EvictionMode mode, PartitionScanEvictor evictor) {
+            switch (mode) {
+                case PARTITION_SCAN_DELETE:
+                    return runPartitions(store, namespace, setName, filter, subgoal_objects_to_remove, evictor);
+                case OLDEST_FIRST_DELETE:
+                    return runOldestFirst(store, namespace, setName, filter, subgoal_objects_to_remove);
+                case FILTERED_SCAN_DELETE:
+                    return runScan(store, namespace, setName, filter, subgoal_objects_to_remove, true);
+                case BACKGROUND_DELETE:
+                    return runBackground(store, namespace, setName, filter, subgoal_objects_to_remove, candidate_bucket_count);
+                case LAST_ACCESS_QUERY_DELETE:
+                    // Not selected by TTL, see runLastAccess
+                    throw new IllegalArgumentException("Evicting by last access needs a LastAccessEvictor, not a TTL watermark");
+                default:
+                    return runScan(store, namespace, setName, filter, subgoal_objects_to_remove, false);
+            }
+        }
+
+        // Records the scans sent back, compare with lru.eviction.removed
+        static Metrics.Counter scannedCounter(String namespace, String setName) {
+            return Metrics.GLOBAL.counter("lru.eviction.scanned", "set", namespace + "/" + setName);
+        }
+
+        static Metrics.Timer deleteTimer(String namespace, String setName) {
+            return Metrics.GLOBAL.timer("lru.eviction.delete", "set", namespace + "/" + setName);
+        }
+
+        private static long runScan(CacheStore store, String namespace, String setName, RecordFilter filter, long subgoal_objects_to_remove, boolean filterOnServer) {
+            Metrics.Counter scanned = scannedCounter(namespace, setName);
+            Metrics.Timer deletes = deleteTimer(namespace, setName);
+
+            ScanPolicy policy = store.newScanPolicy();
             policy.concurrentNodes = true;
             policy.priority = Priority.HIGH;
-            policy.includeBinData = false;
+            // Checking the tier on the client needs the tier bin
+            policy.includeBinData = !filterOnServer && filter.hasTier();
             policy.failOnClusterChange = true;
             policy.scanPercent = 100;
 
+            // Only records at or below the watermark are sent back, and no more than we need to remove
+            if (filterOnServer) {
+                policy.maxRecords = subgoal_objects_to_remove;
+            }
+
             AtomicLong objects_removed_count = new AtomicLong(0);
 
             try {
-                client.scanAll(policy, namespace, setName, (key, record) -> {
+                store.scanAll(policy, namespace, setName, filterOnServer ? filter : null, (key, record) -> {
+                    scanned.increment();
 
+                    // The server already applied the filter, without bins the tier can't be checked again here
                     int recordTTL = record.getTimeToLive();
-                    if (recordTTL <= ttlLowWatermark) {
-                        if (client.delete(null, key)) {
+                    if (filterOnServer || filter.matches(recordTTL, key.digest, record.bins)) {
+                        long deleteStartNanos = System.nanoTime();
+                        boolean deleted = store.delete(null, key);
+                        deletes.recordSince(deleteStartNanos);
+                        if (deleted) {
                             //System.out.println("DEBUG: Removed record with digest=" + ByteToHex.convert(key.digest) + " - TTL=" + recordTTL);
 
                             // Count how many we were able to delete. NOTE: scan can miss some
@@ -135,20 +585,144 @@ class ManageMaxObjectsInLRUCachePolicy implements Runnable {
             } finally {
                 System.out.println(">>Removed " + objects_removed_count + "/" + subgoal_objects_to_remove + " objects");
             }
+            return objects_removed_count.get();
+        }
+
+        private static long runOldestFirst(CacheStore store, String namespace, String setName, RecordFilter filter, long subgoal_objects_to_remove) {
+            long ttlLowWatermark = filter.getTtlAtMost();
+            Metrics.Counter scanned = scannedCounter(namespace, setName);
+            Metrics.Timer deletes = deleteTimer(namespace, setName);
+            ScanPolicy policy = store.newScanPolicy();
+            policy.concurrentNodes = true;
+            policy.includeBinData = false;
+
+            // Scan everything the watermark lets through, keeping only the oldest subgoal records
+            if (subgoal_objects_to_remove > CandidateIndex.MAX_CAPACITY) {
+                System.out.println("WARNING: Indexing the oldest " + CandidateIndex.MAX_CAPACITY + " candidates, fewer than the " + subgoal_objects_to_remove + " to remove");
+            }
+            CandidateIndex candidates = new CandidateIndex((int) Math.min(CandidateIndex.MAX_CAPACITY, subgoal_objects_to_remove));
+            AtomicLong objects_removed_count = new AtomicLong(0);
+
+            try {
+                store.scanAll(policy, namespace, setName, filter, (key, record) -> {
+                    scanned.increment();
+                    int recordTTL = record.getTimeToLive();
+                    if (recordTTL <= ttlLowWatermark) {
+                        candidates.offer(recordTTL, key.digest);
+                    }
+                });
+
+                // Oldest first, so if the pass is cut short the records that most deserve to go are gone
+                candidates.sortOldestFirst();
+
+                WritePolicy writePolicy = store.newWritePolicy();
+                Semaphore inFlight = new Semaphore(CANDIDATE_DELETES_IN_FLIGHT);
+                for (int i = 0; i < candidates.size(); i++) {
+                    Key key = new Key(namespace, candidates.digestAt(i), setName, null);
+                    inFlight.acquireUninterruptibly();
+                    long deleteStartNanos = System.nanoTime();
+                    store.deleteAsync(writePolicy, key).whenComplete((existed, e) -> {
+                        deletes.recordSince(deleteStartNanos);
+                        if (e == null && existed) objects_removed_count.incrementAndGet();
+                        inFlight.release();
+                    });
+                }
+                inFlight.acquireUninterruptibly(CANDIDATE_DELETES_IN_FLIGHT);
+
+            } finally {
+                System.out.println(">>Removed " + objects_removed_count + "/" + subgoal_objects_to_remove + " objects, " + candidates.size() + " candidates indexed");
+            }
+            return objects_removed_count.get();
+        }
+
+        private static long runPartitions(CacheStore store, String namespace, String setName, RecordFilter filter, long subgoal_objects_to_remove, PartitionScanEvictor evictor) {
+            if (evictor == null) {
+                try (PartitionScanEvictor oneOff = new PartitionScanEvictor()) {
+                    return runPartitions(store, namespace, setName, filter, subgoal_objects_to_remove, oneOff);
+                }
+            }
+
+            long objects_removed_count = 0;
+            try {
+                objects_removed_count = evictor.evict(store, namespace, setName, filter, subgoal_objects_to_remove);
+            } finally {
+                System.out.println(">>Removed " + objects_removed_count + "/" + subgoal_objects_to_remove + " objects, next pass starts at partition " + evictor.getNextPartition());
+            }
+            return objects_removed_count;
+        }
+
+        // Remove the least recently used records by their last access bin, filter only narrows them to a tier (null
+        // for every record)
+        static long runLastAccess(CacheStore store, String namespace, String setName, RecordFilter filter, long subgoal_objects_to_remove, LastAccessEvictor evictor) {
+            long objects_removed_count = 0;
+            try {
+                objects_removed_count = evictor.evict(store, namespace, setName, filter, subgoal_objects_to_remove);
+            } finally {
+                System.out.println(">>Removed " + objects_removed_count + "/" + subgoal_objects_to_remove + " objects, next pass starts at last access " + evictor.getFloor());
+            }
+            return objects_removed_count;
+        }
+
+        // A background operation can't stop after N records, so delete the candidates one slice of the digest space at a
+        // time. Each slice is counted first by a filtered scan sending back digests only, and only deleted when it holds
+        // no more than what's left to remove. candidate_bucket_count (the histogram, up to an nsup period old) only
+        // sizes the first slice, the counts size the rest - digests are uniformly distributed
+        private static long runBackground(CacheStore store, String namespace, String setName, RecordFilter filter, long subgoal_objects_to_remove, long candidate_bucket_count) {
+            Metrics.Counter scanned = scannedCounter(namespace, setName);
+            ScanPolicy policy = store.newScanPolicy();
+            policy.concurrentNodes = true;
+            policy.includeBinData = false;
+
+            // NOTE: records expiring or deleted elsewhere between a slice's count and its delete are counted as removed
+            long objects_removed_count = 0;
+            int slices = 0;
+
+            try {
+                double objectsPerDigest = Math.max(1, candidate_bucket_count) / (double) DIGEST_MODULO;
+                long from = 0;
+                while (objects_removed_count < subgoal_objects_to_remove && from < DIGEST_MODULO && slices < MAX_BACKGROUND_SLICES) {
+                    long remaining = subgoal_objects_to_remove - objects_removed_count;
+                    long width = Math.max(1, Math.min(DIGEST_MODULO - from, (long) (remaining / objectsPerDigest)));
+                    RecordFilter slice = filter.withDigestRange(DIGEST_MODULO, from, from + width);
+                    slices++;
+
+                    AtomicLong candidates = new AtomicLong();
+                    store.scanAll(policy, namespace, setName, slice, (key, record) -> {
+                        scanned.increment();
+                        candidates.incrementAndGet();
+                    });
+
+                    if (candidates.get() > remaining) {
+                        // Too many, count a narrower slice. A single digest value holding more can't be narrowed
+                        if (width == 1) break;
+                        objectsPerDigest = (double) candidates.get() / width;
+                        continue;
+                    }
+
+                    if (candidates.get() > 0) {
+                        store.backgroundDelete(namespace, setName, slice);
+                    }
+                    objects_removed_count += candidates.get();
+                    from += width;
+                    objectsPerDigest = Math.max(candidates.get(), 0.5) / width;
+                }
+            } finally {
+                System.out.println(">>Removed " + objects_removed_count + "/" + subgoal_objects_to_remove + " objects in " + slices + " slices");
+            }
+            return objects_removed_count;
         }
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // ManageMaxObjectsInLRUCacheRewardFunction
     //
-    //   GIVEN  a goal of max number objects to keep
-    //   GIVEN  the state of the namespace and set
+    //   GIVEN  the number of objects the controller decided to remove for the current state of the namespace and set
     //   THEN   calculate if the goal has been satisifed
     /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     static class ManageMaxObjectsInLRUCacheRewardFunction {
-        private static boolean is_satisfied(ObjectsPerTTLHistogramState state, long goal_total_max_objects) {
-            return state.totalObjects < goal_total_max_objects;
+        private static boolean is_satisfied(long objectsToRemove) {
+            return objectsToRemove <= 0;
         }
     }
 
@@ -164,17 +738,44 @@ class ManageMaxObjectsInLRUCachePolicy implements Runnable {
     static class ObjectsPerTTLHistogramState {
         long configTTL;
 
+        private final String namespace;
+        private final String set;
+        private final String request;
+        private final String setRequest;
+        private final String[] requests;
+
         private long timePerUnit = 0;
         private long durationPerBucket = 0;
         private long totalBuckets = 0;
         private long totalObjects = 0;
 
-        // Ordered by oldest first
-        private long[] objectsPerBucket = null;
+        // From the set's sets/<ns>/<set> info on the nodes that answered, for converting bytes into objects
+        private long totalBytes = 0;
+        private long setObjects = 0;
+
+        // Ordered by oldest first, the sum of every node's buckets
+        private long[] objectsPerBucket = new long[0];
+
+        // Last histogram received from each node, reused on every refresh
+        private final Map<String, long[]> objectsPerBucketPerNode = new HashMap<>();
+
+        // Whether the last refresh changed any count
+        private boolean changed = false;
+
+        // Nodes asked and nodes included in the totals on the last refresh
+        private int totalNodes = 0;
+        private int respondedNodes = 0;
+
+        private NodeInfoCollector collector;
 
         // Use factory methods
-        private ObjectsPerTTLHistogramState(long configTTL) {
+        private ObjectsPerTTLHistogramState(String namespace, String set, long configTTL) {
+            this.namespace = namespace;
+            this.set = set;
             this.configTTL = configTTL;
+            this.request = "histogram:namespace=" + namespace + ";set=" + set + ";type=ttl";
+            this.setRequest = "sets/" + namespace + "/" + set;
+            this.requests = new String[]{request, setRequest};
         }
 
         public String toString() {
@@ -182,11 +783,17 @@ class ManageMaxObjectsInLRUCachePolicy implements Runnable {
             StringBuilder bucketMapHeader = new StringBuilder();
             StringBuilder bucketMapTTL = new StringBuilder();
             StringBuilder bucketMapCount = new StringBuilder();
+
+            // Records can live longer than configTTL (TTL tiers, writes with their own TTL), show every bucket up to
+            // the last one holding any
+            int lastBucketIndex = objectsPerBucket.length - 1;
+            while (lastBucketIndex >= 0 && objectsPerBucket[lastBucketIndex] == 0) lastBucketIndex--;
+
             for (int bucketIndex = 0; bucketIndex < totalBuckets; bucketIndex++) {
 
                 // Minimum TTL is 1 second, so ignore irrelevant bucket
                 long bucketTTL = calculateBucketTTL(bucketIndex);
-                if (bucketTTL > configTTL) break;
+                if (bucketTTL > configTTL && bucketIndex > lastBucketIndex) break;
 
                 if (bucketMapTTL.length() > 0) {
                     bucketMapTTL.append('|');
@@ -205,7 +812,7 @@ class ManageMaxObjectsInLRUCachePolicy implements Runnable {
             }
 
             String line = "------------------------------------------------------------------------------------------------------------------------";
-            String summary = String.format("totalObjects=%d, timePerUnit=%d, durationPerBucket=%d", totalObjects, timePerUnit, durationPerBucket);
+            String summary = String.format("totalObjects=%d, totalBytes=%d, timePerUnit=%d, durationPerBucket=%d, nodes=%d/%d%s", totalObjects, totalBytes, timePerUnit, durationPerBucket, respondedNodes, totalNodes, isComplete() ? "" : " (partial)");
             return line + "\nTTL Buckets Histogram:\nIdx: " + bucketMapHeader + "\nTTL: " + bucketMapTTL + "\n # : " + bucketMapCount + "\n" + line + "\n" + summary + "\n";
         }
 
@@ -214,58 +821,287 @@ class ManageMaxObjectsInLRUCachePolicy implements Runnable {
             return bucketTTL;
         }
 
-        public static ObjectsPerTTLHistogramState fetch(AerospikeClient client, String namespace, String set, long configTTL) {
-            // Reset cache
-            ObjectsPerTTLHistogramState state = new ObjectsPerTTLHistogramState(configTTL);
+        // Index of the oldest bucket at which the buckets up to it hold at least objects, the last bucket if they never do
+        public int calculateBucketIndexCovering(long objects) {
+            long covered = 0;
+            for (int bucketIndex = 0; bucketIndex < objectsPerBucket.length; bucketIndex++) {
+                covered += objectsPerBucket[bucketIndex];
+                if (covered >= objects) return bucketIndex;
+            }
+            return objectsPerBucket.length - 1;
+        }
 
-            // Get total object counts in each TTL bucket
-            Node[] nodes = client.getNodes();
-            for (Node node : nodes) {
-                // Invoke an info call to each node in the cluster and total up the object count value for each TTL bucket
-                String request = "histogram:namespace=" + namespace + ";set=" + set + ";type=ttl";
-                try {
-                    String infoString = Info.request(node, request);
-                    // Example: histogram:namespace=lru_test;set=mycache;type=ttl > units=seconds:hist-width=100:bucket-width=1:buckets=0,0,0,0,0,0,0,0,0,0,0,0,973,4,2,5,2,2,4,8,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0
-                    //System.out.println("\nDEBUG: " + request + " > " + infoString);
-
-                    // Cache units
-                    if (state.timePerUnit == 0) {
-                        String units = infoString.substring(infoString.indexOf("units=") + 6, infoString.indexOf(":", infoString.indexOf("units=") + 6));
-                        if (!units.equals("seconds")) {
-                            throw new InvalidParameterException("Unexpected units: " + units);
-                        }
+        // Upper TTL of the bucket in which the oldest share of the objects ends, 0 while empty
+        public long calculateTTLOfOldest(double share) {
+            if (totalObjects <= 0) return 0;
+            return calculateBucketTTL(calculateBucketIndexCovering((long) Math.ceil(share * totalObjects)) + 1);
+        }
 
-                        // Always seconds
-                        state.timePerUnit = 1;
-                    }
+        public long calculateObjectsUpToBucket(int index) {
+            long objects = 0;
+            for (int bucketIndex = 0; bucketIndex <= index && bucketIndex < objectsPerBucket.length; bucketIndex++) {
+                objects += objectsPerBucket[bucketIndex];
+            }
+            return objects;
+        }
 
-                    // Cache bucket-width
-                    if (state.durationPerBucket == 0) {
-                        state.durationPerBucket = Long.parseLong(infoString.substring(infoString.indexOf("bucket-width=") + 13, infoString.indexOf(":", infoString.indexOf("bucket-width=") + 13)));
-                    }
+        public static ObjectsPerTTLHistogramState fetch(CacheStore store, String namespace, String set, long configTTL) {
+            ObjectsPerTTLHistogramState state = create(namespace, set, configTTL);
+            state.refresh(store);
+            return state;
+        }
+
+        // Empty state, filled in by refresh
+        public static ObjectsPerTTLHistogramState create(String namespace, String set, long configTTL) {
+            return new ObjectsPerTTLHistogramState(namespace, set, configTTL);
+        }
+
+        // Fetch every node's histogram again and update the totals in place. Once the bucket arrays are sized this
+        // allocates little beyond the info responses themselves
+        public void refresh(CacheStore store) {
+            if (collector == null || collector.getStore() != store) {
+                collector = new NodeInfoCollector(store);
+            }
+
+            // Invoke an info call to each node in the cluster and total up the object count value for each TTL bucket,
+            // the set's size comes back in the same request
+            refresh(collector.request(requests));
+        }
 
-                    // Calculate total objects for each TTL buckets across all nodes
-                    long[] buckets = Arrays.stream(infoString.substring(infoString.indexOf("buckets=") + 8).split(",")).map(Long::parseLong).mapToLong(l -> l).toArray();
-                    if (state.objectsPerBucket == null) {
-                        state.objectsPerBucket = buckets;
-                    } else {
-                        // Total up number of objects per TTL
-                        IntStream.range(0, buckets.length).forEach(i ->
-                                state.objectsPerBucket[i] += buckets[i]
-                        );
+        // The histogram and set info commands, for callers that collect the responses themselves
+        public String[] getRequests() {
+            return requests;
+        }
+
+        // Update from every node's responses to getRequests()
+        public void refresh(NodeInfoCollector.Responses<Map<String, String>> batch) {
+            refreshHistogram(NodeInfoCollector.Responses.select(batch, request));
+            refreshSetSize(NodeInfoCollector.Responses.select(batch, setRequest));
+        }
+
+        // Update the totals from every node's response to the histogram command
+        public void refreshHistogram(NodeInfoCollector.Responses<String> responses) {
+            String[] nodeNames = responses.nodeNames;
+            long totalObjectsBefore = totalObjects;
+            changed = false;
+
+            // Nodes that left the cluster no longer count
+            if (objectsPerBucketPerNode.size() > nodeNames.length || !containsAll(nodeNames)) {
+                objectsPerBucketPerNode.entrySet().removeIf(node -> {
+                    if (indexOf(nodeNames, node.getKey()) >= 0) return false;
+                    subtract(node.getValue());
+                    return true;
+                });
+            }
+
+            // Bucket widths from different nodes (or from before a configuration change) can't be added up. Take the
+            // width most nodes answered with, nodes answering with another are left out like nodes that didn't answer
+            long bucketWidth = roundBucketWidth(responses);
+            if (bucketWidth != durationPerBucket) {
+                clear();
+                durationPerBucket = bucketWidth;
+            }
+
+            for (int i = 0; i < nodeNames.length; i++) {
+                Exception error = responses.getError(i);
+                if (error == null) {
+                    try {
+                        // Example: histogram:namespace=lru_test;set=mycache;type=ttl > units=seconds:hist-width=100:bucket-width=1:buckets=0,0,0,0,0,0,0,0,0,0,0,0,973,4,2,5,2,2,4,8,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0
+                        //System.out.println("\nDEBUG: " + request + " > " + responses.get(i));
+                        update(nodeNames[i], responses.get(i));
+                        continue;
+                    } catch (Exception ex) {
+                        error = ex;
                     }
+                }
 
-                } catch (Exception ex) {
-                    System.out.println("\n" + request + " > ERROR: " + ex.getMessage());
-                    ex.printStackTrace();
+                // The node's last histogram is out of date, leave it out and count the node as not covered
+                long[] previous = objectsPerBucketPerNode.remove(nodeNames[i]);
+                if (previous != null) {
+                    subtract(previous);
                 }
+                responses.fail(i, error);
+                System.out.println("\n" + nodeNames[i] + " " + request + " > ERROR: " + error.getMessage());
             }
 
-            // Post calculations
-            state.totalObjects = Arrays.stream(state.objectsPerBucket).reduce(0, Long::sum);
-            state.totalBuckets = state.objectsPerBucket.length;
+            totalBuckets = objectsPerBucket.length;
+            changed |= totalObjects != totalObjectsBefore;
+            totalNodes = responses.getNodeCount();
+            respondedNodes = responses.getRespondedCount();
+        }
 
-            return state;
+        // Sum the set's data size over the nodes that answered, e.g.
+        // objects=973:tombstones=0:memory_data_bytes=61272:device_data_bytes=0:truncate_lut=0:...
+        public void refreshSetSize(NodeInfoCollector.Responses<String> responses) {
+            long bytes = 0;
+            long objects = 0;
+            for (int i = 0; i < responses.getNodeCount(); i++) {
+                String infoString = responses.get(i);
+                if (infoString == null) {
+                    System.out.println("\n" + responses.nodeNames[i] + " " + setRequest + " > ERROR: " + responses.getError(i).getMessage());
+                    continue;
+                }
+
+                // With data in memory and on a device both count the same records, only take the larger
+                bytes += Math.max(InfoParser.longValue(infoString, "memory_data_bytes", 0), InfoParser.longValue(infoString, "device_data_bytes", 0));
+                objects += InfoParser.longValue(infoString, "objects", 0);
+            }
+            totalBytes = bytes;
+            setObjects = objects;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        // The server doesn't report sizes per TTL bucket, so every bucket is taken to hold objects of the set's
+        // average size. 0 when the set is empty
+        public double getAverageObjectBytes() {
+            return setObjects == 0 ? 0 : (double) totalBytes / setObjects;
+        }
+
+        // Objects of average size that hold at least bytes
+        public long calculateObjectsHolding(long bytes) {
+            double averageObjectBytes = getAverageObjectBytes();
+            return averageObjectBytes <= 0 ? 0 : (long) Math.ceil(bytes / averageObjectBytes);
+        }
+
+        public boolean isChanged() {
+            return changed;
+        }
+
+        // Every node in the cluster answered, otherwise the totals are missing the nodes that didn't
+        public boolean isComplete() {
+            return respondedNodes == totalNodes;
+        }
+
+        // Fraction of the cluster's nodes included in the totals
+        public double getCoverage() {
+            return totalNodes == 0 ? 0 : (double) respondedNodes / totalNodes;
+        }
+
+        // Parse one node's response straight into its bucket array, moving the totals by the difference per bucket
+        private void update(String nodeName, String infoString) {
+            if (!InfoParser.valueEquals(infoString, "units", "seconds")) {
+                int unitsStart = InfoParser.valueStart(infoString, "units");
+                throw new InvalidParameterException("Unexpected units: " + (unitsStart < 0 ? "none" : infoString.substring(unitsStart, InfoParser.valueEnd(infoString, unitsStart))));
+            }
+
+            // Always seconds
+            timePerUnit = 1;
+
+            long bucketWidth = InfoParser.longValue(infoString, "bucket-width", 0);
+            if (bucketWidth != durationPerBucket) {
+                throw new InvalidParameterException("bucket-width " + bucketWidth + " differs from the other nodes' " + durationPerBucket);
+            }
+
+            int bucketsStart = InfoParser.valueStart(infoString, "buckets");
+            if (bucketsStart < 0) {
+                throw new InvalidParameterException("No buckets in: " + infoString);
+            }
+
+            int end = InfoParser.valueEnd(infoString, bucketsStart);
+            long[] nodeBuckets = bucketsFor(nodeName, countBuckets(infoString, bucketsStart, end));
+
+            int bucketIndex = 0;
+            int start = bucketsStart;
+            while (start < end) {
+                int comma = infoString.indexOf(',', start);
+                if (comma < 0 || comma > end) comma = end;
+
+                long count = InfoParser.parseLong(infoString, start, comma);
+                long delta = count - nodeBuckets[bucketIndex];
+                if (delta != 0) changed = true;
+                nodeBuckets[bucketIndex] = count;
+                objectsPerBucket[bucketIndex] += delta;
+                totalObjects += delta;
+
+                bucketIndex++;
+                start = comma + 1;
+            }
+        }
+
+        // The bucket width most of the nodes that answered report, the current width on a tie
+        private long roundBucketWidth(NodeInfoCollector.Responses<String> responses) {
+            long[] widths = new long[responses.getNodeCount()];
+            for (int i = 0; i < widths.length; i++) {
+                String infoString = responses.get(i);
+                try {
+                    widths[i] = infoString == null ? -1 : InfoParser.longValue(infoString, "bucket-width", 0);
+                } catch (NumberFormatException e) {
+                    widths[i] = -1;
+                }
+            }
+
+            long bucketWidth = durationPerBucket;
+            int mostNodes = 0;
+            for (int i = 0; i < widths.length; i++) {
+                if (widths[i] < 0) continue;
+                int nodes = 0;
+                for (long width : widths) {
+                    if (width == widths[i]) nodes++;
+                }
+                if (nodes > mostNodes || nodes == mostNodes && widths[i] == durationPerBucket) {
+                    bucketWidth = widths[i];
+                    mostNodes = nodes;
+                }
+            }
+            return bucketWidth;
+        }
+
+        // The node's bucket array, only reallocated when the bucket count changes (first response, configuration change)
+        private long[] bucketsFor(String nodeName, int bucketCount) {
+            long[] nodeBuckets = objectsPerBucketPerNode.get(nodeName);
+            if (nodeBuckets != null && nodeBuckets.length == bucketCount) {
+                return nodeBuckets;
+            }
+
+            if (nodeBuckets != null) {
+                subtract(nodeBuckets);
+            }
+            if (objectsPerBucket.length < bucketCount) {
+                objectsPerBucket = Arrays.copyOf(objectsPerBucket, bucketCount);
+            }
+            nodeBuckets = new long[bucketCount];
+            objectsPerBucketPerNode.put(nodeName, nodeBuckets);
+            return nodeBuckets;
+        }
+
+        private static int countBuckets(String infoString, int start, int end) {
+            if (start == end) return 0;
+
+            int count = 1;
+            for (int i = start; i < end; i++) {
+                if (infoString.charAt(i) == ',') count++;
+            }
+            return count;
+        }
+
+        private void subtract(long[] nodeBuckets) {
+            for (int i = 0; i < nodeBuckets.length; i++) {
+                objectsPerBucket[i] -= nodeBuckets[i];
+                totalObjects -= nodeBuckets[i];
+            }
+        }
+
+        private void clear() {
+            objectsPerBucketPerNode.clear();
+            Arrays.fill(objectsPerBucket, 0);
+            totalObjects = 0;
+        }
+
+        private boolean containsAll(String[] nodeNames) {
+            for (String nodeName : objectsPerBucketPerNode.keySet()) {
+                if (indexOf(nodeNames, nodeName) < 0) return false;
+            }
+            return true;
+        }
+
+        private static int indexOf(String[] nodeNames, String nodeName) {
+            for (int i = 0; i < nodeNames.length; i++) {
+                if (nodeNames[i].equals(nodeName)) return i;
+            }
+            return -1;
         }
     }
 }
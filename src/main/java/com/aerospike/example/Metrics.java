@@ -0,0 +1,320 @@
+package com.aerospike.example;
+
+import com.sun.net.httpserver.HttpServer;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import javax.management.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// Metrics
+//
+//   GIVEN  counters, gauges and timers registered by name and tags (name=value pairs), e.g.
+//          counter("lru.eviction.removed", "set", "lru_test/mycache")
+//   THEN   look them up once and update them from any thread without locking
+//   THEN   export them as attributes of one JMX MBean (com.aerospike.example:type=Metrics) and in the Prometheus text
+//          format on http://127.0.0.1:<port>/metrics
+//
+//   Timers keep every value since the start (count, sum, max, percentiles), rates and windows are up to the scraper
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class Metrics {
+    static final Metrics GLOBAL = new Metrics();
+
+    static final String OBJECT_NAME = "com.aerospike.example:type=Metrics";
+
+    private final ConcurrentHashMap<String, Meter> meters = new ConcurrentHashMap<>();
+
+    Counter counter(String name, String... tags) {
+        return (Counter) meters.computeIfAbsent(id(name, tags), id -> new Counter(name, tags));
+    }
+
+    Timer timer(String name, String... tags) {
+        return (Timer) meters.computeIfAbsent(id(name, tags), id -> new Timer(name, tags));
+    }
+
+    // Replaces a gauge registered under the same name and tags
+    void gauge(String name, DoubleSupplier value, String... tags) {
+        meters.put(id(name, tags), new Gauge(name, tags, value));
+    }
+
+    // Register the MBean with the platform MBean server, once
+    void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(new MetricsMBean(), objectName);
+            }
+        } catch (JMException e) {
+            System.out.println("WARNING: Metrics MBean not registered: " + e.getMessage());
+        }
+    }
+
+    // Serve GET /metrics on the loopback interface, stop the server when done
+    HttpServer startHttpServer(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        String typedName = null;
+        for (Meter meter : sorted().values()) {
+            String name = meter.name.replace('.', '_') + (meter instanceof Timer ? "_seconds" : "");
+            if (!name.equals(typedName)) {
+                text.append("# TYPE ").append(name).append(meter instanceof Counter ? " counter\n" : meter instanceof Timer ? " summary\n" : " gauge\n");
+                typedName = name;
+            }
+
+            if (meter instanceof Timer) {
+                Timer timer = (Timer) meter;
+                Histogram snapshot = timer.histogram.copy();
+                for (double quantile : new double[]{0.5, 0.99, 0.999}) {
+                    appendSample(text, name, meter.tags, "quantile", String.valueOf(quantile), snapshot.getValueAtPercentile(quantile * 100) / 1e9);
+                }
+                appendSample(text, name + "_count", meter.tags, null, null, timer.getCount());
+                appendSample(text, name + "_sum", meter.tags, null, null, timer.totalNanos.sum() / 1e9);
+                appendSample(text, name + "_max", meter.tags, null, null, timer.maxNanos.get() / 1e9);
+            } else {
+                appendSample(text, name, meter.tags, null, null, meter.value());
+            }
+        }
+        return text.toString();
+    }
+
+    private static void appendSample(StringBuilder text, String name, String[] tags, String extraTag, String extraValue, double value) {
+        text.append(name);
+        if (tags.length > 0 || extraTag != null) {
+            text.append('{');
+            for (int i = 0; i + 1 < tags.length; i += 2) {
+                if (i > 0) text.append(',');
+                text.append(tags[i]).append("=\"").append(tags[i + 1].replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+            if (extraTag != null) {
+                if (tags.length > 0) text.append(',');
+                text.append(extraTag).append("=\"").append(extraValue).append('"');
+            }
+            text.append('}');
+        }
+        text.append(' ').append(value).append('\n');
+    }
+
+    private Map<String, Meter> sorted() {
+        return new TreeMap<>(meters);
+    }
+
+    // name{tag=value,...}, also the JMX attribute name
+    private static String id(String name, String... tags) {
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags are name=value pairs: " + String.join(",", tags));
+        }
+        if (tags.length == 0) return name;
+
+        StringBuilder id = new StringBuilder(name).append('{');
+        for (int i = 0; i < tags.length; i += 2) {
+            if (i > 0) id.append(',');
+            id.append(tags[i]).append('=').append(tags[i + 1]);
+        }
+        return id.append('}').toString();
+    }
+
+    abstract static class Meter {
+        final String name;
+        final String[] tags;
+
+        Meter(String name, String[] tags) {
+            this.name = name;
+            this.tags = tags.clone();
+        }
+
+        abstract double value();
+    }
+
+    static final class Counter extends Meter {
+        private final LongAdder count = new LongAdder();
+
+        private Counter(String name, String[] tags) {
+            super(name, tags);
+        }
+
+        void increment() {
+            count.increment();
+        }
+
+        void add(long amount) {
+            count.add(amount);
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        double value() {
+            return count.sum();
+        }
+    }
+
+    static final class Gauge extends Meter {
+        private final DoubleSupplier supplier;
+
+        private Gauge(String name, String[] tags, DoubleSupplier supplier) {
+            super(name, tags);
+            this.supplier = supplier;
+        }
+
+        double value() {
+            return supplier.getAsDouble();
+        }
+    }
+
+    static final class Timer extends Meter {
+        private final ConcurrentHistogram histogram = new ConcurrentHistogram(3);
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Timer(String name, String[] tags) {
+            super(name, tags);
+        }
+
+        void record(long nanos) {
+            nanos = Math.max(0, nanos);
+            histogram.recordValue(nanos);
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        long getCount() {
+            return histogram.getTotalCount();
+        }
+
+        double getMeanMillis() {
+            long count = getCount();
+            return count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+        }
+
+        double getPercentileMillis(double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1e6;
+        }
+
+        double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        // The mean, in milliseconds
+        double value() {
+            return getMeanMillis();
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // MetricsMBean
+    //
+    //   Every meter as read only attributes named by its id: counters and gauges as they are, timers as id.count,
+    //   id.meanMillis, id.p99Millis and id.maxMillis. The attribute list is taken when a client asks for it, meters
+    //   registered later show up on the next request
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private final class MetricsMBean implements DynamicMBean {
+        private static final String COUNT = ".count";
+        private static final String MEAN = ".meanMillis";
+        private static final String P99 = ".p99Millis";
+        private static final String MAX = ".maxMillis";
+
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Meter meter = meters.get(attribute);
+            if (meter instanceof Counter) return ((Counter) meter).getCount();
+            if (meter != null) return meter.value();
+
+            int dot = attribute.lastIndexOf('.');
+            Meter timer = dot < 0 ? null : meters.get(attribute.substring(0, dot));
+            if (timer instanceof Timer) {
+                switch (attribute.substring(dot)) {
+                    case COUNT:
+                        return ((Timer) timer).getCount();
+                    case MEAN:
+                        return ((Timer) timer).getMeanMillis();
+                    case P99:
+                        return ((Timer) timer).getPercentileMillis(99);
+                    case MAX:
+                        return ((Timer) timer).getMaxMillis();
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Left out, as the interface expects
+                }
+            }
+            return list;
+        }
+
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read only: " + attribute.getName());
+        }
+
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+            throw new MBeanException(new UnsupportedOperationException(actionName));
+        }
+
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Map.Entry<String, Meter> entry : sorted().entrySet()) {
+                String id = entry.getKey();
+                Meter meter = entry.getValue();
+                if (meter instanceof Timer) {
+                    attributes.add(attribute(id + COUNT, "long", "Values recorded"));
+                    attributes.add(attribute(id + MEAN, "double", "Mean in milliseconds"));
+                    attributes.add(attribute(id + P99, "double", "99th percentile in milliseconds"));
+                    attributes.add(attribute(id + MAX, "double", "Maximum in milliseconds"));
+                } else if (meter instanceof Counter) {
+                    attributes.add(attribute(id, "long", "Counter"));
+                } else {
+                    attributes.add(attribute(id, "double", "Gauge"));
+                }
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Eviction and cache metrics", attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+
+        private MBeanAttributeInfo attribute(String name, String type, String description) {
+            return new MBeanAttributeInfo(name, type, description, true, false, false);
+        }
+    }
+}
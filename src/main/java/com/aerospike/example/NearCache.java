@@ -0,0 +1,417 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// NearCache
+//
+//   GIVEN  records read from the store, keyed by digest, weighed by their size
+//   THEN   keep the most valuable ones under a maximum weight with W-TinyLFU: new records enter a small LRU window
+//          (1%), records leaving it compete with the main region's LRU victim and only the one seen more often
+//          (count-min sketch of access frequencies, halved periodically so old popularity fades) stays
+//   THEN   the main region is a segmented LRU, records read again in probation move up to protected (80%)
+//
+//   Lookups don't lock. Reordering on a hit only happens when the policy lock is free, under contention the hit is
+//   served without it - recency and frequency become approximate, never the contents
+//   A record read from the store is only cached when its digest wasn't invalidated while the read was in flight (a
+//   count of invalidations per stripe of digests, taken before the read and checked under the lock by put), so a read
+//   racing a write, delete or eviction can't put back the copy they replaced
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class NearCache {
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+
+    // Bytes per entry beyond its bins: node, key, digest and map entry
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int REMOVED = 3;
+
+    // Digests sharing a stripe also refuse each other's reads, a few misses that aren't cached
+    private static final int INVALIDATION_STRIPES = 1024;
+
+    private final long maximumWeight;
+    private final long maximumWindowWeight;
+    private final long maximumProtectedWeight;
+
+    private final ConcurrentHashMap<DigestKey, Node> data = new ConcurrentHashMap<>();
+    private final FrequencySketch sketch;
+
+    // Only incremented under the lock
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    // Guards the queues, the weights and changes to data
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Node window = Node.sentinel();
+    private final Node probation = Node.sentinel();
+    private final Node protectedQueue = Node.sentinel();
+    private long windowWeight;
+    private long protectedWeight;
+    private long totalWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    NearCache(long maximumWeight) {
+        this.maximumWeight = maximumWeight;
+        this.maximumWindowWeight = Math.max(1, (long) (maximumWeight * WINDOW_RATIO));
+        this.maximumProtectedWeight = (long) ((maximumWeight - maximumWindowWeight) * PROTECTED_RATIO);
+        this.sketch = new FrequencySketch((int) Math.min(1 << 22, maximumWeight / ENTRY_OVERHEAD_BYTES));
+    }
+
+    // The live entry for the digest, null when missing or expired (expired entries are dropped)
+    Node get(byte[] digest, long nowMillis) {
+        Node node = data.get(new DigestKey(digest));
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (node.expiresAtMillis <= nowMillis) {
+            remove(node);
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        if (lock.tryLock()) {
+            try {
+                if (node.queue != REMOVED) onAccess(node);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node;
+    }
+
+    // Taken before reading the digest's record from the store and passed to put, which then refuses the record if the
+    // digest was invalidated in between
+    long invalidations(byte[] digest) {
+        return invalidations.get(stripe(digest));
+    }
+
+    // Cache the record until expiresAtMillis, the store's copy was last touched at serverTouchedMillis. Records
+    // heavier than the whole cache, or invalidated since invalidations(digest) returned invalidationsBefore, are not
+    // kept. Returns the entry, null when not kept
+    Node put(Key key, Record record, long expiresAtMillis, long serverTouchedMillis, long invalidationsBefore) {
+        Node node = new Node(key, record, weigh(key, record), expiresAtMillis, serverTouchedMillis);
+        if (node.weight > maximumWeight) {
+            invalidate(key.digest);
+            return null;
+        }
+
+        lock.lock();
+        try {
+            // A write or delete since the read, the record may be the copy it replaced
+            if (invalidations.get(stripe(key.digest)) != invalidationsBefore) return null;
+
+            Node previous = data.put(new DigestKey(key.digest), node);
+            if (previous != null) {
+                unlink(previous);
+            }
+
+            sketch.increment(node.hash);
+            node.queue = WINDOW;
+            linkLast(window, node);
+            windowWeight += node.weight;
+            totalWeight += node.weight;
+            evict();
+        } finally {
+            lock.unlock();
+        }
+        return node;
+    }
+
+    void invalidate(byte[] digest) {
+        lock.lock();
+        try {
+            invalidations.incrementAndGet(stripe(digest));
+            Node node = data.remove(new DigestKey(digest));
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reads in flight can't tell whether they are affected, none of them are cached
+    void invalidateIf(Predicate<Node> predicate) {
+        lock.lock();
+        try {
+            for (int stripe = 0; stripe < INVALIDATION_STRIPES; stripe++) {
+                invalidations.incrementAndGet(stripe);
+            }
+            for (Iterator<Node> nodes = data.values().iterator(); nodes.hasNext(); ) {
+                Node node = nodes.next();
+                if (predicate.test(node)) {
+                    nodes.remove();
+                    unlink(node);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        invalidateIf(node -> true);
+    }
+
+    int size() {
+        return data.size();
+    }
+
+    long getWeight() {
+        lock.lock();
+        try {
+            return totalWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    String getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return String.format("near cache hits=%.1f%% entries=%d bytes=%d evictions=%d", lookups == 0 ? 0 : hitCount * 100.0 / lookups, size(), getWeight(), evictions.sum());
+    }
+
+    // Bins plus a fixed overhead, the same sizes InMemoryCacheStore counts for memory_data_bytes
+    static int weigh(Key key, Record record) {
+        int weight = ENTRY_OVERHEAD_BYTES;
+        if (record.bins != null) {
+            for (Map.Entry<String, Object> bin : record.bins.entrySet()) {
+                weight += bin.getKey().length();
+                Object value = bin.getValue();
+                if (value instanceof byte[]) {
+                    weight += ((byte[]) value).length;
+                } else if (value instanceof String) {
+                    weight += InMemoryCacheStore.utf8Length((String) value);
+                } else {
+                    weight += 8;
+                }
+            }
+        }
+        return weight;
+    }
+
+    private void remove(Node node) {
+        lock.lock();
+        try {
+            if (data.remove(new DigestKey(node.key.digest), node)) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onAccess(Node node) {
+        sketch.increment(node.hash);
+        switch (node.queue) {
+            case WINDOW:
+                moveToLast(window, node);
+                break;
+            case PROBATION:
+                // Read again, promote and demote the protected region's least recent entries to make room
+                detach(node);
+                node.queue = PROTECTED;
+                linkLast(protectedQueue, node);
+                protectedWeight += node.weight;
+                while (protectedWeight > maximumProtectedWeight && protectedQueue.next != node) {
+                    Node demoted = protectedQueue.next;
+                    detach(demoted);
+                    protectedWeight -= demoted.weight;
+                    demoted.queue = PROBATION;
+                    linkLast(probation, demoted);
+                }
+                break;
+            case PROTECTED:
+                moveToLast(protectedQueue, node);
+                break;
+        }
+    }
+
+    private void evict() {
+        // Entries leaving the window become admission candidates at the end of probation
+        while (windowWeight > maximumWindowWeight && window.next != window) {
+            Node candidate = window.next;
+            detach(candidate);
+            windowWeight -= candidate.weight;
+            candidate.queue = PROBATION;
+            linkLast(probation, candidate);
+        }
+
+        while (totalWeight > maximumWeight) {
+            Node victim = probation.next;
+            Node candidate = probation.prev;
+            if (victim == probation) {
+                // Nothing in probation, fall back to the least recent entry elsewhere
+                evictNode(protectedQueue.next != protectedQueue ? protectedQueue.next : window.next);
+            } else if (victim == candidate) {
+                evictNode(victim);
+            } else {
+                // TinyLFU admission: keep whichever of the two has been seen more often
+                evictNode(sketch.frequency(candidate.hash) > sketch.frequency(victim.hash) ? victim : candidate);
+            }
+        }
+    }
+
+    private void evictNode(Node node) {
+        data.remove(new DigestKey(node.key.digest), node);
+        unlink(node);
+        evictions.increment();
+    }
+
+    // Take the node out of its queue and the weights
+    private void unlink(Node node) {
+        if (node.queue == REMOVED) return;
+
+        if (node.queue == WINDOW) windowWeight -= node.weight;
+        if (node.queue == PROTECTED) protectedWeight -= node.weight;
+        totalWeight -= node.weight;
+        detach(node);
+        node.queue = REMOVED;
+    }
+
+    private static void detach(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static void linkLast(Node queue, Node node) {
+        node.prev = queue.prev;
+        node.next = queue;
+        queue.prev.next = node;
+        queue.prev = node;
+    }
+
+    private static void moveToLast(Node queue, Node node) {
+        detach(node);
+        linkLast(queue, node);
+    }
+
+    // Digests are uniformly distributed, any 4 bytes make a good hash
+    private static int hash(byte[] digest) {
+        return (digest[0] & 0xFF) | (digest[1] & 0xFF) << 8 | (digest[2] & 0xFF) << 16 | (digest[3] & 0xFF) << 24;
+    }
+
+    private static int stripe(byte[] digest) {
+        return hash(digest) & (INVALIDATION_STRIPES - 1);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Node
+    //
+    //   A cached record. expiresAtMillis and serverTouchedMillis move forward when a deferred touch reaches the store
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    static final class Node {
+        final Key key;
+        final Record record;
+        final int weight;
+        final int hash;
+        volatile long expiresAtMillis;
+        volatile long serverTouchedMillis;
+
+        // Set while a touch for this entry is queued or in flight, so hits in between don't queue another
+        final AtomicBoolean touchPending = new AtomicBoolean();
+
+        // Queue links, guarded by the cache's lock
+        private int queue;
+        private Node prev;
+        private Node next;
+
+        private Node(Key key, Record record, int weight, long expiresAtMillis, long serverTouchedMillis) {
+            this.key = key;
+            this.record = record;
+            this.weight = weight;
+            this.hash = key == null ? 0 : hash(key.digest);
+            this.expiresAtMillis = expiresAtMillis;
+            this.serverTouchedMillis = serverTouchedMillis;
+        }
+
+        private static Node sentinel() {
+            Node sentinel = new Node(null, null, 0, 0, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // FrequencySketch
+    //
+    //   Count-min sketch with 4 rows of counters capped at 15. All counters are halved once the number of increments
+    //   reaches ten times the width, so the sketch follows changes in popularity
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int[] SEEDS = {0x97CB3127, 0xB7B8C5A9, 0x8A2E5BC1, 0xC2B2AE35};
+
+        private final byte[] counters;
+        private final int width;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int size = 64;
+            while (size < expectedEntries) size <<= 1;
+            this.width = size;
+            this.counters = new byte[DEPTH * width];
+            this.sampleSize = 10 * width;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = indexOf(hash, row);
+                if (counters[index] < 15) {
+                    counters[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = 15;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, counters[indexOf(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private void reset() {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] >>= 1;
+            }
+            additions /= 2;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 17;
+            return row * width + (h & (width - 1));
+        }
+    }
+}
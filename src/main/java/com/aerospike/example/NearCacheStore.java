@@ -0,0 +1,260 @@
+package com.aerospike.example;
+
+import com.aerospike.client.*;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+
+import java.util.Map;
+import java.util.concurrent.*;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// NearCacheStore
+//
+//   GIVEN  a store and a near cache size in bytes
+//   WHEN   keeping records alive with touch + get, or reading them
+//   THEN   serve hits from the in process NearCache without a round trip
+//   THEN   defer the touch: a hit only queues one once the record has used up touchFraction of its TTL on the store,
+//          and hits while it's queued or in flight don't queue another. Queued touches go out through a
+//          KeepAlivePipeline, so they reach the store at most once per touchFraction of the TTL per record however
+//          often it's read
+//   THEN   keep the near cache consistent with the store: entries expire when the store's copy does, writes and
+//          deletes through this store (including eviction passes) drop the entry, and a touch that finds the record
+//          gone drops it too. A miss doesn't cache what it read when the entry was dropped while it was reading
+//
+//   Eviction reads TTLs on the store, so with deferred touches recency is only as fine grained as touchFraction
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class NearCacheStore implements CacheStore {
+    static final double DEFAULT_TOUCH_FRACTION = 0.25;
+
+    private static final long FLUSH_INTERVAL_MILLIS = 100;
+
+    private final CacheStore store;
+    private final NearCache cache;
+    private final double touchFraction;
+
+    // Only the new expiration is needed back
+    private final KeepAlivePipeline touches;
+
+    NearCacheStore(CacheStore store, long maximumBytes) {
+        this(store, maximumBytes, DEFAULT_TOUCH_FRACTION);
+    }
+
+    NearCacheStore(CacheStore store, long maximumBytes, double touchFraction) {
+        if (touchFraction <= 0 || touchFraction >= 1) {
+            throw new IllegalArgumentException("Touch fraction must be between 0 and 1, the store would expire hot records: " + touchFraction);
+        }
+        this.store = store;
+        this.cache = new NearCache(maximumBytes);
+        this.touchFraction = touchFraction;
+        this.touches = new KeepAlivePipeline(store, KeepAlivePipeline.DEFAULT_BATCH_SIZE, FLUSH_INTERVAL_MILLIS, KeepAlivePipeline.DEFAULT_MAX_IN_FLIGHT, Operation.touch(), Operation.getHeader());
+    }
+
+    NearCache getNearCache() {
+        return cache;
+    }
+
+    public Record operate(WritePolicy policy, Key key, Operation... operations) {
+        if (!isKeepAlive(operations)) {
+            return write(key, () -> store.operate(policy, key, operations));
+        }
+
+        long nowMillis = System.currentTimeMillis();
+        NearCache.Node node = cache.get(key.digest, nowMillis);
+        if (node != null) {
+            touchLater(node, policy, nowMillis);
+            return node.record;
+        }
+        long invalidations = cache.invalidations(key.digest);
+        return cache(key, store.operate(policy, key, operations), nowMillis, invalidations);
+    }
+
+    public CompletableFuture<Record> operateAsync(WritePolicy policy, Key key, Operation... operations) {
+        if (!isKeepAlive(operations)) {
+            cache.invalidate(key.digest);
+            return invalidateWhenDone(key, store.operateAsync(policy, key, operations));
+        }
+
+        long nowMillis = System.currentTimeMillis();
+        NearCache.Node node = cache.get(key.digest, nowMillis);
+        if (node != null) {
+            touchLater(node, policy, nowMillis);
+            return CompletableFuture.completedFuture(node.record);
+        }
+        long invalidations = cache.invalidations(key.digest);
+        return store.operateAsync(policy, key, operations).thenApply(record -> cache(key, record, nowMillis, invalidations));
+    }
+
+    public Record get(Policy policy, Key key) {
+        long nowMillis = System.currentTimeMillis();
+        NearCache.Node node = cache.get(key.digest, nowMillis);
+        if (node != null) return node.record;
+
+        long invalidations = cache.invalidations(key.digest);
+        return cache(key, store.get(policy, key), nowMillis, invalidations);
+    }
+
+    public CompletableFuture<Record> getAsync(Policy policy, Key key) {
+        long nowMillis = System.currentTimeMillis();
+        NearCache.Node node = cache.get(key.digest, nowMillis);
+        if (node != null) return CompletableFuture.completedFuture(node.record);
+
+        long invalidations = cache.invalidations(key.digest);
+        return store.getAsync(policy, key).thenApply(record -> cache(key, record, nowMillis, invalidations));
+    }
+
+    public void put(WritePolicy policy, Key key, Bin... bins) {
+        write(key, () -> {
+            store.put(policy, key, bins);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> putAsync(WritePolicy policy, Key key, Bin... bins) {
+        cache.invalidate(key.digest);
+        return invalidateWhenDone(key, store.putAsync(policy, key, bins));
+    }
+
+    public boolean delete(WritePolicy policy, Key key) {
+        return write(key, () -> store.delete(policy, key));
+    }
+
+    public CompletableFuture<Boolean> deleteAsync(WritePolicy policy, Key key) {
+        cache.invalidate(key.digest);
+        return invalidateWhenDone(key, store.deleteAsync(policy, key));
+    }
+
+    public void backgroundDelete(String namespace, String setName, RecordFilter filter) {
+        store.backgroundDelete(namespace, setName, filter);
+
+        // The store deleted what matched its TTLs, drop the entries whose store copy would have matched
+        long nowMillis = System.currentTimeMillis();
+        cache.invalidateIf(node -> node.key.namespace.equals(namespace) && setName.equals(node.key.setName)
+                && filter.matches(Math.max(0, (node.expiresAtMillis - nowMillis) / 1000), node.key.digest, node.record.bins));
+    }
+
+    public void scanAll(ScanPolicy policy, String namespace, String setName, RecordFilter filter, ScanCallback callback) {
+        store.scanAll(policy, namespace, setName, filter, callback);
+    }
+
+    public void scanPartition(ScanPolicy policy, String namespace, String setName, int partitionId, byte[] afterDigest, RecordFilter filter, ScanCallback callback) {
+        store.scanPartition(policy, namespace, setName, partitionId, afterDigest, filter, callback);
+    }
+
+    public void createIndex(String namespace, String setName, String binName) {
+        store.createIndex(namespace, setName, binName);
+    }
+
+    public void queryRange(QueryPolicy policy, String namespace, String setName, String binName, long begin, long end, RecordFilter filter, ScanCallback callback) {
+        store.queryRange(policy, namespace, setName, binName, begin, end, filter, callback);
+    }
+
+    public String[] getNodeNames() {
+        return store.getNodeNames();
+    }
+
+    public String nodeOf(Key key) {
+        return store.nodeOf(key);
+    }
+
+    public String info(String nodeName, String command) {
+        return store.info(nodeName, command);
+    }
+
+    public Map<String, String> info(String nodeName, String... commands) {
+        return store.info(nodeName, commands);
+    }
+
+    public WritePolicy newWritePolicy() {
+        return store.newWritePolicy();
+    }
+
+    public ScanPolicy newScanPolicy() {
+        return store.newScanPolicy();
+    }
+
+    public QueryPolicy newQueryPolicy() {
+        return store.newQueryPolicy();
+    }
+
+    public String getConnectionStats() {
+        String connectionStats = store.getConnectionStats();
+        return cache.getStats() + " | " + touches.getStats() + (connectionStats.isEmpty() ? "" : " | " + connectionStats);
+    }
+
+    public void close() {
+        // Send what's still queued so hot records don't expire early on the store
+        touches.close();
+
+        cache.clear();
+        store.close();
+    }
+
+    // Touch + get of the whole record, the operation the cache keeps records alive with
+    static boolean isKeepAlive(Operation[] operations) {
+        if (operations.length != 2) return false;
+
+        boolean touch = false;
+        boolean readAll = false;
+        for (Operation operation : operations) {
+            if (operation.type == Operation.Type.TOUCH) touch = true;
+            if (operation.type == Operation.Type.READ && operation.binName == null) readAll = true;
+        }
+        return touch && readAll;
+    }
+
+    // invalidations was taken before the store call, see NearCache.invalidations
+    private Record cache(Key key, Record record, long nowMillis, long invalidations) {
+        if (record == null) {
+            cache.invalidate(key.digest);
+            return null;
+        }
+
+        long expiresAtMillis = record.expiration == 0 ? Long.MAX_VALUE : nowMillis + record.getTimeToLive() * 1000L;
+        cache.put(key, record, expiresAtMillis, nowMillis, invalidations);
+        return record;
+    }
+
+    // Drop the entry before and after the write, a read that loaded the old copy in between doesn't survive it
+    private <T> T write(Key key, Callable<T> write) {
+        cache.invalidate(key.digest);
+        try {
+            return write.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new AerospikeException(e);
+        } finally {
+            cache.invalidate(key.digest);
+        }
+    }
+
+    private <T> CompletableFuture<T> invalidateWhenDone(Key key, CompletableFuture<T> future) {
+        return future.whenComplete((result, e) -> cache.invalidate(key.digest));
+    }
+
+    private void touchLater(NearCache.Node node, WritePolicy policy, long nowMillis) {
+        // Never expires on the store, nothing to keep alive
+        if (node.expiresAtMillis == Long.MAX_VALUE) return;
+
+        long touchDueMillis = node.serverTouchedMillis + (long) ((node.expiresAtMillis - node.serverTouchedMillis) * touchFraction);
+        if (nowMillis < touchDueMillis || !node.touchPending.compareAndSet(false, true)) return;
+
+        // Measured from the request, the store's TTL starts no earlier than that
+        touches.keepAlive(node.key, policy != null ? policy.expiration : 0).whenComplete((record, e) -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if ((cause == null && record == null) || (cause instanceof AerospikeException && ((AerospikeException) cause).getResultCode() == ResultCode.KEY_NOT_FOUND_ERROR)) {
+                // Expired or deleted on the store (e.g. evicted by another client)
+                cache.invalidate(node.key.digest);
+            } else if (cause == null) {
+                node.serverTouchedMillis = nowMillis;
+                node.expiresAtMillis = record.expiration == 0 ? Long.MAX_VALUE : nowMillis + record.getTimeToLive() * 1000L;
+            }
+            // Other errors: the next hit queues the touch again
+            node.touchPending.set(false);
+        });
+    }
+}
@@ -0,0 +1,168 @@
+package com.aerospike.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// NodeInfoCollector
+//
+//   GIVEN  an info command to run on every node in the cluster
+//   WHEN   collecting the responses
+//   THEN   ask all nodes at the same time and wait no longer than the deadline, so collection time stays flat as
+//          nodes are added and a slow node can't hold up the caller
+//   THEN   report which nodes answered, callers decide whether partial coverage is good enough
+//   THEN   time every node's answer (lru.info.latency) and count the nodes that failed or missed the deadline
+//          (lru.info.errors)
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class NodeInfoCollector {
+    static final long DEFAULT_TIMEOUT_MILLIS = 1000;
+
+    // Info requests block on the node's socket, run them off the caller's thread. Threads are only kept while busy.
+    // Created on the first request, after Main has chosen between virtual and platform threads
+    private static final class Executor {
+        static final ExecutorService INSTANCE = Executors.newCachedThreadPool(Threads.factory("node-info"));
+    }
+
+    private final CacheStore store;
+    private final long timeoutMillis;
+
+    NodeInfoCollector(CacheStore store) {
+        this(store, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    NodeInfoCollector(CacheStore store, long timeoutMillis) {
+        this.store = store;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    CacheStore getStore() {
+        return store;
+    }
+
+    Responses<String> request(String command) {
+        return collect(nodeName -> store.info(nodeName, command));
+    }
+
+    // Several commands in one request per node, each node's responses are keyed by command
+    Responses<Map<String, String>> request(String... commands) {
+        return collect(nodeName -> store.info(nodeName, commands));
+    }
+
+    private <T> Responses<T> collect(NodeRequest<T> nodeRequest) {
+        String[] nodeNames = store.getNodeNames();
+        Responses<T> responses = new Responses<>(nodeNames);
+
+        // Off the caller's thread even for a single node, so the deadline always holds
+        List<Future<T>> futures = new ArrayList<>(nodeNames.length);
+        for (String nodeName : nodeNames) {
+            futures.add(Executor.INSTANCE.submit(() -> timed(nodeRequest, nodeName)));
+        }
+
+        // One deadline for all nodes, they were all asked at the same time
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (int i = 0; i < nodeNames.length; i++) {
+            Future<T> future = futures.get(i);
+            try {
+                responses.responses[i] = future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                responses.errors[i] = new TimeoutException("No response from " + nodeNames[i] + " within " + timeoutMillis + "ms");
+            } catch (ExecutionException e) {
+                responses.errors[i] = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                responses.errors[i] = e;
+            }
+            if (responses.errors[i] != null) {
+                Metrics.GLOBAL.counter("lru.info.errors", "node", nodeNames[i]).increment();
+            }
+        }
+        return responses;
+    }
+
+    // Only answers are timed, a node that missed the deadline shows up in lru.info.errors
+    private static <T> T timed(NodeRequest<T> nodeRequest, String nodeName) throws Exception {
+        long startNanos = System.nanoTime();
+        T response = nodeRequest.request(nodeName);
+        Metrics.GLOBAL.timer("lru.info.latency", "node", nodeName).recordSince(startNanos);
+        return response;
+    }
+
+    private interface NodeRequest<T> {
+        T request(String nodeName) throws Exception;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Responses
+    //
+    //   One entry per node, the response is null when the node failed or missed the deadline (see getError)
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    static final class Responses<T> {
+        final String[] nodeNames;
+        private final Object[] responses;
+        private final Exception[] errors;
+
+        private Responses(String[] nodeNames) {
+            this.nodeNames = nodeNames;
+            this.responses = new Object[nodeNames.length];
+            this.errors = new Exception[nodeNames.length];
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int nodeIndex) {
+            return (T) responses[nodeIndex];
+        }
+
+        Exception getError(int nodeIndex) {
+            return errors[nodeIndex];
+        }
+
+        // The node's response turned out to be unusable, count it as not responded
+        void fail(int nodeIndex, Exception error) {
+            responses[nodeIndex] = null;
+            errors[nodeIndex] = error;
+        }
+
+        // One command's responses out of a multi command request
+        static Responses<String> select(Responses<Map<String, String>> batch, String command) {
+            Responses<String> selected = new Responses<>(batch.nodeNames);
+            for (int i = 0; i < batch.nodeNames.length; i++) {
+                Map<String, String> nodeResponses = batch.get(i);
+                if (nodeResponses == null) {
+                    selected.errors[i] = batch.errors[i];
+                } else if (nodeResponses.containsKey(command)) {
+                    selected.responses[i] = nodeResponses.get(command);
+                } else {
+                    selected.errors[i] = new IllegalStateException("No response to " + command + " from " + batch.nodeNames[i]);
+                }
+            }
+            return selected;
+        }
+
+        int getNodeCount() {
+            return nodeNames.length;
+        }
+
+        int getRespondedCount() {
+            int responded = 0;
+            for (Object response : responses) {
+                if (response != null) responded++;
+            }
+            return responded;
+        }
+
+        boolean isComplete() {
+            return getRespondedCount() == nodeNames.length;
+        }
+
+        // Fraction of nodes that responded, 0 for an empty cluster
+        double getCoverage() {
+            return nodeNames.length == 0 ? 0 : (double) getRespondedCount() / nodeNames.length;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.aerospike.example;
+
+import com.aerospike.client.ResultCode;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// OperationTracer
+//
+//   GIVEN  store operations (keep alive, put, delete, scan callback, info request, ...) and eviction passes, each with
+//          its node, partition, latency and result code
+//   WHEN   one in sampleRate operations is kept, and every operation slower than slowNanos or failing
+//   THEN   the kept events go into a fixed size ring buffer, the oldest overwritten first
+//   THEN   dump the last N seconds on demand, oldest first, to line eviction passes up with foreground latency
+//
+//   Off until configured. Recording claims a slot with one atomic increment and stores an immutable event, writers
+//   never wait for each other or for a dump. A dump taken while writers wrap around may miss the events overwritten
+//   during it
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class OperationTracer {
+    static final OperationTracer GLOBAL = new OperationTracer();
+
+    static final String DEFAULT_SPEC = "sample=100,slow-ms=10,size=65536";
+
+    static final int NO_PARTITION = -1;
+
+    enum OperationType {
+        KEEP_ALIVE, OPERATE, GET, PUT, DELETE, SCAN, SCAN_CALLBACK, QUERY, BACKGROUND_DELETE, INFO, EVICTION_PASS
+    }
+
+    private volatile boolean enabled;
+    private volatile int sampleRate;
+    private volatile long slowNanos;
+    private volatile AtomicReferenceArray<Event> events = new AtomicReferenceArray<>(1);
+    private final AtomicLong sequence = new AtomicLong();
+
+    // e.g. "sample=100,slow-ms=10,size=65536": keep 1 in 100 operations and all over 10ms in the last 65536 events
+    OperationTracer configure(String spec) {
+        int sample = 100;
+        long slowMillis = 10;
+        int size = 65536;
+        for (String setting : spec.split(",")) {
+            setting = setting.trim();
+            if (setting.isEmpty()) continue;
+
+            String[] nameValue = setting.split("=");
+            if (nameValue.length != 2) {
+                throw new IllegalArgumentException("Expected name=value in: " + setting);
+            }
+            String value = nameValue[1].trim();
+            switch (nameValue[0].trim()) {
+                case "sample":
+                    sample = Integer.parseInt(value);
+                    break;
+                case "slow-ms":
+                    slowMillis = Long.parseLong(value);
+                    break;
+                case "size":
+                    size = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting: " + setting);
+            }
+        }
+        if (sample <= 0 || size <= 0) {
+            throw new IllegalArgumentException("Expected sample and size above 0 in: " + spec);
+        }
+
+        // A power of two so the slot is the sequence's low bits
+        int capacity = Integer.highestOneBit(size);
+        capacity = capacity < size ? capacity << 1 : capacity;
+
+        this.sampleRate = sample;
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMillis);
+        this.events = new AtomicReferenceArray<>(capacity);
+        this.enabled = true;
+        System.out.println("Tracing 1 in " + sample + " operations and all over " + slowMillis + "ms or failing, last " + capacity + " events");
+        return this;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    // Cheap enough for every operation: decides whether this one is kept before anything is allocated. The node is
+    // only looked up for kept events, see TracingCacheStore
+    boolean shouldRecord(long latencyNanos, int resultCode) {
+        return enabled && (latencyNanos >= slowNanos || isFailure(resultCode) || ThreadLocalRandom.current().nextInt(sampleRate) == 0);
+    }
+
+    // Kept whatever the sampling, passes are rare and the point of the trace. The node column holds the set
+    void recordPass(String set, long startNanos, long removed) {
+        if (!enabled) return;
+
+        long latencyNanos = System.nanoTime() - startNanos;
+        record(OperationType.EVICTION_PASS, set, NO_PARTITION, latencyNanos, ResultCode.OK, removed);
+    }
+
+    // node may be null when not known, count is what the operation handled: records scanned, records removed, ...
+    void record(OperationType operation, String node, int partition, long latencyNanos, int resultCode, long count) {
+        AtomicReferenceArray<Event> ring = events;
+        long slot = sequence.getAndIncrement();
+        ring.lazySet((int) (slot & (ring.length() - 1)), new Event(System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(latencyNanos), operation, node, partition, latencyNanos, resultCode, count));
+    }
+
+    // Events that started in the last seconds, oldest first
+    List<Event> snapshot(long seconds) {
+        AtomicReferenceArray<Event> ring = events;
+        long sinceMillis = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(seconds);
+        List<Event> recent = new ArrayList<>();
+        for (int i = 0; i < ring.length(); i++) {
+            Event event = ring.get(i);
+            if (event != null && event.startMillis >= sinceMillis) {
+                recent.add(event);
+            }
+        }
+        Collections.sort(recent, (a, b) -> Long.compare(a.startMillis, b.startMillis));
+        return recent;
+    }
+
+    String dump(long seconds) {
+        List<Event> recent = snapshot(seconds);
+        StringBuilder text = new StringBuilder();
+        text.append("# ").append(recent.size()).append(" events in the last ").append(seconds).append("s, sample 1 in ").append(sampleRate)
+                .append(", all over ").append(TimeUnit.NANOSECONDS.toMillis(slowNanos)).append("ms or failing\n");
+        text.append("# start operation node|set partition latency_us result_code count\n");
+        for (Event event : recent) {
+            text.append(event).append('\n');
+        }
+        return text.toString();
+    }
+
+    // GET /trace?seconds=N on the metrics server, the last 60 seconds by default
+    void serveOn(HttpServer server) {
+        server.createContext("/trace", exchange -> {
+            long seconds = 60;
+            String query = exchange.getRequestURI().getQuery();
+            if (query != null && query.startsWith("seconds=")) {
+                try {
+                    seconds = Long.parseLong(query.substring("seconds=".length()));
+                } catch (NumberFormatException e) {
+                    // Keep the default
+                }
+            }
+
+            byte[] body = dump(seconds).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (IOException e) {
+                // The client went away
+            }
+        });
+    }
+
+    // Not found is an answer, not a failure: touches of expired records and deletes of records already gone
+    private static boolean isFailure(int resultCode) {
+        return resultCode != ResultCode.OK && resultCode != ResultCode.KEY_NOT_FOUND_ERROR;
+    }
+
+    static final class Event {
+        final long startMillis;
+        final OperationType operation;
+        final String node;
+        final int partition;
+        final long latencyNanos;
+        final int resultCode;
+        final long count;
+
+        Event(long startMillis, OperationType operation, String node, int partition, long latencyNanos, int resultCode, long count) {
+            this.startMillis = startMillis;
+            this.operation = operation;
+            this.node = node;
+            this.partition = partition;
+            this.latencyNanos = latencyNanos;
+            this.resultCode = resultCode;
+            this.count = count;
+        }
+
+        public String toString() {
+            return new SimpleDateFormat("HH:mm:ss.SSS").format(new Date(startMillis)) + " " + operation + " " + (node == null ? "-" : node) + " "
+                    + (partition == NO_PARTITION ? "-" : String.valueOf(partition)) + " " + TimeUnit.NANOSECONDS.toMicros(latencyNanos) + " " + resultCode + " " + count;
+        }
+    }
+}
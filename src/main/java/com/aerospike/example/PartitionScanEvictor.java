@@ -0,0 +1,244 @@
+package com.aerospike.example;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.policy.ScanPolicy;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// PartitionScanEvictor
+//
+//   GIVEN  a number of records at or below a TTL watermark to remove
+//   WHEN   evicting
+//   THEN   scan the 4096 partitions one at a time on a pool of workers, deleting records the server's TTL filter sends
+//          back, and stop every partition scan in flight as soon as the goal is met
+//   THEN   remember where each interrupted partition stopped and which partitions were scanned to the end, so the next
+//          pass carries on with the partitions this round hasn't finished, from where they stopped. Finished partitions
+//          are only scanned again once every partition has been (a new round), or when the others don't hold enough
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class PartitionScanEvictor implements Closeable {
+    static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors();
+
+    private static final int PARTITIONS = Node.PARTITIONS;
+
+    private final int workerCount;
+    private final ExecutorService workers;
+    private final boolean ownsWorkers;
+
+    // Cursor: first partition of the next pass, the last digest handled in partitions that were stopped part way, and
+    // the partitions scanned to the end in this round
+    private int nextPartition = 0;
+    private final byte[][] resumeDigests = new byte[PARTITIONS][];
+    private final boolean[] finished = new boolean[PARTITIONS];
+
+    PartitionScanEvictor() {
+        this(DEFAULT_WORKERS);
+    }
+
+    PartitionScanEvictor(int workerCount) {
+        this(Executors.newFixedThreadPool(Math.max(1, workerCount), Threads.factory("eviction-scan")), workerCount, true);
+    }
+
+    // Run on a pool shared with other evictors, workerCount is how many of its threads one pass uses at most
+    PartitionScanEvictor(ExecutorService workers, int workerCount) {
+        this(workers, workerCount, false);
+    }
+
+    private PartitionScanEvictor(ExecutorService workers, int workerCount, boolean ownsWorkers) {
+        this.workerCount = Math.max(1, workerCount);
+        this.workers = workers;
+        this.ownsWorkers = ownsWorkers;
+    }
+
+    synchronized int getNextPartition() {
+        return nextPartition;
+    }
+
+    // Copy of the last digest handled per partition, null for partitions not stopped part way
+    synchronized byte[][] getResumeDigests() {
+        return resumeDigests.clone();
+    }
+
+    // Copy of the partitions scanned to the end in this round
+    synchronized boolean[] getFinishedPartitions() {
+        return finished.clone();
+    }
+
+    // Carry on from cursors saved by an earlier run, see EvictionCheckpoint
+    synchronized void restore(int nextPartition, byte[][] resumeDigests, boolean[] finished) {
+        if (resumeDigests.length != PARTITIONS || finished.length != PARTITIONS) {
+            throw new IllegalArgumentException("Expected cursors for " + PARTITIONS + " partitions, got " + resumeDigests.length + " and " + finished.length);
+        }
+        this.nextPartition = Math.floorMod(nextPartition, PARTITIONS);
+        System.arraycopy(resumeDigests, 0, this.resumeDigests, 0, PARTITIONS);
+        System.arraycopy(finished, 0, this.finished, 0, PARTITIONS);
+    }
+
+    // Returns the number of records removed, no more than objectsToRemove. One pass at a time
+    long evict(CacheStore store, String namespace, String setName, long ttlLowWatermark, long objectsToRemove) {
+        return evict(store, namespace, setName, RecordFilter.ttlAtMost(ttlLowWatermark), objectsToRemove);
+    }
+
+    // Records matching filter, the partition cursors are shared by every filter
+    synchronized long evict(CacheStore store, String namespace, String setName, RecordFilter filter, long objectsToRemove) {
+        if (objectsToRemove <= 0) return 0;
+
+        ScanPolicy policy = store.newScanPolicy();
+        policy.includeBinData = false;
+
+        // Partitions this round hasn't finished first, from the next partition on, then the finished ones in case
+        // the others don't hold enough
+        int[] order = new int[PARTITIONS];
+        int units = 0;
+        for (boolean unfinishedFirst : new boolean[]{true, false}) {
+            for (int i = 0; i < PARTITIONS; i++) {
+                int partitionId = (nextPartition + i) % PARTITIONS;
+                if (finished[partitionId] != unfinishedFirst) order[units++] = partitionId;
+            }
+        }
+
+        Pass pass = new Pass(store, namespace, setName, policy, filter, filter.getTtlAtMost(), objectsToRemove, order);
+
+        List<Callable<Void>> tasks = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            tasks.add(() -> {
+                pass.runWorker();
+                return null;
+            });
+        }
+
+        try {
+            workers.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pass.goalReached.set(true);
+        }
+
+        // Next pass starts at the first partition not finished yet, a new round once every partition is
+        int next = 0;
+        while (next < PARTITIONS && finished[(nextPartition + next) % PARTITIONS]) next++;
+        if (next == PARTITIONS) {
+            Arrays.fill(finished, false);
+            next = 0;
+        }
+        nextPartition = (nextPartition + next) % PARTITIONS;
+
+        return pass.removed.get();
+    }
+
+    public void close() {
+        if (ownsWorkers) {
+            workers.shutdownNow();
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Pass
+    //
+    //   One eviction pass: workers take the next partition in order until every partition is scanned or the goal met.
+    //   Each partition is only scanned by one worker, which updates its cursor
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private class Pass {
+        final CacheStore store;
+        final String namespace;
+        final String setName;
+        final ScanPolicy policy;
+        final RecordFilter filter;
+        final long ttlLowWatermark;
+        final long objectsToRemove;
+        final int[] order;
+
+        final AtomicInteger nextUnit = new AtomicInteger();
+        final AtomicLong removed = new AtomicLong();
+        final AtomicBoolean goalReached = new AtomicBoolean();
+
+        final Metrics.Counter scanned;
+        final Metrics.Timer deletes;
+
+        Pass(CacheStore store, String namespace, String setName, ScanPolicy policy, RecordFilter filter, long ttlLowWatermark, long objectsToRemove, int[] order) {
+            this.store = store;
+            this.namespace = namespace;
+            this.setName = setName;
+            this.policy = policy;
+            this.filter = filter;
+            this.ttlLowWatermark = ttlLowWatermark;
+            this.objectsToRemove = objectsToRemove;
+            this.order = order;
+            this.scanned = ManageMaxObjectsInLRUCachePolicy.ForceObjectEvictionPolicy.scannedCounter(namespace, setName);
+            this.deletes = ManageMaxObjectsInLRUCachePolicy.ForceObjectEvictionPolicy.deleteTimer(namespace, setName);
+        }
+
+        void runWorker() {
+            while (!goalReached.get()) {
+                int unit = nextUnit.getAndIncrement();
+                if (unit >= PARTITIONS) return;
+
+                int partitionId = order[unit];
+                finished[partitionId] = scanPartition(partitionId);
+            }
+        }
+
+        // True when the whole partition was scanned
+        private boolean scanPartition(int partitionId) {
+            byte[][] lastDigest = {resumeDigests[partitionId]};
+
+            try {
+                store.scanPartition(policy, namespace, setName, partitionId, lastDigest[0], filter, (key, record) -> {
+                    // Another worker met the goal
+                    if (goalReached.get()) {
+                        throw new AerospikeException.ScanTerminated();
+                    }
+
+                    scanned.increment();
+                    if (record.getTimeToLive() <= ttlLowWatermark) {
+                        // Reserve the delete first so workers together never remove more than the goal
+                        long reserved = removed.incrementAndGet();
+                        if (reserved > objectsToRemove) {
+                            removed.decrementAndGet();
+                            goalReached.set(true);
+                            throw new AerospikeException.ScanTerminated();
+                        }
+
+                        long deleteStartNanos = System.nanoTime();
+                        boolean deleted = store.delete(null, key);
+                        deletes.recordSince(deleteStartNanos);
+                        if (!deleted) {
+                            // Already gone (expired or deleted elsewhere)
+                            removed.decrementAndGet();
+                        } else if (reserved == objectsToRemove) {
+                            goalReached.set(true);
+                            lastDigest[0] = key.digest;
+                            throw new AerospikeException.ScanTerminated();
+                        }
+                    }
+                    lastDigest[0] = key.digest;
+                });
+
+                resumeDigests[partitionId] = null;
+                return true;
+
+            } catch (AerospikeException.ScanTerminated e) {
+                resumeDigests[partitionId] = lastDigest[0];
+                return false;
+
+            } catch (AerospikeException e) {
+                // Try the partition again on the next pass
+                System.out.println("Partition " + partitionId + " scan > ERROR: " + e.getMessage());
+                resumeDigests[partitionId] = lastDigest[0];
+                return false;
+            }
+        }
+    }
+}
@@ -3,23 +3,25 @@ package com.aerospike.example;
 import com.aerospike.client.*;
 import com.aerospike.client.policy.WritePolicy;
 
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class RandomObjectGeneratorPolicy implements Runnable {
-    AerospikeClient client;
+    CacheStore store;
     private AtomicBoolean cancelled;
     private String namespace;
     private String setName;
     private String binName;
     private int configTTL;
     private int maxObjectsToCreateRandomly;
+    private TtlTiers tiers;
     private static Random random = new Random(LocalDateTime.now().getNano() * LocalDateTime.now().getSecond());
 
-    public RandomObjectGeneratorPolicy(AtomicBoolean cancelled, AerospikeClient client, String namespace, String setName, String binName, int configTTL, int maxObjectsToCreateRandomly) {
-        this.client = client;
+    public RandomObjectGeneratorPolicy(AtomicBoolean cancelled, CacheStore store, String namespace, String setName, String binName, int configTTL, int maxObjectsToCreateRandomly) {
+        this.store = store;
         this.cancelled = cancelled;
         this.namespace = namespace;
         this.setName = setName;
@@ -28,12 +30,17 @@ class RandomObjectGeneratorPolicy implements Runnable {
         this.maxObjectsToCreateRandomly = maxObjectsToCreateRandomly;
     }
 
+    // Write with the TTL of each key's tier, null for configTTL
+    void setTiers(TtlTiers tiers) {
+        this.tiers = tiers;
+    }
+
     public void run() {
 
         try {
             // Periodically show number objects in the various histogram TTL buckets
             while (!cancelled.get()) {
-                RandomObjectGenerator.generate(client, namespace, setName, binName, configTTL, random.nextInt(maxObjectsToCreateRandomly));
+                RandomObjectGenerator.generate(store, namespace, setName, binName, configTTL, random.nextInt(maxObjectsToCreateRandomly), 0, tiers);
 
                 Thread.sleep(2000);
             }
@@ -41,18 +48,15 @@ class RandomObjectGeneratorPolicy implements Runnable {
         } catch (Exception e) {
             // TODO:auto recovery after error
             e.printStackTrace();
-
-        } finally {
-            if (client != null) {
-                client.close();
-            }
         }
+
+        // The store is shared, whoever created it closes it
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // RandomObjectGenerator
     //
-    //   GIVEN  a specific TTL
+    //   GIVEN  a specific TTL, or TTL tiers
     //   GIVEN  the number of objects to create
     //   THEN   generate random objects in TTL buckets
     /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -65,31 +69,79 @@ class RandomObjectGeneratorPolicy implements Runnable {
         }
 
 
-        private static String generateRandomString(Random random) {
+        // Raw bytes, decoding random bytes as UTF-8 would replace invalid sequences and grow the value
+        private static byte[] generateRandomBytes(Random random) {
             byte[] array = new byte[16];
             random.nextBytes(array);
-            return new String(array, StandardCharsets.UTF_8);
+            return array;
+        }
+
+        public static List<String> generate(CacheStore store, String namespace, String set, String bin, int lruTTL_sec, int numberOfObjects) {
+            return generate(store, namespace, set, bin, lruTTL_sec, numberOfObjects, 0);
+        }
+
+        // maxInFlight > 0 writes with non-blocking puts, keeping at most that many outstanding
+        public static List<String> generate(CacheStore store, String namespace, String set, String bin, int lruTTL_sec, int numberOfObjects, int maxInFlight) {
+            return generate(store, namespace, set, bin, lruTTL_sec, numberOfObjects, maxInFlight, null);
         }
 
-        public static List<String> generate(AerospikeClient client, String namespace, String set, String bin, int lruTTL_sec, int numberOfObjects) {
-            WritePolicy writePolicy = new WritePolicy();
+        // tiers (null for none) set each record's TTL and tier bin from its key
+        public static List<String> generate(CacheStore store, String namespace, String set, String bin, int lruTTL_sec, int numberOfObjects, int maxInFlight, TtlTiers tiers) {
+            return generate(store, namespace, set, bin, lruTTL_sec, numberOfObjects, maxInFlight, tiers, lruTTL_sec);
+        }
+
+        // Waits a random 0 to maxDelayMillis after every record, 0 writes them back to back
+        public static List<String> generate(CacheStore store, String namespace, String set, String bin, int lruTTL_sec, int numberOfObjects, int maxInFlight, TtlTiers tiers, int maxDelayMillis) {
+            WritePolicy writePolicy = store.newWritePolicy();
             writePolicy.expiration = lruTTL_sec;
+            WritePolicy[] tierPolicies = new WritePolicy[tiers != null ? tiers.getTiers().size() : 0];
+            for (int i = 0; i < tierPolicies.length; i++) {
+                tierPolicies[i] = new WritePolicy(writePolicy);
+                tierPolicies[i].expiration = tiers.getTiers().get(i).ttl;
+            }
             String recordIdPrefix = "record_id-" + UUID.randomUUID() + "-";
             List<String> recordIds = new ArrayList<>();
+            Semaphore inFlight = maxInFlight > 0 ? new Semaphore(maxInFlight) : null;
+            AtomicInteger failures = new AtomicInteger();
 
             for (int i = 0; i < numberOfObjects; i++) {
                 String recordId = recordIdPrefix + i;
                 Key key = new Key(namespace, set, recordId);
-                client.put(writePolicy, key, new Bin(bin, generateRandomString(random)));
+                WritePolicy policy = writePolicy;
+                Bin[] bins = {new Bin(bin, generateRandomBytes(random))};
+                if (tiers != null) {
+                    TtlTiers.Tier tier = tiers.tierOf(key);
+                    policy = tierPolicies[tier.id];
+                    bins = new Bin[]{bins[0], new Bin(TtlTiers.BIN, (long) tier.id)};
+                }
+
+                if (inFlight != null) {
+                    inFlight.acquireUninterruptibly();
+                    store.putAsync(policy, key, bins).whenComplete((result, e) -> {
+                        if (e != null) failures.incrementAndGet();
+                        inFlight.release();
+                    });
+                } else {
+                    store.put(policy, key, bins);
+                }
                 recordIds.add(recordId);
 
 
-                // Launch at random times
-                int randomTime_sec = random.nextInt(lruTTL_sec);
-                try {
-                    Thread.sleep(randomTime_sec);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
+                // Launch at random times, up to maxDelayMillis milliseconds apart
+                if (maxDelayMillis > 0) {
+                    int randomDelayMillis = random.nextInt(maxDelayMillis);
+                    try {
+                        Thread.sleep(randomDelayMillis);
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+
+            if (inFlight != null) {
+                inFlight.acquireUninterruptibly(maxInFlight);
+                if (failures.get() > 0) {
+                    System.out.println("ERROR: Failed to create " + failures.get() + " LRU cache objects");
                 }
             }
 
@@ -0,0 +1,97 @@
+package com.aerospike.example;
+
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.exp.Expression;
+
+import java.util.Map;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// RecordFilter
+//
+//   GIVEN  a TTL watermark, optionally a range of the digest space and a TTL tier
+//   THEN   select the records at or below the watermark whose digest falls in that range and whose tier bin holds
+//          that tier (or, for the tier untiered records count towards, that have no tier bin)
+//
+//   Evaluated on the server as a filter expression, or in process by InMemoryCacheStore
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class RecordFilter {
+    private final long ttlAtMost;
+    private final int digestModulo;
+    private final long digestModuloFrom;
+    private final long digestModuloBelow;
+
+    // No tier condition when tierBin is null
+    private final String tierBin;
+    private final long tier;
+    private final boolean includeUntiered;
+
+    private RecordFilter(long ttlAtMost, int digestModulo, long digestModuloFrom, long digestModuloBelow, String tierBin, long tier, boolean includeUntiered) {
+        this.ttlAtMost = ttlAtMost;
+        this.digestModulo = digestModulo;
+        this.digestModuloFrom = digestModuloFrom;
+        this.digestModuloBelow = digestModuloBelow;
+        this.tierBin = tierBin;
+        this.tier = tier;
+        this.includeUntiered = includeUntiered;
+    }
+
+    static RecordFilter ttlAtMost(long ttlLowWatermark) {
+        return new RecordFilter(ttlLowWatermark, 0, 0, 0, null, 0, false);
+    }
+
+    // Keep only records where from <= digestModulo(modulo) < below, roughly (below - from)/modulo of the matching
+    // records. Disjoint ranges select disjoint records
+    RecordFilter withDigestRange(int modulo, long from, long below) {
+        return new RecordFilter(ttlAtMost, modulo, from, below, tierBin, tier, includeUntiered);
+    }
+
+    // Keep only records whose integer bin tierBin holds tier, and records without the bin when includeUntiered
+    RecordFilter withTier(String tierBin, long tier, boolean includeUntiered) {
+        return new RecordFilter(ttlAtMost, digestModulo, digestModuloFrom, digestModuloBelow, tierBin, tier, includeUntiered);
+    }
+
+    RecordFilter withTtlAtMost(long ttlLowWatermark) {
+        return new RecordFilter(ttlLowWatermark, digestModulo, digestModuloFrom, digestModuloBelow, tierBin, tier, includeUntiered);
+    }
+
+    long getTtlAtMost() {
+        return ttlAtMost;
+    }
+
+    // Whether matching needs the record's bins
+    boolean hasTier() {
+        return tierBin != null;
+    }
+
+    Expression toExpression() {
+        Exp exp = Exp.le(Exp.ttl(), Exp.val(ttlAtMost));
+        if (digestModulo > 0) {
+            exp = Exp.and(exp, Exp.lt(Exp.digestModulo(digestModulo), Exp.val(digestModuloBelow)));
+            if (digestModuloFrom > 0) {
+                exp = Exp.and(exp, Exp.ge(Exp.digestModulo(digestModulo), Exp.val(digestModuloFrom)));
+            }
+        }
+        if (tierBin != null) {
+            Exp inTier = Exp.eq(Exp.intBin(tierBin), Exp.val(tier));
+            exp = Exp.and(exp, includeUntiered ? Exp.or(Exp.not(Exp.binExists(tierBin)), inTier) : inTier);
+        }
+        return Exp.build(exp);
+    }
+
+    // bins may be null when the filter has no tier
+    boolean matches(long recordTTL, byte[] digest, Map<String, Object> bins) {
+        if (recordTTL > ttlAtMost) return false;
+        if (digestModulo > 0) {
+            // Approximates the server's digest modulo, digests are uniformly distributed so any 4 bytes will do
+            long value = (digest[4] & 0xFFL) | (digest[5] & 0xFFL) << 8 | (digest[6] & 0xFFL) << 16 | (digest[7] & 0xFFL) << 24;
+            long modulo = value % digestModulo;
+            if (modulo < digestModuloFrom || modulo >= digestModuloBelow) return false;
+        }
+        if (tierBin != null) {
+            Object value = bins == null ? null : bins.get(tierBin);
+            return value instanceof Number ? ((Number) value).longValue() == tier : value == null && includeUntiered;
+        }
+        return true;
+    }
+}
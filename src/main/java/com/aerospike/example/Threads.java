@@ -0,0 +1,95 @@
+package com.aerospike.example;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// Threads
+//
+//   GIVEN  a thread name and whether blocking store calls should run on virtual threads
+//   WHEN   the JVM has virtual threads (Java 21 and later)
+//   THEN   hand out virtual threads named name-0, name-1, ... A blocked call parks the virtual thread and frees its
+//          carrier, so a few carrier threads (one per CPU) run any number of logical clients
+//   THEN   otherwise hand out daemon platform threads with the same names, one warning says virtual threads were asked
+//          for and aren't there. Neither keeps the JVM alive, whoever starts a loop joins it (see Main)
+//
+//   The build targets Java 8, Thread.ofVirtual() is looked up by reflection instead of needing a Java 21 build.
+//   Every thread that makes blocking store calls (load generator and bulk loader workers, eviction passes and scans,
+//   info requests, the keep alive pipeline's sender, the policy and generator loops) comes from factory(name), which
+//   follows useVirtual
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class Threads {
+    // Thread.ofVirtual(), Thread.Builder.name(String, long) and Thread.Builder.factory(), null before Java 21
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+        } catch (ReflectiveOperationException e) {
+            // Platform threads only
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+    }
+
+    private static volatile boolean virtual;
+
+    private Threads() {
+    }
+
+    static boolean isVirtualAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    static boolean isVirtual() {
+        return virtual;
+    }
+
+    // Threads from factory(name) made after this are virtual when requested and available. Returns whether they are
+    static boolean useVirtual(boolean requested) {
+        if (requested && !isVirtualAvailable()) {
+            System.out.println("WARNING: Virtual threads need Java 21 or later, running on Java " + System.getProperty("java.version") + " with platform threads");
+        }
+        virtual = requested && isVirtualAvailable();
+        return virtual;
+    }
+
+    static ThreadFactory factory(String name) {
+        return factory(name, virtual);
+    }
+
+    // Virtual threads when virtual and available, daemon platform threads otherwise
+    static ThreadFactory factory(String name, boolean virtual) {
+        if (virtual && isVirtualAvailable()) {
+            try {
+                return (ThreadFactory) FACTORY.invoke(NAME.invoke(OF_VIRTUAL.invoke(null), name + "-", 0L));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Can't create virtual threads", e);
+            }
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + next.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    static Thread start(String name, Runnable task) {
+        Thread thread = factory(name).newThread(task);
+        thread.start();
+        return thread;
+    }
+}
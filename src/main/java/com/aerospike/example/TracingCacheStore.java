@@ -0,0 +1,287 @@
+package com.aerospike.example;
+
+import com.aerospike.client.*;
+import com.aerospike.client.Record;
+import com.aerospike.client.cluster.Partition;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.example.OperationTracer.OperationType;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// TracingCacheStore
+//
+//   GIVEN  a store and an OperationTracer
+//   THEN   time every call (sync calls until they return, async calls until their future completes) and hand the
+//          latency and result code to the tracer: not found for a missing record, the server's code for an
+//          AerospikeException, CLIENT_ERROR for anything else
+//   THEN   time each scan (or query) callback on its own as well as the whole scan, a slow callback holds up the scan's
+//          thread
+//
+//   Wrap the store under the near cache, so the trace shows the round trips the store actually made
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class TracingCacheStore implements CacheStore {
+    private final CacheStore store;
+    private final OperationTracer tracer;
+
+    TracingCacheStore(CacheStore store, OperationTracer tracer) {
+        this.store = store;
+        this.tracer = tracer;
+    }
+
+    public void put(WritePolicy policy, Key key, Bin... bins) {
+        long startNanos = System.nanoTime();
+        try {
+            store.put(policy, key, bins);
+        } catch (RuntimeException e) {
+            failed(OperationType.PUT, key, startNanos, e);
+            throw e;
+        }
+        done(OperationType.PUT, key, startNanos, ResultCode.OK);
+    }
+
+    public Record get(Policy policy, Key key) {
+        long startNanos = System.nanoTime();
+        Record record;
+        try {
+            record = store.get(policy, key);
+        } catch (RuntimeException e) {
+            failed(OperationType.GET, key, startNanos, e);
+            throw e;
+        }
+        done(OperationType.GET, key, startNanos, record == null ? ResultCode.KEY_NOT_FOUND_ERROR : ResultCode.OK);
+        return record;
+    }
+
+    public Record operate(WritePolicy policy, Key key, Operation... operations) {
+        OperationType operation = NearCacheStore.isKeepAlive(operations) ? OperationType.KEEP_ALIVE : OperationType.OPERATE;
+        long startNanos = System.nanoTime();
+        Record record;
+        try {
+            record = store.operate(policy, key, operations);
+        } catch (RuntimeException e) {
+            failed(operation, key, startNanos, e);
+            throw e;
+        }
+        done(operation, key, startNanos, record == null ? ResultCode.KEY_NOT_FOUND_ERROR : ResultCode.OK);
+        return record;
+    }
+
+    public boolean delete(WritePolicy policy, Key key) {
+        long startNanos = System.nanoTime();
+        boolean existed;
+        try {
+            existed = store.delete(policy, key);
+        } catch (RuntimeException e) {
+            failed(OperationType.DELETE, key, startNanos, e);
+            throw e;
+        }
+        done(OperationType.DELETE, key, startNanos, existed ? ResultCode.OK : ResultCode.KEY_NOT_FOUND_ERROR);
+        return existed;
+    }
+
+    public CompletableFuture<Void> putAsync(WritePolicy policy, Key key, Bin... bins) {
+        return traced(OperationType.PUT, key, System.nanoTime(), store.putAsync(policy, key, bins));
+    }
+
+    public CompletableFuture<Record> getAsync(Policy policy, Key key) {
+        return traced(OperationType.GET, key, System.nanoTime(), store.getAsync(policy, key));
+    }
+
+    public CompletableFuture<Record> operateAsync(WritePolicy policy, Key key, Operation... operations) {
+        OperationType operation = NearCacheStore.isKeepAlive(operations) ? OperationType.KEEP_ALIVE : OperationType.OPERATE;
+        return traced(operation, key, System.nanoTime(), store.operateAsync(policy, key, operations));
+    }
+
+    public CompletableFuture<Boolean> deleteAsync(WritePolicy policy, Key key) {
+        return traced(OperationType.DELETE, key, System.nanoTime(), store.deleteAsync(policy, key));
+    }
+
+    public void scanAll(ScanPolicy policy, String namespace, String setName, RecordFilter filter, ScanCallback callback) {
+        LongAdder scanned = new LongAdder();
+        long startNanos = System.nanoTime();
+        int resultCode = ResultCode.OK;
+        try {
+            store.scanAll(policy, namespace, setName, filter, tracedCallback(callback, scanned));
+        } catch (RuntimeException e) {
+            resultCode = resultCode(e);
+            throw e;
+        } finally {
+            long latencyNanos = System.nanoTime() - startNanos;
+            if (tracer.shouldRecord(latencyNanos, resultCode)) {
+                tracer.record(OperationType.SCAN, null, OperationTracer.NO_PARTITION, latencyNanos, resultCode, scanned.sum());
+            }
+        }
+    }
+
+    public void scanPartition(ScanPolicy policy, String namespace, String setName, int partitionId, byte[] afterDigest, RecordFilter filter, ScanCallback callback) {
+        LongAdder scanned = new LongAdder();
+        long startNanos = System.nanoTime();
+        int resultCode = ResultCode.OK;
+        try {
+            store.scanPartition(policy, namespace, setName, partitionId, afterDigest, filter, tracedCallback(callback, scanned));
+        } catch (RuntimeException e) {
+            resultCode = resultCode(e);
+            throw e;
+        } finally {
+            long latencyNanos = System.nanoTime() - startNanos;
+            if (tracer.shouldRecord(latencyNanos, resultCode)) {
+                tracer.record(OperationType.SCAN, null, partitionId, latencyNanos, resultCode, scanned.sum());
+            }
+        }
+    }
+
+    public void createIndex(String namespace, String setName, String binName) {
+        store.createIndex(namespace, setName, binName);
+    }
+
+    public void queryRange(QueryPolicy policy, String namespace, String setName, String binName, long begin, long end, RecordFilter filter, ScanCallback callback) {
+        LongAdder returned = new LongAdder();
+        long startNanos = System.nanoTime();
+        int resultCode = ResultCode.OK;
+        try {
+            store.queryRange(policy, namespace, setName, binName, begin, end, filter, tracedCallback(callback, returned));
+        } catch (RuntimeException e) {
+            resultCode = resultCode(e);
+            throw e;
+        } finally {
+            long latencyNanos = System.nanoTime() - startNanos;
+            if (tracer.shouldRecord(latencyNanos, resultCode)) {
+                tracer.record(OperationType.QUERY, null, OperationTracer.NO_PARTITION, latencyNanos, resultCode, returned.sum());
+            }
+        }
+    }
+
+    public void backgroundDelete(String namespace, String setName, RecordFilter filter) {
+        long startNanos = System.nanoTime();
+        int resultCode = ResultCode.OK;
+        try {
+            store.backgroundDelete(namespace, setName, filter);
+        } catch (RuntimeException e) {
+            resultCode = resultCode(e);
+            throw e;
+        } finally {
+            long latencyNanos = System.nanoTime() - startNanos;
+            if (tracer.shouldRecord(latencyNanos, resultCode)) {
+                tracer.record(OperationType.BACKGROUND_DELETE, null, OperationTracer.NO_PARTITION, latencyNanos, resultCode, 0);
+            }
+        }
+    }
+
+    public String[] getNodeNames() {
+        return store.getNodeNames();
+    }
+
+    public String nodeOf(Key key) {
+        return store.nodeOf(key);
+    }
+
+    public String info(String nodeName, String command) {
+        long startNanos = System.nanoTime();
+        int resultCode = ResultCode.OK;
+        try {
+            return store.info(nodeName, command);
+        } catch (RuntimeException e) {
+            resultCode = resultCode(e);
+            throw e;
+        } finally {
+            recordInfo(nodeName, startNanos, resultCode, 1);
+        }
+    }
+
+    public Map<String, String> info(String nodeName, String... commands) {
+        long startNanos = System.nanoTime();
+        int resultCode = ResultCode.OK;
+        try {
+            return store.info(nodeName, commands);
+        } catch (RuntimeException e) {
+            resultCode = resultCode(e);
+            throw e;
+        } finally {
+            recordInfo(nodeName, startNanos, resultCode, commands.length);
+        }
+    }
+
+    public WritePolicy newWritePolicy() {
+        return store.newWritePolicy();
+    }
+
+    public ScanPolicy newScanPolicy() {
+        return store.newScanPolicy();
+    }
+
+    public QueryPolicy newQueryPolicy() {
+        return store.newQueryPolicy();
+    }
+
+    public String getConnectionStats() {
+        return store.getConnectionStats();
+    }
+
+    public void close() {
+        store.close();
+    }
+
+    // Time spent in the caller's callback per record, e.g. the delete of a scan and delete pass
+    private ScanCallback tracedCallback(ScanCallback callback, LongAdder scanned) {
+        return (key, record) -> {
+            scanned.increment();
+            long startNanos = System.nanoTime();
+            try {
+                callback.scanCallback(key, record);
+            } catch (RuntimeException e) {
+                failed(OperationType.SCAN_CALLBACK, key, startNanos, e);
+                throw e;
+            }
+            done(OperationType.SCAN_CALLBACK, key, startNanos, ResultCode.OK);
+        };
+    }
+
+    private <T> CompletableFuture<T> traced(OperationType operation, Key key, long startNanos, CompletableFuture<T> future) {
+        future.whenComplete((result, e) -> {
+            if (e != null) {
+                failed(operation, key, startNanos, e);
+            } else {
+                done(operation, key, startNanos, result == null && operation != OperationType.PUT || Boolean.FALSE.equals(result) ? ResultCode.KEY_NOT_FOUND_ERROR : ResultCode.OK);
+            }
+        });
+        return future;
+    }
+
+    private void done(OperationType operation, Key key, long startNanos, int resultCode) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        if (tracer.shouldRecord(latencyNanos, resultCode)) {
+            tracer.record(operation, store.nodeOf(key), Partition.getPartitionId(key.digest), latencyNanos, resultCode, 1);
+        }
+    }
+
+    private void failed(OperationType operation, Key key, long startNanos, Throwable e) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        int resultCode = resultCode(e);
+        if (tracer.shouldRecord(latencyNanos, resultCode)) {
+            // The node the command was sent to when the client knows it, a retry may have gone elsewhere
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            String node = cause instanceof AerospikeException && ((AerospikeException) cause).getNode() != null ? ((AerospikeException) cause).getNode().getName() : store.nodeOf(key);
+            tracer.record(operation, node, Partition.getPartitionId(key.digest), latencyNanos, resultCode, 1);
+        }
+    }
+
+    private void recordInfo(String nodeName, long startNanos, int resultCode, int commands) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        if (tracer.shouldRecord(latencyNanos, resultCode)) {
+            tracer.record(OperationType.INFO, nodeName, OperationTracer.NO_PARTITION, latencyNanos, resultCode, commands);
+        }
+    }
+
+    private static int resultCode(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof AerospikeException ? ((AerospikeException) cause).getResultCode() : ResultCode.CLIENT_ERROR;
+    }
+}
@@ -0,0 +1,129 @@
+package com.aerospike.example;
+
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.policy.ScanPolicy;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// TtlEstimator
+//
+//   GIVEN  the server's TTL histogram (bucket width, objects per bucket) and a number of objects to remove
+//   WHEN   the bucket the removals end in is wider than a second and only part of it has to go
+//   THEN   scan an evenly spread sample of partitions with a server side filter on the top of that bucket, and count
+//          the TTLs that fall inside it in at most MAX_CELLS cells (memory doesn't grow with the set or the TTL)
+//   THEN   split the bucket's server count in the proportions the sample found and return the TTL watermark at which
+//          the histogram's buckets before it plus that share of it come to the objects to remove
+//
+//   The histogram gives exact counts but coarse TTLs, the sample the shape inside one bucket. A filtered pass on the
+//   watermark removes close to the number asked for, from the oldest records, instead of all or an arbitrary part of
+//   the bucket. The sample size aims at targetSamples records in the bucket, taking more partitions for smaller buckets
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class TtlEstimator {
+    static final int DEFAULT_TARGET_SAMPLES = 2000;
+
+    private static final int PARTITIONS = Node.PARTITIONS;
+    private static final int MIN_PARTITIONS = 16;
+    private static final int MAX_CELLS = 1024;
+
+    private final int targetSamples;
+    private final Metrics.Counter sampled;
+
+    TtlEstimator(String namespace, String setName, int targetSamples) {
+        this.targetSamples = Math.max(1, targetSamples);
+        this.sampled = Metrics.GLOBAL.counter("lru.eviction.sampled", "set", namespace + "/" + setName);
+    }
+
+    // The watermark for removing objectsToRemove, from the histogram alone when there's nothing to refine
+    Watermark estimate(CacheStore store, String namespace, String setName, long bucketWidth, long[] objectsPerBucket, long objectsToRemove) {
+        // The bucket the removals end in, and how many the buckets before it hold
+        long before = 0;
+        int bucketIndex = -1;
+        for (int i = 0; i < objectsPerBucket.length; i++) {
+            if (before + objectsPerBucket[i] >= objectsToRemove) {
+                bucketIndex = i;
+                break;
+            }
+            before += objectsPerBucket[i];
+        }
+
+        // Fewer objects than asked for, all of them
+        if (bucketIndex < 0) {
+            int last = objectsPerBucket.length - 1;
+            while (last > 0 && objectsPerBucket[last] == 0) last--;
+            return new Watermark((last + 1) * bucketWidth - 1, before, 0, 0);
+        }
+
+        long bucketObjects = objectsPerBucket[bucketIndex];
+        long needed = objectsToRemove - before;
+        long low = bucketIndex * bucketWidth;
+        long high = low + bucketWidth - 1;
+        if (bucketWidth <= 1 || needed >= bucketObjects) {
+            return new Watermark(high, before + bucketObjects, 0, 0);
+        }
+
+        // Cells of one second or more across the bucket
+        long cellWidth = (bucketWidth + MAX_CELLS - 1) / MAX_CELLS;
+        long[] cells = new long[(int) ((bucketWidth + cellWidth - 1) / cellWidth)];
+
+        int partitions = (int) Math.min(PARTITIONS, Math.max(MIN_PARTITIONS, ((long) PARTITIONS * targetSamples + bucketObjects - 1) / bucketObjects));
+        ScanPolicy policy = store.newScanPolicy();
+        policy.includeBinData = false;
+        RecordFilter filter = RecordFilter.ttlAtMost(high);
+
+        // Digests are uniform, so any partitions are a fair sample. Spread them out from a random start
+        int first = ThreadLocalRandom.current().nextInt(PARTITIONS);
+        long[] inBucket = new long[1];
+        for (int i = 0; i < partitions; i++) {
+            int partitionId = (int) ((first + (long) i * PARTITIONS / partitions) % PARTITIONS);
+            store.scanPartition(policy, namespace, setName, partitionId, null, filter, (key, record) -> {
+                sampled.increment();
+                long ttl = record.getTimeToLive();
+                if (ttl < low || ttl > high) return;
+                cells[(int) ((ttl - low) / cellWidth)]++;
+                inBucket[0]++;
+            });
+        }
+
+        if (inBucket[0] == 0) {
+            return new Watermark(high, before + bucketObjects, partitions, 0);
+        }
+
+        // The first cell at which the sample covers the share of the bucket still needed
+        long wanted = (long) Math.ceil((double) needed * inBucket[0] / bucketObjects);
+        long covered = 0;
+        for (int cell = 0; cell < cells.length; cell++) {
+            covered += cells[cell];
+            if (covered >= wanted) {
+                long ttl = Math.min(high, low + (cell + 1) * cellWidth - 1);
+                return new Watermark(ttl, before + Math.round((double) bucketObjects * covered / inBucket[0]), partitions, inBucket[0]);
+            }
+        }
+        return new Watermark(high, before + bucketObjects, partitions, inBucket[0]);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Watermark
+    //
+    //   The TTL to filter on and the objects estimated at or below it
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    static final class Watermark {
+        final long ttl;
+        final long objects;
+        final int partitionsSampled;
+        final long samplesInBucket;
+
+        Watermark(long ttl, long objects, int partitionsSampled, long samplesInBucket) {
+            this.ttl = ttl;
+            this.objects = objects;
+            this.partitionsSampled = partitionsSampled;
+            this.samplesInBucket = samplesInBucket;
+        }
+
+        public String toString() {
+            return "TTL <= " + ttl + " (~" + objects + " objects" + (partitionsSampled > 0 ? ", " + samplesInBucket + " samples from " + partitionsSampled + " partitions" : ", from the histogram") + ")";
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Key;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// TtlTiers
+//
+//   GIVEN  key classes sharing one set, each with its own TTL, share of the keys and value, parsed from
+//          name:ttl=5,share=80,value=1 entries separated by ';'
+//   THEN   every key belongs to one tier, picked from its digest by share so every writer agrees without coordination
+//   THEN   writes and touches use the tier's TTL, writes also store the tier's number in the tier bin so eviction can
+//          select records by tier on the server
+//   THEN   eviction takes records from the lowest value tier first, so churn in short lived entries doesn't push out
+//          valuable long lived ones
+//
+//   Records written without a tier bin count towards the lowest value tier
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class TtlTiers {
+    static final String BIN = "tier";
+
+    private final List<Tier> tiers;
+    private final List<Tier> evictionOrder;
+    private final int totalShare;
+
+    private TtlTiers(List<Tier> tiers) {
+        this.tiers = Collections.unmodifiableList(tiers);
+
+        List<Tier> order = new ArrayList<>(tiers);
+        order.sort(Comparator.<Tier>comparingInt(tier -> tier.value).thenComparingInt(tier -> tier.ttl));
+        this.evictionOrder = Collections.unmodifiableList(order);
+
+        int share = 0;
+        for (Tier tier : tiers) {
+            share += tier.share;
+        }
+        this.totalShare = share;
+    }
+
+    static TtlTiers parse(String spec) {
+        List<Tier> tiers = new ArrayList<>();
+        for (String entry : spec.split(";")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) continue;
+
+            int colon = entry.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Expected name:ttl=<seconds> in: " + entry);
+            }
+
+            int ttl = 0;
+            int share = 1;
+            int value = 1;
+            for (String setting : entry.substring(colon + 1).split(",")) {
+                String[] nameValue = setting.trim().split("=");
+                if (nameValue.length != 2) {
+                    throw new IllegalArgumentException("Expected name=value in: " + setting);
+                }
+                switch (nameValue[0].trim()) {
+                    case "ttl":
+                        ttl = Integer.parseInt(nameValue[1].trim());
+                        break;
+                    case "share":
+                        share = Integer.parseInt(nameValue[1].trim());
+                        break;
+                    case "value":
+                        value = Integer.parseInt(nameValue[1].trim());
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown setting: " + setting);
+                }
+            }
+            if (ttl <= 0 || share <= 0) {
+                throw new IllegalArgumentException("Expected ttl and share above 0 in: " + entry);
+            }
+            tiers.add(new Tier(tiers.size(), entry.substring(0, colon).trim(), ttl, share, value));
+        }
+        if (tiers.isEmpty()) {
+            throw new IllegalArgumentException("No tiers in: " + spec);
+        }
+        return new TtlTiers(tiers);
+    }
+
+    Tier tierOf(Key key) {
+        return tierOf(key.digest);
+    }
+
+    // Digests are uniformly distributed, bytes no other selection uses (partition id, digest modulo, scan percent)
+    Tier tierOf(byte[] digest) {
+        int value = ((digest[12] & 0xFF) | (digest[13] & 0xFF) << 8 | (digest[14] & 0xFF) << 16 | (digest[15] & 0x7F) << 24) % totalShare;
+        for (Tier tier : tiers) {
+            value -= tier.share;
+            if (value < 0) return tier;
+        }
+        return tiers.get(tiers.size() - 1);
+    }
+
+    List<Tier> getTiers() {
+        return tiers;
+    }
+
+    // Lowest value first, shorter TTL first between tiers of the same value
+    List<Tier> getEvictionOrder() {
+        return evictionOrder;
+    }
+
+    int getMaxTTL() {
+        int maxTTL = 0;
+        for (Tier tier : tiers) {
+            maxTTL = Math.max(maxTTL, tier.ttl);
+        }
+        return maxTTL;
+    }
+
+    // Records of the tier at or below the watermark, records without a tier bin go with the first tier evicted
+    RecordFilter filter(Tier tier, long ttlLowWatermark) {
+        return RecordFilter.ttlAtMost(ttlLowWatermark).withTier(BIN, tier.id, tier == evictionOrder.get(0));
+    }
+
+    public String toString() {
+        StringBuilder description = new StringBuilder();
+        for (Tier tier : tiers) {
+            if (description.length() > 0) description.append(", ");
+            description.append(tier);
+        }
+        return description.toString();
+    }
+
+    static final class Tier {
+        final int id;
+        final String name;
+        final int ttl;
+        final int share;
+        final int value;
+
+        Tier(int id, String name, int ttl, int share, int value) {
+            this.id = id;
+            this.name = name;
+            this.ttl = ttl;
+            this.share = share;
+            this.value = value;
+        }
+
+        public String toString() {
+            return name + " (ttl=" + ttl + "s, share=" + share + ", value=" + value + ")";
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.aerospike.example;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// ValueCodec
+//
+//   GIVEN  a serializer between values and bytes and a compression threshold (0 for no compression)
+//   WHEN   encoding a value for an LruCache bin
+//   THEN   serialize it into a pooled buffer, deflate it into a second pooled buffer when it's threshold bytes or more,
+//          and keep the deflated form only when that is smaller. The bin gets a byte[] of exactly the stored size: a
+//          header byte (RAW or DEFLATED), for DEFLATED the serialized length (4 bytes), then the payload
+//   WHEN   decoding
+//   THEN   raw values are deserialized from the bin's array in place, without an intermediate buffer, deflated ones
+//          are inflated into a pooled buffer first. bytes() still copies its payload out, the header byte is in front of
+//          it
+//
+//   Buffers, Deflaters and Inflaters are pooled in sets shared by every thread (virtual threads reuse them too), a
+//   buffer that grew over MAX_POOLED_BYTES is dropped after use. Deflate at BEST_SPEED stands in for LZ4 or Zstd,
+//   which would need another dependency. The server's data bytes count the stored size, so compression lowers the
+//   average object size the bytes goal converts with and the same goal keeps more objects. Counted in Metrics as
+//   lru.codec.serialized.bytes, lru.codec.stored.bytes and lru.codec.deflated (values stored deflated)
+//
+//   Only LruCache users encode through it. The bulk loader, load generator and random object generator write random
+//   byte[] bins directly, there is nothing in them to serialize or compress
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class ValueCodec<V> implements LruCache.Codec<V> {
+    // Between values and bytes, Jackson or anything else
+    interface Serializer<V> {
+        void write(V value, OutputStream out) throws IOException;
+
+        // bytes is only valid during the call, copy what's kept
+        V read(byte[] bytes, int offset, int length) throws IOException;
+    }
+
+    static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+    private static final byte RAW = 0;
+    private static final byte DEFLATED = 1;
+    private static final int RAW_HEADER_BYTES = 1;
+    private static final int DEFLATED_HEADER_BYTES = 5;
+
+    private static final int INITIAL_BYTES = 4096;
+    private static final int MAX_POOLED_BYTES = 1 << 20;
+    private static final BlockingQueue<Scratch> POOL = new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+    private final Serializer<V> serializer;
+    private final int compressionThreshold;
+
+    private final Metrics.Counter serializedBytes;
+    private final Metrics.Counter storedBytes;
+    private final Metrics.Counter deflated;
+
+    ValueCodec(Serializer<V> serializer, int compressionThreshold) {
+        this.serializer = serializer;
+        this.compressionThreshold = compressionThreshold;
+        this.serializedBytes = Metrics.GLOBAL.counter("lru.codec.serialized.bytes");
+        this.storedBytes = Metrics.GLOBAL.counter("lru.codec.stored.bytes");
+        this.deflated = Metrics.GLOBAL.counter("lru.codec.deflated");
+    }
+
+    static ValueCodec<byte[]> bytes(int compressionThreshold) {
+        return new ValueCodec<>(new Serializer<byte[]>() {
+            public void write(byte[] value, OutputStream out) throws IOException {
+                out.write(value);
+            }
+
+            // A copy, bytes is the stored array with the header in front or a pooled buffer
+            public byte[] read(byte[] bytes, int offset, int length) {
+                return Arrays.copyOfRange(bytes, offset, offset + length);
+            }
+        }, compressionThreshold);
+    }
+
+    static ValueCodec<String> utf8(int compressionThreshold) {
+        return new ValueCodec<>(new Serializer<String>() {
+            public void write(String value, OutputStream out) throws IOException {
+                out.write(value.getBytes(StandardCharsets.UTF_8));
+            }
+
+            public String read(byte[] bytes, int offset, int length) {
+                return new String(bytes, offset, length, StandardCharsets.UTF_8);
+            }
+        }, compressionThreshold);
+    }
+
+    // JSON through a Jackson mapper, written straight into the pooled buffer
+    static <V> ValueCodec<V> json(ObjectMapper mapper, Class<V> type, int compressionThreshold) {
+        return new ValueCodec<>(new Serializer<V>() {
+            public void write(V value, OutputStream out) throws IOException {
+                mapper.writeValue(out, value);
+            }
+
+            public V read(byte[] bytes, int offset, int length) throws IOException {
+                return mapper.readValue(bytes, offset, length, type);
+            }
+        }, compressionThreshold);
+    }
+
+    public Object encode(V value) {
+        Scratch scratch = take();
+        try {
+            // Room for either header in front, so the payload needn't move
+            Buffer serialized = scratch.serialized;
+            serialized.size = DEFLATED_HEADER_BYTES;
+            serializer.write(value, serialized);
+            int length = serialized.size - DEFLATED_HEADER_BYTES;
+            serializedBytes.add(length);
+
+            byte[] stored = compressionThreshold > 0 && length >= compressionThreshold ? deflate(scratch, length) : null;
+            if (stored != null) {
+                deflated.increment();
+            } else {
+                stored = new byte[RAW_HEADER_BYTES + length];
+                stored[0] = RAW;
+                System.arraycopy(serialized.bytes, DEFLATED_HEADER_BYTES, stored, RAW_HEADER_BYTES, length);
+            }
+            storedBytes.add(stored.length);
+            return stored;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't serialize " + value.getClass().getName(), e);
+        } finally {
+            release(scratch);
+        }
+    }
+
+    // null for a missing bin
+    public V decode(Object binValue) {
+        if (binValue == null) return null;
+        if (!(binValue instanceof byte[])) {
+            throw new IllegalArgumentException("Not a codec value: " + binValue.getClass().getName());
+        }
+
+        byte[] stored = (byte[]) binValue;
+        if (stored.length < RAW_HEADER_BYTES) {
+            throw new IllegalArgumentException("Empty codec value");
+        }
+        try {
+            if (stored[0] == RAW) {
+                return serializer.read(stored, RAW_HEADER_BYTES, stored.length - RAW_HEADER_BYTES);
+            }
+            if (stored[0] != DEFLATED || stored.length < DEFLATED_HEADER_BYTES) {
+                throw new IllegalArgumentException("Unknown codec header " + stored[0]);
+            }
+
+            Scratch scratch = take();
+            try {
+                int length = inflate(scratch, stored);
+                return serializer.read(scratch.serialized.bytes, 0, length);
+            } finally {
+                release(scratch);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't deserialize a value of " + stored.length + " bytes", e);
+        }
+    }
+
+    // The stored form, null when deflating doesn't make it smaller
+    private static byte[] deflate(Scratch scratch, int length) {
+        Deflater deflater = scratch.deflater();
+        deflater.setInput(scratch.serialized.bytes, DEFLATED_HEADER_BYTES, length);
+        deflater.finish();
+
+        // Only worth keeping below the raw size
+        int limit = RAW_HEADER_BYTES + length - 1;
+        Buffer compressed = scratch.compressed;
+        compressed.ensure(limit);
+        compressed.size = DEFLATED_HEADER_BYTES;
+        while (!deflater.finished()) {
+            if (compressed.size >= limit) return null;
+            compressed.size += deflater.deflate(compressed.bytes, compressed.size, limit - compressed.size);
+        }
+
+        byte[] stored = Arrays.copyOf(compressed.bytes, compressed.size);
+        stored[0] = DEFLATED;
+        stored[1] = (byte) (length >>> 24);
+        stored[2] = (byte) (length >>> 16);
+        stored[3] = (byte) (length >>> 8);
+        stored[4] = (byte) length;
+        return stored;
+    }
+
+    // Inflates into scratch.serialized from 0, returns the serialized length
+    private static int inflate(Scratch scratch, byte[] stored) {
+        int length = (stored[1] & 0xFF) << 24 | (stored[2] & 0xFF) << 16 | (stored[3] & 0xFF) << 8 | (stored[4] & 0xFF);
+        Buffer serialized = scratch.serialized;
+        serialized.ensure(length);
+
+        Inflater inflater = scratch.inflater();
+        inflater.setInput(stored, DEFLATED_HEADER_BYTES, stored.length - DEFLATED_HEADER_BYTES);
+        try {
+            int inflated = 0;
+            while (inflated < length) {
+                int n = inflater.inflate(serialized.bytes, inflated, length - inflated);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) break;
+                inflated += n;
+            }
+            if (inflated != length) {
+                throw new IllegalArgumentException("Deflated value holds " + inflated + " of " + length + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt deflated value", e);
+        }
+        return length;
+    }
+
+    private static Scratch take() {
+        Scratch scratch = POOL.poll();
+        return scratch != null ? scratch : new Scratch();
+    }
+
+    private static void release(Scratch scratch) {
+        if (scratch.serialized.bytes.length > MAX_POOLED_BYTES) scratch.serialized = new Buffer(INITIAL_BYTES);
+        if (scratch.compressed.bytes.length > MAX_POOLED_BYTES) scratch.compressed = new Buffer(INITIAL_BYTES);
+        if (scratch.deflater != null) scratch.deflater.reset();
+        if (scratch.inflater != null) scratch.inflater.reset();
+        if (!POOL.offer(scratch)) {
+            // Pool full, the native zlib state isn't left to the finalizer
+            scratch.end();
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Scratch
+    //
+    //   One encode or decode's buffers and zlib state, taken from the pool and given back after
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private static final class Scratch {
+        Buffer serialized = new Buffer(INITIAL_BYTES);
+        Buffer compressed = new Buffer(INITIAL_BYTES);
+        Deflater deflater;
+        Inflater inflater;
+
+        Deflater deflater() {
+            if (deflater == null) deflater = new Deflater(Deflater.BEST_SPEED);
+            return deflater;
+        }
+
+        Inflater inflater() {
+            if (inflater == null) inflater = new Inflater();
+            return inflater;
+        }
+
+        void end() {
+            if (deflater != null) deflater.end();
+            if (inflater != null) inflater.end();
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Buffer
+    //
+    //   A growable byte array written as an OutputStream and read in place, bytes[0, size) holds the data
+    /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    static final class Buffer extends OutputStream {
+        byte[] bytes;
+        int size;
+
+        Buffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        public void write(int b) {
+            ensure(size + 1);
+            bytes[size++] = (byte) b;
+        }
+
+        public void write(byte[] b, int offset, int length) {
+            ensure(size + length);
+            System.arraycopy(b, offset, bytes, size, length);
+            size += length;
+        }
+
+        void ensure(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+    }
+}
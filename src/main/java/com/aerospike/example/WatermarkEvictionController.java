@@ -0,0 +1,114 @@
+package com.aerospike.example;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// WatermarkEvictionController
+//
+//   GIVEN  a high and a low watermark on the number of objects
+//   GIVEN  successive object counts
+//   THEN   estimate the ingest rate (net growth plus what eviction removed) as an exponentially weighted moving average
+//   THEN   evict down to the low watermark once the set is expected to pass the high watermark before the next check,
+//          so bursts are caught before they overshoot
+//   THEN   check sooner the faster the set grows and back off to the maximum interval when it doesn't, and never
+//          remove more per check than the deletion rate limit allows over the interval
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+class WatermarkEvictionController implements EvictionController {
+    // Weight of the newest rate sample
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private long highWatermark;
+    private long lowWatermark;
+
+    // Kept when the goal moves
+    private final double lowWatermarkRatio;
+    private final long minCheckMillis;
+    private final long maxCheckMillis;
+    private final long maxDeletesPerSecond;
+
+    private long lastTotalObjects = -1;
+    private long lastMillis;
+    private long removedSinceLast;
+
+    // Objects per second, can be negative when records expire faster than they are written
+    private double ingestRate;
+
+    // Token bucket for the deletion rate limit, filled at maxDeletesPerSecond up to one maximum check interval's worth
+    private double deleteAllowance;
+
+    // maxDeletesPerSecond <= 0 means no limit
+    WatermarkEvictionController(long highWatermark, long lowWatermark, long minCheckMillis, long maxCheckMillis, long maxDeletesPerSecond) {
+        if (lowWatermark > highWatermark) {
+            throw new IllegalArgumentException("Low watermark " + lowWatermark + " is above the high watermark " + highWatermark);
+        }
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.lowWatermarkRatio = highWatermark == 0 ? 1 : (double) lowWatermark / highWatermark;
+        this.minCheckMillis = Math.max(1, minCheckMillis);
+        this.maxCheckMillis = Math.max(this.minCheckMillis, maxCheckMillis);
+        this.maxDeletesPerSecond = maxDeletesPerSecond;
+        this.deleteAllowance = maxDeleteAllowance();
+    }
+
+    public synchronized Decision decide(long totalObjects, long nowMillis) {
+        if (lastTotalObjects >= 0 && nowMillis > lastMillis) {
+            // What was written since the last check: the change in size plus what eviction took out
+            double sample = (totalObjects - lastTotalObjects + removedSinceLast) * 1000.0 / (nowMillis - lastMillis);
+            ingestRate = RATE_SMOOTHING * sample + (1 - RATE_SMOOTHING) * ingestRate;
+            deleteAllowance = Math.min(maxDeleteAllowance(), deleteAllowance + maxDeletesPerSecond * (nowMillis - lastMillis) / 1000.0);
+        }
+        lastTotalObjects = totalObjects;
+        lastMillis = nowMillis;
+        removedSinceLast = 0;
+
+        // Check again in half the time the set takes to grow to the high watermark
+        long nextCheckMillis = maxCheckMillis;
+        if (ingestRate > 0) {
+            double millisToHigh = Math.max(0, highWatermark - totalObjects) * 1000.0 / ingestRate;
+            nextCheckMillis = clamp((long) (millisToHigh / 2));
+        }
+
+        // Where the set will be by then if nothing is removed
+        long projected = totalObjects + (long) Math.max(0, ingestRate * nextCheckMillis / 1000.0);
+        if (projected <= highWatermark) {
+            return new Decision(0, nextCheckMillis);
+        }
+
+        long objectsToRemove = projected - lowWatermark;
+        nextCheckMillis = minCheckMillis;
+        if (maxDeletesPerSecond > 0) {
+            // Spread the rest over the next checks
+            objectsToRemove = Math.min(objectsToRemove, (long) deleteAllowance);
+        }
+        return new Decision(objectsToRemove, nextCheckMillis);
+    }
+
+    public synchronized void removed(long objects) {
+        removedSinceLast += objects;
+        deleteAllowance -= objects;
+    }
+
+    public synchronized long getGoalObjects() {
+        return highWatermark;
+    }
+
+    public synchronized void setGoalObjects(long goalObjects) {
+        highWatermark = goalObjects;
+        lowWatermark = (long) (goalObjects * lowWatermarkRatio);
+    }
+
+    public long getRetryMillis() {
+        return minCheckMillis;
+    }
+
+    synchronized double getIngestRate() {
+        return ingestRate;
+    }
+
+    private double maxDeleteAllowance() {
+        return maxDeletesPerSecond * maxCheckMillis / 1000.0;
+    }
+
+    private long clamp(long millis) {
+        return Math.max(minCheckMillis, Math.min(maxCheckMillis, millis));
+    }
+}
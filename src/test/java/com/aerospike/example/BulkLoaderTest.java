@@ -0,0 +1,126 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// BulkLoaderTest
+//
+//   GIVEN  a load spec (count, threads, in flight, value sizes, TTL range)
+//   WHEN   loading an in memory store from several workers
+//   THEN   every record is written once and its id handed back once, with TTLs taken in turn from the range
+//          and a value size from the distribution
+//   THEN   with tiers every record carries its tier bin and a TTL scaled to its tier
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class BulkLoaderTest {
+    private static final int COUNT = 2000;
+    private static final int MIN_TTL = 1 * TestData.STEP;
+    private static final int MAX_TTL = 4 * TestData.STEP;
+    private static final long NOW = System.currentTimeMillis();
+
+    private InMemoryCacheStore store;
+
+    @Before
+    public void createStore() {
+        // Time stands still so no TTL ticks down past the ones counted
+        store = new InMemoryCacheStore(2, TestData.TTL, InMemoryCacheStore.DEFAULT_HISTOGRAM_BUCKETS, () -> NOW);
+    }
+
+    @After
+    public void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void parsesConfig() {
+        BulkLoader.Config config = BulkLoader.Config.parse("count=5, threads=3,in-flight=7,rate=100,values=uniform:10:20,ttl=30:60", 1, 1, 1);
+
+        assertEquals(5, config.count);
+        assertEquals(3, config.threads);
+        assertEquals(7, config.maxInFlight);
+        assertEquals(100, config.rate);
+        assertEquals(30, config.minTTL);
+        assertEquals(60, config.maxTTL);
+
+        // Left out, the defaults
+        BulkLoader.Config defaults = BulkLoader.Config.parse("", 9, 11, 13);
+        assertEquals(9, defaults.count);
+        assertEquals(11, defaults.maxInFlight);
+        assertEquals(13, defaults.minTTL);
+        assertEquals(13, defaults.maxTTL);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownSettings() {
+        BulkLoader.Config.parse("count=5,colour=blue", 1, 1, 1);
+    }
+
+    @Test
+    public void drawsValueSizesInRange() {
+        BulkLoader.ValueSizes sizes = BulkLoader.ValueSizes.parse("uniform:10:20");
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 1000; i++) {
+            int size = sizes.next(random);
+            assertTrue("Size " + size, size >= 10 && size <= 20);
+        }
+        assertEquals(16, BulkLoader.ValueSizes.parse("fixed:16").next(random));
+    }
+
+    @Test
+    public void loadsEveryRecordOnce() throws InterruptedException {
+        BulkLoader loader = new BulkLoader(store, TestData.NAMESPACE, TestData.SET, TestData.BIN, BulkLoader.Config.parse("threads=4,in-flight=16,values=uniform:10:20,ttl=" + MIN_TTL + ":" + MAX_TTL, COUNT, 1, 1));
+        Set<String> recordIds = ConcurrentHashMap.newKeySet();
+
+        assertEquals(COUNT, loader.load(id -> assertTrue("Twice: " + id, recordIds.add(id))));
+
+        assertEquals(COUNT, recordIds.size());
+        assertEquals(COUNT, TestData.count(store, null));
+
+        // Record i lives minTTL + i % range, each TTL of the range taken in turn
+        int ttlRange = MAX_TTL - MIN_TTL + 1;
+        for (long ttl = MIN_TTL + TestData.STEP; ttl <= MAX_TTL; ttl += TestData.STEP) {
+            long expected = 0;
+            for (int i = 0; i < COUNT; i++) {
+                if (MIN_TTL + i % ttlRange <= ttl) {
+                    expected++;
+                }
+            }
+            assertEquals("TTL <= " + ttl, expected, TestData.count(store, RecordFilter.ttlAtMost(ttl)));
+        }
+
+        for (int i = 0; i < COUNT; i += 97) {
+            Record record = store.get(null, new Key(TestData.NAMESPACE, TestData.SET, loader.recordId(i)));
+            assertNotNull(record);
+            int size = ((byte[]) record.getValue(TestData.BIN)).length;
+            assertTrue("Size " + size, size >= 10 && size <= 20);
+        }
+    }
+
+    @Test
+    public void scalesTtlsToTiers() throws InterruptedException {
+        TtlTiers tiers = TtlTiers.parse("short:ttl=" + MIN_TTL + ",share=50,value=1;long:ttl=" + MAX_TTL + ",share=50,value=10");
+        BulkLoader loader = new BulkLoader(store, TestData.NAMESPACE, TestData.SET, TestData.BIN, BulkLoader.Config.parse("threads=2,ttl=1:" + MAX_TTL, COUNT, 8, 1)).withTiers(tiers);
+
+        assertEquals(COUNT, loader.load(null));
+
+        // Nothing in the short tier outlives its TTL, each tier holds about its share
+        TtlTiers.Tier shortTier = tiers.getTiers().get(0);
+        TtlTiers.Tier longTier = tiers.getTiers().get(1);
+        long shortRecords = TestData.count(store, tiers.filter(shortTier, Long.MAX_VALUE));
+        assertEquals(shortRecords, TestData.count(store, tiers.filter(shortTier, MIN_TTL)));
+        assertEquals(COUNT, shortRecords + TestData.count(store, tiers.filter(longTier, Long.MAX_VALUE)));
+        assertTrue("Short tier: " + shortRecords, shortRecords > COUNT / 3 && shortRecords < 2 * COUNT / 3);
+    }
+}
@@ -0,0 +1,105 @@
+package com.aerospike.example;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// CandidateIndexTest
+//
+//   GIVEN  records offered in random order
+//   THEN   the index keeps the capacity records with the lowest TTL, each with its own digest, sorted oldest first
+//   THEN   an index far larger than what's offered only grows as far as it is filled
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class CandidateIndexTest {
+
+    @Test
+    public void keepsOldestSorted() {
+        int offered = 10000;
+        int capacity = 100;
+        long[] ttls = shuffledTtls(offered);
+
+        CandidateIndex index = new CandidateIndex(capacity);
+        for (long ttl : ttls) {
+            index.offer(ttl, digestOf(ttl));
+        }
+        index.sortOldestFirst();
+
+        assertEquals(capacity, index.size());
+        for (int i = 0; i < capacity; i++) {
+            assertEquals(i, index.ttlAt(i));
+            assertArrayEquals(digestOf(i), index.digestAt(i));
+        }
+    }
+
+    @Test
+    public void rejectsYoungerThanYoungestWhenFull() {
+        CandidateIndex index = new CandidateIndex(2);
+        assertTrue(index.offer(5, digestOf(5)));
+        assertTrue(index.offer(3, digestOf(3)));
+
+        assertFalse(index.offer(5, digestOf(6)));
+        assertTrue(index.offer(1, digestOf(1)));
+        index.sortOldestFirst();
+
+        assertEquals(1, index.ttlAt(0));
+        assertEquals(3, index.ttlAt(1));
+    }
+
+    @Test
+    public void growsAsFilled() {
+        // About 2GB up front before the index grew on demand
+        CandidateIndex index = new CandidateIndex(CandidateIndex.MAX_CAPACITY);
+        long[] ttls = shuffledTtls(5000);
+        for (long ttl : ttls) {
+            index.offer(ttl, digestOf(ttl));
+        }
+        index.sortOldestFirst();
+
+        assertEquals(ttls.length, index.size());
+        long[] sorted = ttls.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            assertEquals(sorted[i], index.ttlAt(i));
+            assertArrayEquals(digestOf(sorted[i]), index.digestAt(i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCapacityOverMax() {
+        new CandidateIndex(CandidateIndex.MAX_CAPACITY + 1);
+    }
+
+    // TTLs 0 to count - 1 in random order
+    private static long[] shuffledTtls(int count) {
+        long[] ttls = new long[count];
+        for (int i = 0; i < count; i++) {
+            ttls[i] = i;
+        }
+        Random random = new Random(42);
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long ttl = ttls[i];
+            ttls[i] = ttls[j];
+            ttls[j] = ttl;
+        }
+        return ttls;
+    }
+
+    // A digest telling which TTL it was offered with
+    private static byte[] digestOf(long ttl) {
+        byte[] digest = new byte[20];
+        for (int i = 0; i < 8; i++) {
+            digest[i] = (byte) (ttl >>> (8 * i));
+        }
+        digest[19] = (byte) ~ttl;
+        return digest;
+    }
+}
@@ -0,0 +1,186 @@
+package com.aerospike.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// EvictionCheckpointTest
+//
+//   GIVEN  a checkpoint file in a temporary directory
+//   THEN   load returns the last state saved, from a new EvictionCheckpoint as after a restart
+//   THEN   a torn record at the end is skipped and overwritten by the next save
+//   THEN   records larger than the file's compaction threshold load too
+//   THEN   a format 1 record, from before finished partitions were saved, loads with none finished
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class EvictionCheckpointTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void loadsNothingBeforeFirstSave() throws IOException {
+        assertNull(new EvictionCheckpoint(folder.getRoot().toPath(), TestData.NAMESPACE, TestData.SET).load());
+    }
+
+    @Test
+    public void loadsLastSavedState() throws IOException {
+        EvictionCheckpoint checkpoint = new EvictionCheckpoint(folder.getRoot().toPath(), TestData.NAMESPACE, TestData.SET);
+        checkpoint.save(state(1, 100));
+        checkpoint.save(state(2, 100));
+
+        assertState(state(2, 100), new EvictionCheckpoint(folder.getRoot().toPath(), TestData.NAMESPACE, TestData.SET).load());
+    }
+
+    @Test
+    public void skipsTornRecord() throws IOException {
+        EvictionCheckpoint checkpoint = new EvictionCheckpoint(folder.getRoot().toPath(), TestData.NAMESPACE, TestData.SET);
+        checkpoint.save(state(1, 100));
+        long complete = Files.size(checkpoint.getPath());
+        checkpoint.save(state(2, 100));
+
+        // A crash part way through the second append
+        try (RandomAccessFile file = new RandomAccessFile(checkpoint.getPath().toFile(), "rw")) {
+            file.setLength(complete + 20);
+        }
+
+        EvictionCheckpoint restarted = new EvictionCheckpoint(folder.getRoot().toPath(), TestData.NAMESPACE, TestData.SET);
+        assertState(state(1, 100), restarted.load());
+
+        restarted.save(state(3, 100));
+        assertEquals(2 * complete, Files.size(checkpoint.getPath()));
+        assertState(state(3, 100), new EvictionCheckpoint(folder.getRoot().toPath(), TestData.NAMESPACE, TestData.SET).load());
+    }
+
+    @Test
+    public void compactsPastMaxFileBytes() throws IOException {
+        EvictionCheckpoint checkpoint = new EvictionCheckpoint(folder.getRoot().toPath(), TestData.NAMESPACE, TestData.SET);
+        long recordBytes = 0;
+        for (int pass = 1; pass <= 200; pass++) {
+            checkpoint.save(state(pass, 1000));
+            if (pass == 1) recordBytes = Files.size(checkpoint.getPath());
+        }
+
+        // 200 records of about 9KB are more than a file holds, it was rewritten on the way
+        long fileBytes = Files.size(checkpoint.getPath());
+        assertEquals(0, fileBytes % recordBytes);
+        assertTrue(fileBytes < 200 * recordBytes);
+        assertState(state(200, 1000), new EvictionCheckpoint(folder.getRoot().toPath(), TestData.NAMESPACE, TestData.SET).load());
+    }
+
+    @Test
+    public void loadsRecordsLargerThanMaxFileBytes() throws IOException {
+        EvictionCheckpoint checkpoint = new EvictionCheckpoint(folder.getRoot().toPath(), TestData.NAMESPACE, TestData.SET);
+
+        // evict-hist-buckets 200000 on the server, 1.6MB a record
+        checkpoint.save(state(1, 200000));
+        checkpoint.save(state(2, 200000));
+
+        assertState(state(2, 200000), new EvictionCheckpoint(folder.getRoot().toPath(), TestData.NAMESPACE, TestData.SET).load());
+    }
+
+    @Test
+    public void loadsFormatWithoutFinishedPartitions() throws IOException {
+        EvictionCheckpoint checkpoint = new EvictionCheckpoint(folder.getRoot().toPath(), TestData.NAMESPACE, TestData.SET);
+        EvictionCheckpoint.State saved = state(1, 100);
+        Files.write(checkpoint.getPath(), formatOneRecord(saved));
+
+        EvictionCheckpoint.State loaded = checkpoint.load();
+        assertEquals(saved.passes, loaded.passes);
+        assertEquals(saved.nextPartition, loaded.nextPartition);
+        assertEquals(saved.getResumedPartitions(), loaded.getResumedPartitions());
+        assertEquals(4096, loaded.finishedPartitions.length);
+        for (boolean finished : loaded.finishedPartitions) {
+            assertFalse(finished);
+        }
+
+        // The next save appends in the current format
+        checkpoint.save(state(2, 100));
+        assertState(state(2, 100), new EvictionCheckpoint(folder.getRoot().toPath(), TestData.NAMESPACE, TestData.SET).load());
+    }
+
+    // A pass's state with some partitions stopped part way and some finished
+    static EvictionCheckpoint.State state(int pass, int histogramBuckets) {
+        long[] histogram = new long[histogramBuckets];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = pass * 1000L + i;
+        }
+        byte[][] resumeDigests = new byte[4096][];
+        for (int partitionId = pass % 7; partitionId < resumeDigests.length; partitionId += 97) {
+            resumeDigests[partitionId] = new byte[20];
+            resumeDigests[partitionId][0] = (byte) pass;
+            resumeDigests[partitionId][19] = (byte) partitionId;
+        }
+        boolean[] finishedPartitions = new boolean[4096];
+        for (int partitionId = pass % 5; partitionId < finishedPartitions.length; partitionId += 3) {
+            finishedPartitions[partitionId] = resumeDigests[partitionId] == null;
+        }
+        return new EvictionCheckpoint.State(pass * 10000L, pass * 10000L - 5, 10, histogram, pass, pass * 100L, pass * 90L, pass * 13 % 4096, resumeDigests, finishedPartitions);
+    }
+
+    static void assertState(EvictionCheckpoint.State expected, EvictionCheckpoint.State actual) {
+        assertEquals(expected.savedMillis, actual.savedMillis);
+        assertEquals(expected.decisionMillis, actual.decisionMillis);
+        assertEquals(expected.bucketWidth, actual.bucketWidth);
+        assertArrayEquals(expected.histogram, actual.histogram);
+        assertEquals(expected.passes, actual.passes);
+        assertEquals(expected.requested, actual.requested);
+        assertEquals(expected.removed, actual.removed);
+        assertEquals(expected.nextPartition, actual.nextPartition);
+        assertEquals(expected.resumeDigests.length, actual.resumeDigests.length);
+        for (int partitionId = 0; partitionId < expected.resumeDigests.length; partitionId++) {
+            assertArrayEquals("partition " + partitionId, expected.resumeDigests[partitionId], actual.resumeDigests[partitionId]);
+        }
+        assertArrayEquals(expected.finishedPartitions, actual.finishedPartitions);
+    }
+
+    // The record as format 1 wrote it: the same fields up to the resume digests, no finished partitions
+    private static byte[] formatOneRecord(EvictionCheckpoint.State state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(1);
+        data.writeLong(state.savedMillis);
+        data.writeLong(state.decisionMillis);
+        data.writeLong(state.bucketWidth);
+        data.writeInt(state.histogram.length);
+        for (long count : state.histogram) {
+            data.writeLong(count);
+        }
+        data.writeLong(state.passes);
+        data.writeLong(state.requested);
+        data.writeLong(state.removed);
+        data.writeInt(state.nextPartition);
+        data.writeInt(state.resumeDigests.length);
+        data.writeInt(state.getResumedPartitions());
+        for (int partitionId = 0; partitionId < state.resumeDigests.length; partitionId++) {
+            byte[] digest = state.resumeDigests[partitionId];
+            if (digest == null) continue;
+            data.writeShort(partitionId);
+            data.writeByte(digest.length);
+            data.write(digest);
+        }
+
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(record);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payload);
+        return record.toByteArray();
+    }
+}
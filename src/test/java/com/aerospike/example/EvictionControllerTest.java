@@ -0,0 +1,94 @@
+package com.aerospike.example;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// EvictionControllerTest
+//
+//   GIVEN  successive object counts
+//   THEN   FixedEvictionController removes everything over the goal at a fixed interval
+//   THEN   WatermarkEvictionController evicts down to the low watermark once the set is projected past the high one,
+//          checks sooner as the set grows and stays within its deletion rate limit
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class EvictionControllerTest {
+
+    @Test
+    public void fixedRemovesOverGoal() {
+        FixedEvictionController controller = new FixedEvictionController(1000, 500);
+
+        assertDecision(200, 500, controller.decide(1200, 0));
+        assertDecision(0, 500, controller.decide(800, 500));
+
+        controller.setGoalObjects(600);
+        assertDecision(200, 500, controller.decide(800, 1000));
+    }
+
+    @Test
+    public void watermarkWaitsBelowHigh() {
+        WatermarkEvictionController controller = new WatermarkEvictionController(1000, 800, 100, 10000, 0);
+
+        // No ingest rate yet, back off to the maximum interval
+        assertDecision(0, 10000, controller.decide(500, 0));
+
+        // 100 objects per second, smoothed to 30: half the 13.3s to the high watermark
+        assertDecision(0, 6666, controller.decide(600, 1000));
+        assertEquals(30, controller.getIngestRate(), 0.001);
+    }
+
+    @Test
+    public void watermarkEvictsToLowWhenProjectedPastHigh() {
+        WatermarkEvictionController controller = new WatermarkEvictionController(1000, 800, 100, 10000, 0);
+        controller.decide(500, 0);
+        controller.decide(600, 1000);
+
+        // 500 objects per second smoothed to 171, at the high watermark already so check again at the minimum
+        // interval: 1100 + 17 projected, down to 800
+        assertDecision(317, 100, controller.decide(1100, 2000));
+    }
+
+    @Test
+    public void watermarkCountsRemovedObjectsAsIngest() {
+        WatermarkEvictionController controller = new WatermarkEvictionController(1000, 800, 100, 10000, 0);
+        controller.decide(900, 0);
+
+        // The set stayed the same size because eviction took out what was written
+        controller.removed(100);
+        controller.decide(900, 1000);
+        assertEquals(30, controller.getIngestRate(), 0.001);
+    }
+
+    @Test
+    public void watermarkLimitsDeleteRate() {
+        // At most 50 deletes a second, up to one maximum interval's worth at once
+        WatermarkEvictionController controller = new WatermarkEvictionController(1000, 800, 100, 1000, 50);
+
+        assertDecision(50, 100, controller.decide(2000, 0));
+        controller.removed(50);
+
+        // 100ms later the allowance has only refilled by 5
+        assertDecision(5, 100, controller.decide(1950, 100));
+        assertDecision(50, 100, controller.decide(1950, 1100));
+    }
+
+    @Test
+    public void watermarkKeepsRatioWhenGoalMoves() {
+        WatermarkEvictionController controller = new WatermarkEvictionController(1000, 800, 100, 10000, 0);
+        controller.setGoalObjects(2000);
+
+        assertEquals(2000, controller.getGoalObjects());
+        assertDecision(900, 100, controller.decide(2500, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void watermarkRejectsLowAboveHigh() {
+        new WatermarkEvictionController(800, 1000, 100, 10000, 0);
+    }
+
+    private static void assertDecision(long objectsToRemove, long nextCheckMillis, EvictionController.Decision decision) {
+        assertEquals("objects to remove", objectsToRemove, decision.objectsToRemove);
+        assertEquals("next check", nextCheckMillis, decision.nextCheckMillis);
+    }
+}
@@ -0,0 +1,43 @@
+package com.aerospike.example;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// EvictionManagerTest
+//
+//   GIVEN  what each set wants to remove, its priority and a deletion budget
+//   THEN   the budget is shared by priority, and what a set doesn't need goes to the others
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class EvictionManagerTest {
+
+    @Test
+    public void allocatesEverythingWithinBudget() {
+        assertArrayEquals(new long[]{100, 200, 0}, EvictionManager.allocate(new long[]{100, 200, 0}, new int[]{1, 1, 1}, 1000));
+    }
+
+    @Test
+    public void sharesByWeight() {
+        assertArrayEquals(new long[]{250, 750}, EvictionManager.allocate(new long[]{1000, 1000}, new int[]{1, 3}, 1000));
+    }
+
+    @Test
+    public void givesUnusedShareToOthers() {
+        // The first set only needs 100 of its 250
+        assertArrayEquals(new long[]{100, 300, 600}, EvictionManager.allocate(new long[]{100, 1000, 1000}, new int[]{1, 1, 2}, 1000));
+    }
+
+    @Test
+    public void handsOutRoundedDownShares() {
+        // Shares of 1 each, the last object goes to the first set of the highest weight
+        assertArrayEquals(new long[]{2, 1}, EvictionManager.allocate(new long[]{5, 5}, new int[]{1, 1}, 3));
+        assertArrayEquals(new long[]{0, 1}, EvictionManager.allocate(new long[]{5, 5}, new int[]{1, 2}, 1));
+    }
+
+    @Test
+    public void allocatesNothingWithoutBudget() {
+        assertArrayEquals(new long[]{0, 0}, EvictionManager.allocate(new long[]{5, 5}, new int[]{1, 1}, 0));
+    }
+}
@@ -0,0 +1,170 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Key;
+import com.aerospike.example.ManageMaxObjectsInLRUCachePolicy.EvictionMode;
+import com.aerospike.example.ManageMaxObjectsInLRUCachePolicy.ForceObjectEvictionPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// EvictionModesTest
+//
+//   GIVEN  a two node in memory store holding SET_SIZE records, half of them at or below WATERMARK
+//   WHEN   each eviction mode removes TO_REMOVE records at the watermark, with and without TTL tiers
+//   THEN   exactly that many records go, all of them at or below the watermark and in the tier evicted, and nothing
+//          else is touched
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class EvictionModesTest {
+    private static final int SET_SIZE = 1000;
+    private static final long WATERMARK = 5 * TestData.STEP;
+    private static final long TO_REMOVE = 100;
+
+    // Equal shares, reference is worth more so session is evicted first
+    private static final TtlTiers TIERS = TtlTiers.parse("session:ttl=500,share=50,value=1;reference:ttl=1000,share=50,value=10");
+
+    private InMemoryCacheStore store;
+
+    @Before
+    public void createStore() {
+        store = TestData.createStore(2);
+    }
+
+    @After
+    public void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void scanAndDelete() {
+        assertRemovesAtWatermark(EvictionMode.SCAN_AND_DELETE);
+    }
+
+    @Test
+    public void filteredScanDelete() {
+        assertRemovesAtWatermark(EvictionMode.FILTERED_SCAN_DELETE);
+    }
+
+    @Test
+    public void partitionScanDelete() {
+        assertRemovesAtWatermark(EvictionMode.PARTITION_SCAN_DELETE);
+    }
+
+    @Test
+    public void oldestFirstDelete() {
+        assertRemovesAtWatermark(EvictionMode.OLDEST_FIRST_DELETE);
+
+        // The TO_REMOVE records with the lowest TTL are the ones gone
+        assertEquals(0, TestData.count(store, RecordFilter.ttlAtMost(TestData.STEP)));
+    }
+
+    @Test
+    public void backgroundDelete() {
+        assertRemovesAtWatermark(EvictionMode.BACKGROUND_DELETE);
+    }
+
+    @Test
+    public void backgroundDeleteWithStaleCount() {
+        TestData.populate(store, SET_SIZE);
+        RecordFilter filter = RecordFilter.ttlAtMost(WATERMARK);
+
+        // The histogram was built before most of the candidates moved into the bucket, or before most of them went
+        for (long candidateBucketCount : new long[]{TO_REMOVE, 100 * SET_SIZE}) {
+            long candidates = TestData.count(store, filter);
+            long removed = ForceObjectEvictionPolicy.run(store, TestData.NAMESPACE, TestData.SET, filter, TO_REMOVE, candidateBucketCount, EvictionMode.BACKGROUND_DELETE, null);
+
+            assertEquals(TO_REMOVE, removed);
+            assertEquals(candidates - removed, TestData.count(store, filter));
+        }
+    }
+
+    @Test
+    public void lastAccessQueryDelete() {
+        Key[] keys = TestData.populate(store, SET_SIZE);
+        TestData.stampLastAccess(store, keys);
+
+        long removed = ForceObjectEvictionPolicy.runLastAccess(store, TestData.NAMESPACE, TestData.SET, null, TO_REMOVE, new LastAccessEvictor(TestData.TTL));
+
+        // Stamped longest ago are the records with the lowest TTL
+        assertEquals(TO_REMOVE, removed);
+        assertEquals(0, TestData.count(store, RecordFilter.ttlAtMost(TestData.STEP)));
+        assertEquals(SET_SIZE - TO_REMOVE, TestData.count(store, null));
+    }
+
+    @Test
+    public void scanAndDeleteWithTiers() {
+        assertRemovesFromTier(EvictionMode.SCAN_AND_DELETE);
+    }
+
+    @Test
+    public void filteredScanDeleteWithTiers() {
+        assertRemovesFromTier(EvictionMode.FILTERED_SCAN_DELETE);
+    }
+
+    @Test
+    public void partitionScanDeleteWithTiers() {
+        assertRemovesFromTier(EvictionMode.PARTITION_SCAN_DELETE);
+    }
+
+    @Test
+    public void oldestFirstDeleteWithTiers() {
+        assertRemovesFromTier(EvictionMode.OLDEST_FIRST_DELETE);
+    }
+
+    @Test
+    public void backgroundDeleteWithTiers() {
+        assertRemovesFromTier(EvictionMode.BACKGROUND_DELETE);
+    }
+
+    @Test
+    public void lastAccessQueryDeleteWithTiers() {
+        Key[] keys = TestData.populate(store, SET_SIZE, TIERS);
+        TestData.stampLastAccess(store, keys);
+        TtlTiers.Tier evicted = TIERS.getEvictionOrder().get(1);
+        RecordFilter filter = TIERS.filter(evicted, WATERMARK);
+        RecordFilter kept = TIERS.filter(TIERS.getEvictionOrder().get(0), Long.MAX_VALUE);
+        long candidates = TestData.count(store, filter);
+        long keptBefore = TestData.count(store, kept);
+
+        long removed = ForceObjectEvictionPolicy.runLastAccess(store, TestData.NAMESPACE, TestData.SET, filter, TO_REMOVE, new LastAccessEvictor(TestData.TTL));
+
+        assertEquals(TO_REMOVE, removed);
+        assertEquals(candidates - removed, TestData.count(store, filter));
+        assertEquals(keptBefore, TestData.count(store, kept));
+    }
+
+    private void assertRemovesAtWatermark(EvictionMode mode) {
+        TestData.populate(store, SET_SIZE);
+        RecordFilter filter = RecordFilter.ttlAtMost(WATERMARK);
+        long candidates = TestData.count(store, filter);
+        assertEquals(SET_SIZE / 2, candidates);
+
+        long removed = ForceObjectEvictionPolicy.run(store, TestData.NAMESPACE, TestData.SET, filter, TO_REMOVE, candidates, mode, null);
+
+        assertEquals(TO_REMOVE, removed);
+        assertEquals(candidates - removed, TestData.count(store, filter));
+        assertEquals(SET_SIZE - removed, TestData.count(store, null));
+    }
+
+    // Evicts from the tier worth more, the other tier isn't touched
+    private void assertRemovesFromTier(EvictionMode mode) {
+        TestData.populate(store, SET_SIZE, TIERS);
+        TtlTiers.Tier evicted = TIERS.getEvictionOrder().get(1);
+        RecordFilter filter = TIERS.filter(evicted, WATERMARK);
+        RecordFilter kept = TIERS.filter(TIERS.getEvictionOrder().get(0), Long.MAX_VALUE);
+        long candidates = TestData.count(store, filter);
+        long keptBefore = TestData.count(store, kept);
+        assertTrue("Too few candidates: " + candidates, candidates > 2 * TO_REMOVE);
+
+        long removed = ForceObjectEvictionPolicy.run(store, TestData.NAMESPACE, TestData.SET, filter, TO_REMOVE, candidates, mode, null);
+
+        assertEquals(TO_REMOVE, removed);
+        assertEquals(candidates - removed, TestData.count(store, filter));
+        assertEquals(keptBefore, TestData.count(store, kept));
+        assertEquals(SET_SIZE - removed, TestData.count(store, null));
+    }
+}
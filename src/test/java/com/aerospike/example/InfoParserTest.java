@@ -0,0 +1,133 @@
+package com.aerospike.example;
+
+import com.aerospike.example.ManageMaxObjectsInLRUCachePolicy.ObjectsPerTTLHistogramState;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// InfoParserTest
+//
+//   GIVEN  info responses in the server's format
+//   THEN   fields are found and read in place, and per node TTL histograms add up to the set's totals
+//   THEN   nodes whose histograms can't be added up (bad units, another bucket width) count as not responded
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class InfoParserTest {
+    private static final String SETS = "objects=973:tombstones=0:memory_data_bytes=61272:device_data_bytes=0:truncate_lut=0:stop-writes-count=0:disable-eviction=false;";
+
+    @Test
+    public void readsFields() {
+        assertEquals(973, InfoParser.longValue(SETS, "objects", -1));
+        assertEquals(61272, InfoParser.longValue(SETS, "memory_data_bytes", -1));
+        assertEquals(-1, InfoParser.longValue(SETS, "missing", -1));
+        assertTrue(InfoParser.valueEquals(SETS, "disable-eviction", "false"));
+        assertFalse(InfoParser.valueEquals(SETS, "disable-eviction", "fals"));
+    }
+
+    @Test
+    public void matchesWholeFieldNames() {
+        // data_bytes is only the end of memory_data_bytes
+        assertEquals(-1, InfoParser.valueStart(SETS, "data_bytes"));
+        assertEquals(0, InfoParser.longValue(SETS, "device_data_bytes", -1));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsNonNumbers() {
+        InfoParser.longValue(SETS, "disable-eviction", 0);
+    }
+
+    @Test
+    public void addsUpNodeHistograms() {
+        Map<String, String> histograms = new HashMap<>();
+        histograms.put("MEM000000000001", "units=seconds:hist-width=10:bucket-width=2:buckets=1,2,0,0,5");
+        histograms.put("MEM000000000002", "units=seconds:hist-width=10:bucket-width=2:buckets=3,0,0,4,0");
+
+        ObjectsPerTTLHistogramState state = ObjectsPerTTLHistogramState.fetch(storeAnswering(histograms), TestData.NAMESPACE, TestData.SET, 10);
+
+        assertTrue(state.isComplete());
+        assertEquals(4, state.calculateObjectsUpToBucket(0));
+        assertEquals(6, state.calculateObjectsUpToBucket(1));
+        assertEquals(15, state.calculateObjectsUpToBucket(4));
+        assertEquals(3, state.calculateBucketIndexCovering(10));
+        assertEquals(6, state.calculateBucketTTL(3));
+    }
+
+    @Test
+    public void leavesOutNodesWithBadHistograms() {
+        Map<String, String> histograms = new HashMap<>();
+        histograms.put("MEM000000000001", "units=seconds:hist-width=10:bucket-width=2:buckets=1,2,0,0,5");
+        histograms.put("MEM000000000002", "units=milliseconds:hist-width=10:bucket-width=2:buckets=3,0,0,4,0");
+
+        ObjectsPerTTLHistogramState state = ObjectsPerTTLHistogramState.fetch(storeAnswering(histograms), TestData.NAMESPACE, TestData.SET, 10);
+
+        assertFalse(state.isComplete());
+        assertEquals(0.5, state.getCoverage(), 0);
+        assertEquals(8, state.calculateObjectsUpToBucket(4));
+    }
+
+    @Test
+    public void leavesOutNodesWithOtherBucketWidths() {
+        Map<String, String> histograms = new HashMap<>();
+        histograms.put("MEM000000000001", "units=seconds:hist-width=10:bucket-width=2:buckets=1,2,0,0,5");
+        histograms.put("MEM000000000002", "units=seconds:hist-width=10:bucket-width=2:buckets=3,0,0,4,0");
+        histograms.put("MEM000000000003", "units=seconds:hist-width=20:bucket-width=4:buckets=7,0,0,0,0");
+        InMemoryCacheStore store = storeAnswering(histograms);
+
+        // The node with a TTL range of its own can't be added to the others, whichever order the nodes answer in
+        ObjectsPerTTLHistogramState state = ObjectsPerTTLHistogramState.fetch(store, TestData.NAMESPACE, TestData.SET, 10);
+        assertFalse(state.isComplete());
+        assertEquals(2.0 / 3, state.getCoverage(), 0.001);
+        assertEquals(15, state.calculateObjectsUpToBucket(4));
+        assertEquals(2, state.calculateBucketTTL(1));
+
+        histograms.put("MEM000000000003", "units=seconds:hist-width=10:bucket-width=2:buckets=0,0,6,0,0");
+        state.refresh(store);
+        assertTrue(state.isComplete());
+        assertEquals(21, state.calculateObjectsUpToBucket(4));
+    }
+
+    @Test
+    public void refreshesInPlace() {
+        Map<String, String> histograms = new HashMap<>();
+        histograms.put("MEM000000000001", "units=seconds:hist-width=10:bucket-width=2:buckets=1,2,0,0,5");
+        InMemoryCacheStore store = storeAnswering(histograms);
+        ObjectsPerTTLHistogramState state = ObjectsPerTTLHistogramState.fetch(store, TestData.NAMESPACE, TestData.SET, 10);
+
+        // Same node, fewer objects and a new bucket width
+        histograms.put("MEM000000000001", "units=seconds:hist-width=20:bucket-width=4:buckets=0,1,0,0,0");
+        state.refresh(store);
+
+        assertTrue(state.isChanged());
+        assertEquals(1, state.calculateObjectsUpToBucket(4));
+        assertEquals(4, state.calculateBucketTTL(1));
+    }
+
+    @Test
+    public void readsInMemoryHistograms() {
+        InMemoryCacheStore store = TestData.createStore(4);
+        TestData.populate(store, 1000);
+
+        ObjectsPerTTLHistogramState state = ObjectsPerTTLHistogramState.fetch(store, TestData.NAMESPACE, TestData.SET, TestData.TTL);
+
+        // Every node's share of the set, TTLs of up to TestData.TTL in 100 buckets
+        assertTrue(state.isComplete());
+        assertEquals(1000, state.calculateObjectsUpToBucket(InMemoryCacheStore.DEFAULT_HISTOGRAM_BUCKETS - 1));
+        assertEquals(100, state.calculateObjectsUpToBucket(state.calculateBucketIndexCovering(100)));
+        assertTrue(state.getAverageObjectBytes() > 0);
+    }
+
+    // Histogram responses by node name, one node per response
+    private static InMemoryCacheStore storeAnswering(Map<String, String> histograms) {
+        return new InMemoryCacheStore(histograms.size(), TestData.TTL) {
+            public String info(String nodeName, String command) {
+                return command.startsWith("histogram:") ? histograms.get(nodeName) : super.info(nodeName, command);
+            }
+        };
+    }
+}
@@ -0,0 +1,115 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.WritePolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// KeepAlivePipelineTest
+//
+//   GIVEN  a pipeline with a window long enough to collect every request of a test
+//   WHEN   keep alives arrive, several for the same keys
+//   THEN   one command goes to the store per distinct key and every request's future completes with its result
+//   THEN   a store failing with any exception fails the futures waiting on it, and the pipeline keeps sending
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class KeepAlivePipelineTest {
+    private static final long WINDOW_MILLIS = 200;
+    private static final int REQUESTS_PER_KEY = 5;
+
+    private CountingStore store;
+    private KeepAlivePipeline pipeline;
+    private Key[] keys;
+
+    @Before
+    public void createPipeline() {
+        store = new CountingStore();
+        keys = TestData.populate(store, 3);
+        store.operations.set(0);
+        pipeline = new KeepAlivePipeline(store, 100, WINDOW_MILLIS, 10, Operation.touch(), Operation.get());
+    }
+
+    @After
+    public void closePipeline() {
+        pipeline.close();
+        store.close();
+    }
+
+    @Test
+    public void sendsOnePerDistinctKey() throws Exception {
+        List<CompletableFuture<Record>> futures = new ArrayList<>();
+        for (int i = 0; i < REQUESTS_PER_KEY; i++) {
+            for (Key key : keys) {
+                futures.add(pipeline.keepAlive(key, TestData.TTL));
+            }
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            Record record = futures.get(i).get(10, TimeUnit.SECONDS);
+            assertNotNull(record);
+            assertEquals("value-" + (i % keys.length), record.getString(TestData.BIN));
+
+            // Requests for the same key share the command
+            assertSame(futures.get(i % keys.length), futures.get(i));
+        }
+        assertEquals(keys.length, store.operations.get());
+        assertEquals(REQUESTS_PER_KEY, pipeline.getCoalescingRatio(), 0.001);
+    }
+
+    @Test
+    public void failsFuturesOnAnyStoreError() throws Exception {
+        store.failing = keys[0];
+        CompletableFuture<Record> failed = pipeline.keepAlive(keys[0], TestData.TTL);
+        CompletableFuture<Record> joined = pipeline.keepAlive(keys[0], TestData.TTL);
+        CompletableFuture<Record> other = pipeline.keepAlive(keys[1], TestData.TTL);
+
+        for (CompletableFuture<Record> future : Arrays.asList(failed, joined)) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("Expected the keep alive to fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+        assertNotNull(other.get(10, TimeUnit.SECONDS));
+
+        // The sender is still running
+        assertNotNull(pipeline.keepAlive(keys[2], TestData.TTL).get(10, TimeUnit.SECONDS));
+    }
+
+    // Counts operate calls, and fails them for the failing key with an exception that isn't an AerospikeException
+    private static final class CountingStore extends InMemoryCacheStore {
+        final AtomicInteger operations = new AtomicInteger();
+        volatile Key failing;
+
+        CountingStore() {
+            super(1, TestData.TTL);
+        }
+
+        public Record operate(WritePolicy policy, Key key, Operation... operations) {
+            this.operations.incrementAndGet();
+            if (key.equals(failing)) {
+                throw new IllegalStateException("Store failed");
+            }
+            return super.operate(policy, key, operations);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.ScanCallback;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// LastAccessEvictorTest
+//
+//   GIVEN  SET_SIZE records stamped with a last access TTL - ttl seconds ago, a tenth of them per TTL step
+//   WHEN   evicting with one window per TTL step and pages smaller than what is removed
+//   THEN   the least recently used records go first, a page at a time
+//   THEN   a window the pass found empty becomes the floor the next pass starts from
+//   THEN   a record accessed between the query and its delete stays
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class LastAccessEvictorTest {
+    private static final int SET_SIZE = 1000;
+    private static final long TO_REMOVE = SET_SIZE / 10;
+    private static final int WINDOWS = TestData.TTL / TestData.STEP;
+    private static final int PAGE_SIZE = 30;
+
+    private AccessingStore store;
+    private Key[] keys;
+
+    @Before
+    public void createStore() {
+        store = new AccessingStore();
+        keys = TestData.populate(store, SET_SIZE);
+        TestData.stampLastAccess(store, keys);
+    }
+
+    @After
+    public void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void removesLeastRecentlyUsedFromFloor() {
+        LastAccessEvictor evictor = new LastAccessEvictor(TestData.TTL, WINDOWS, PAGE_SIZE);
+
+        // The first window holds exactly what is removed, the pass stops without finding it empty
+        assertEquals(TO_REMOVE, evictor.evict(store, TestData.NAMESPACE, TestData.SET, null, TO_REMOVE));
+        assertEquals(0, TestData.count(store, RecordFilter.ttlAtMost(TestData.STEP)));
+        assertEquals(0, evictor.getFloor());
+        assertEquals((TO_REMOVE + PAGE_SIZE - 1) / PAGE_SIZE, store.queries);
+
+        // The next pass finds it empty and moves the floor past it
+        long beforeSeconds = LastAccessCacheStore.nowSeconds();
+        assertEquals(TO_REMOVE, evictor.evict(store, TestData.NAMESPACE, TestData.SET, null, TO_REMOVE));
+        long afterSeconds = LastAccessCacheStore.nowSeconds();
+        assertEquals(0, TestData.count(store, RecordFilter.ttlAtMost(2 * TestData.STEP)));
+        long firstWindowEnd = TestData.STEP - TestData.TTL;
+        assertTrue("Floor " + evictor.getFloor(), evictor.getFloor() >= beforeSeconds + firstWindowEnd + 1 && evictor.getFloor() <= afterSeconds + firstWindowEnd + 1);
+
+        // From the floor on, the emptied window isn't queried again
+        store.queries = 0;
+        assertEquals(TO_REMOVE, evictor.evict(store, TestData.NAMESPACE, TestData.SET, null, TO_REMOVE));
+        assertEquals((TO_REMOVE + PAGE_SIZE - 1) / PAGE_SIZE + 1, store.queries);
+        assertEquals(SET_SIZE - 3 * TO_REMOVE, TestData.count(store, null));
+    }
+
+    @Test
+    public void keepsRecordsAccessedSinceQuery() {
+        LastAccessEvictor evictor = new LastAccessEvictor(TestData.TTL, WINDOWS, PAGE_SIZE);
+        store.accessFirst = true;
+
+        assertEquals(TO_REMOVE, evictor.evict(store, TestData.NAMESPACE, TestData.SET, null, TO_REMOVE));
+
+        // Stamped now, it is the most recently used record and stays
+        assertNotNull(store.get(null, store.accessed));
+        assertEquals(SET_SIZE - TO_REMOVE, TestData.count(store, null));
+    }
+
+    // Counts range queries, and with accessFirst reads (restamps) the first record the first query returned before its
+    // delete goes out
+    private static final class AccessingStore extends InMemoryCacheStore {
+        int queries;
+        boolean accessFirst;
+        Key accessed;
+
+        AccessingStore() {
+            super(2, TestData.TTL);
+        }
+
+        public void queryRange(QueryPolicy policy, String namespace, String setName, String binName, long begin, long end, RecordFilter filter, ScanCallback callback) {
+            queries++;
+            List<Key> returned = new ArrayList<>();
+            super.queryRange(policy, namespace, setName, binName, begin, end, filter, (key, record) -> {
+                returned.add(key);
+                callback.scanCallback(key, record);
+            });
+
+            if (accessFirst && accessed == null && !returned.isEmpty()) {
+                accessed = returned.get(0);
+                WritePolicy writePolicy = new WritePolicy();
+                writePolicy.expiration = -2;
+                operate(writePolicy, accessed, Operation.put(new Bin(LastAccessCacheStore.BIN, LastAccessCacheStore.nowSeconds())));
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.aerospike.example;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// LruCacheTest
+//
+//   GIVEN  an LruCache on the in memory store
+//   WHEN   several threads miss on the same key while its load is running
+//   THEN   the loader runs once, every caller gets its value (or its failure) and the value is cached
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class LruCacheTest {
+    private static final int CALLERS = 8;
+
+    private InMemoryCacheStore store;
+    private ExecutorService callers;
+
+    @Before
+    public void createStore() {
+        store = TestData.createStore(1);
+        callers = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @After
+    public void closeStore() {
+        callers.shutdownNow();
+        store.close();
+    }
+
+    @Test
+    public void sharesConcurrentLoads() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LruCache<String, String> cache = new LruCache<>(store, TestData.NAMESPACE, "shared", TestData.BIN, TestData.TTL, LruCache.binValues(), key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            release.await();
+            return "loaded-" + key;
+        });
+
+        List<Future<String>> results = startCallers(cache, loading);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("loaded-a", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(CALLERS - 1, sharedLoads("shared"));
+
+        // Cached, the loader isn't asked again
+        assertEquals("loaded-a", cache.getOrLoad("a"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void sharesLoadFailures() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("backend down");
+        LruCache<String, String> cache = new LruCache<>(store, TestData.NAMESPACE, "failing", TestData.BIN, TestData.TTL, LruCache.binValues(), key -> {
+            loading.countDown();
+            release.await();
+            throw failure;
+        });
+
+        List<Future<String>> results = startCallers(cache, loading);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("Expected the load to fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof LruCache.LoadException);
+                assertSame(failure, e.getCause().getCause());
+            }
+        }
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void doesNotCacheMissingValues() {
+        AtomicInteger loads = new AtomicInteger();
+        LruCache<String, String> cache = new LruCache<>(store, TestData.NAMESPACE, "missing", TestData.BIN, TestData.TTL, LruCache.binValues(), key -> {
+            loads.incrementAndGet();
+            return null;
+        });
+
+        assertNull(cache.getOrLoad("a"));
+        assertNull(cache.getOrLoad("a"));
+        assertEquals(2, loads.get());
+    }
+
+    // The first caller's load is running before the others miss, they wait until every one of them has joined it
+    private List<Future<String>> startCallers(LruCache<String, String> cache, CountDownLatch loading) throws InterruptedException {
+        List<Future<String>> results = new ArrayList<>();
+        results.add(callers.submit(() -> cache.getOrLoad("a")));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        String setName = cache.toKey("a").setName;
+        long sharedBefore = sharedLoads(setName);
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(callers.submit(() -> cache.getOrLoad("a")));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (sharedLoads(setName) - sharedBefore < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        return results;
+    }
+
+    private static long sharedLoads(String setName) {
+        return Metrics.GLOBAL.counter("lru.cache.load.shared", "set", TestData.NAMESPACE + "/" + setName).getCount();
+    }
+}
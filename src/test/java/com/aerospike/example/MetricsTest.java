@@ -0,0 +1,90 @@
+package com.aerospike.example;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// MetricsTest
+//
+//   GIVEN  counters and timers registered by name and tags
+//   THEN   the Prometheus text has one TYPE line per name and one sample per tag set, tag values escaped
+//   GIVEN  a policy on a set whose histogram has a bucket per TTL step
+//   THEN   the histogram is exported as one lru.histogram.ttl gauge per oldest share, whatever the bucket count, each the
+//          TTL that share of the objects lives at most
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class MetricsTest {
+    private static final int SET_SIZE = 1000;
+
+    private InMemoryCacheStore store;
+
+    @Before
+    public void createStore() {
+        store = TestData.createStore(2);
+    }
+
+    @After
+    public void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void exportsCountersAndTimers() {
+        Metrics metrics = new Metrics();
+        metrics.counter("test.requests", "set", "a").add(3);
+        metrics.counter("test.requests", "set", "b\"quoted\"").increment();
+        metrics.timer("test.pass").record(2_000_000_000L);
+
+        String text = metrics.toPrometheus();
+
+        assertEquals(1, lines(text, "# TYPE test_requests counter").size());
+        assertTrue(text, text.contains("test_requests{set=\"a\"} 3.0\n"));
+        assertTrue(text, text.contains("test_requests{set=\"b\\\"quoted\\\"\"} 1.0\n"));
+        assertTrue(text, text.contains("# TYPE test_pass_seconds summary\n"));
+        assertTrue(text, text.contains("test_pass_seconds_count 1.0\n"));
+        assertTrue(text, text.contains("test_pass_seconds_sum 2.0\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnpairedTags() {
+        new Metrics().counter("test.requests", "set");
+    }
+
+    @Test
+    public void exportsHistogramAsOldestShares() {
+        TestData.populate(store, SET_SIZE);
+        ManageMaxObjectsInLRUCachePolicy policy = new ManageMaxObjectsInLRUCachePolicy(new AtomicBoolean(), store, TestData.NAMESPACE, TestData.SET, TestData.TTL, SET_SIZE, 1);
+        ManageMaxObjectsInLRUCachePolicy.ObjectsPerTTLHistogramState state = policy.getState();
+        state.refresh(store);
+
+        String set = "set=\"" + TestData.NAMESPACE + "/" + TestData.SET + "\"";
+        List<String> samples = lines(Metrics.GLOBAL.toPrometheus(), "lru_histogram_ttl{" + set);
+        assertEquals(ManageMaxObjectsInLRUCachePolicy.OLDEST_SHARES.length, samples.size());
+        assertTrue(lines(Metrics.GLOBAL.toPrometheus(), "lru_histogram_bucket{").isEmpty());
+
+        // A tenth of the records at each TTL step, within a bucket of it as TTLs tick down
+        long bucketWidth = TestData.TTL / InMemoryCacheStore.DEFAULT_HISTOGRAM_BUCKETS;
+        for (double share : ManageMaxObjectsInLRUCachePolicy.OLDEST_SHARES) {
+            long ttl = state.calculateTTLOfOldest(share);
+            long stepTTL = (long) Math.ceil(share * TestData.TTL / TestData.STEP) * TestData.STEP;
+            assertTrue("Oldest " + share + ": " + ttl, ttl >= stepTTL && ttl <= stepTTL + bucketWidth);
+            assertTrue(samples.toString(), samples.contains("lru_histogram_ttl{" + set + ",oldest=\"" + share + "\"} " + (double) ttl));
+        }
+    }
+
+    private static List<String> lines(String text, String prefix) {
+        List<String> lines = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            if (line.startsWith(prefix)) lines.add(line);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,98 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.WritePolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// NearCacheStoreTest
+//
+//   GIVEN  a near cache in front of the in memory store
+//   WHEN   a write or delete lands between a miss reading the store and caching what it read
+//   THEN   the copy the miss read isn't cached, the next read sees the store's
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class NearCacheStoreTest {
+    private static final Key KEY = new Key(TestData.NAMESPACE, TestData.SET, "record_id-0");
+
+    private RacingStore backing;
+    private NearCacheStore store;
+
+    @Before
+    public void createStore() {
+        backing = new RacingStore();
+        store = new NearCacheStore(backing, 1 << 20);
+        store.put(new WritePolicy(), KEY, new Bin(TestData.BIN, "old"));
+    }
+
+    @After
+    public void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void cachesMisses() {
+        assertEquals("old", store.get(null, KEY).getString(TestData.BIN));
+        assertEquals(1, store.getNearCache().size());
+    }
+
+    @Test
+    public void doesNotCacheReadRacingDelete() {
+        backing.afterRead = () -> store.delete(null, KEY);
+
+        assertNotNull(store.get(null, KEY));
+        assertEquals(0, store.getNearCache().size());
+        assertNull(store.get(null, KEY));
+    }
+
+    @Test
+    public void doesNotCacheKeepAliveRacingPut() {
+        backing.afterRead = () -> store.put(new WritePolicy(), KEY, new Bin(TestData.BIN, "new"));
+
+        store.operate(new WritePolicy(), KEY, Operation.touch(), Operation.get());
+        assertEquals(0, store.getNearCache().size());
+        assertEquals("new", store.operate(new WritePolicy(), KEY, Operation.touch(), Operation.get()).getString(TestData.BIN));
+    }
+
+    @Test
+    public void doesNotCacheReadRacingBackgroundDelete() {
+        backing.afterRead = () -> store.backgroundDelete(TestData.NAMESPACE, TestData.SET, RecordFilter.ttlAtMost(Long.MAX_VALUE));
+
+        assertNotNull(store.get(null, KEY));
+        assertNull(store.get(null, KEY));
+    }
+
+    // Runs afterRead once, after reading the record and before handing it back
+    private static final class RacingStore extends InMemoryCacheStore {
+        Runnable afterRead;
+
+        RacingStore() {
+            super(1, TestData.TTL);
+        }
+
+        public Record get(Policy policy, Key key) {
+            return race(super.get(policy, key));
+        }
+
+        public Record operate(WritePolicy policy, Key key, Operation... operations) {
+            return race(super.operate(policy, key, operations));
+        }
+
+        private Record race(Record record) {
+            Runnable race = afterRead;
+            afterRead = null;
+            if (race != null) race.run();
+            return record;
+        }
+    }
+}
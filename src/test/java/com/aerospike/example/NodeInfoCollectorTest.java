@@ -0,0 +1,73 @@
+package com.aerospike.example;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// NodeInfoCollectorTest
+//
+//   GIVEN  nodes that answer and nodes that hang
+//   THEN   the nodes that answered are reported, the others time out by the deadline however many nodes there are
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class NodeInfoCollectorTest {
+    private static final long TIMEOUT_MILLIS = 200;
+
+    @Test
+    public void collectsEveryNode() {
+        NodeInfoCollector.Responses<String> responses = new NodeInfoCollector(new HangingStore(3, -1), TIMEOUT_MILLIS).request("node");
+
+        assertTrue(responses.isComplete());
+        for (int i = 0; i < responses.getNodeCount(); i++) {
+            assertEquals(responses.nodeNames[i], responses.get(i));
+        }
+    }
+
+    @Test
+    public void timesOutSingleNode() {
+        assertTimesOut(new HangingStore(1, 0), 0);
+    }
+
+    @Test
+    public void timesOutOneOfSeveralNodes() {
+        assertTimesOut(new HangingStore(3, 1), 1);
+    }
+
+    private static void assertTimesOut(HangingStore store, int hangingNode) {
+        long startNanos = System.nanoTime();
+        NodeInfoCollector.Responses<String> responses = new NodeInfoCollector(store, TIMEOUT_MILLIS).request("node");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        assertTrue("Took " + elapsedMillis + "ms", elapsedMillis < 10 * TIMEOUT_MILLIS);
+        assertEquals(responses.getNodeCount() - 1, responses.getRespondedCount());
+        assertNull(responses.get(hangingNode));
+        assertTrue(responses.getError(hangingNode) instanceof TimeoutException);
+    }
+
+    // Answers info with the node's name, the node at hangingNode (-1 for none) never answers
+    private static final class HangingStore extends InMemoryCacheStore {
+        private final int hangingNode;
+
+        HangingStore(int nodeCount, int hangingNode) {
+            super(nodeCount, TestData.TTL);
+            this.hangingNode = hangingNode;
+        }
+
+        public String info(String nodeName, String command) {
+            if (hangingNode >= 0 && nodeName.equals(getNodeNames()[hangingNode])) {
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return nodeName;
+        }
+    }
+}
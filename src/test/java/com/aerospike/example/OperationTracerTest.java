@@ -0,0 +1,110 @@
+package com.aerospike.example;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.cluster.Partition;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.example.OperationTracer.Event;
+import com.aerospike.example.OperationTracer.OperationType;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// OperationTracerTest
+//
+//   GIVEN  a tracer sampling so rarely that only slow and failing operations are kept
+//   THEN   fast operations and not found answers are left out, slow or failing ones and eviction passes are kept
+//   GIVEN  more events than the ring holds
+//   THEN   the ring is the size rounded up to a power of two, holds the latest events and dumps them oldest first
+//   GIVEN  a tracing store over a store that times out
+//   THEN   the failure is traced with its result code, node and partition
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class OperationTracerTest {
+    private static final String RARELY = "sample=" + Integer.MAX_VALUE + ",slow-ms=10,size=16";
+
+    @Test
+    public void keepsSlowAndFailingOperations() {
+        OperationTracer tracer = new OperationTracer();
+        assertFalse(tracer.shouldRecord(TimeUnit.SECONDS.toNanos(1), ResultCode.TIMEOUT));
+
+        tracer.configure(RARELY);
+        long fast = TimeUnit.MILLISECONDS.toNanos(1);
+        assertFalse(tracer.shouldRecord(fast, ResultCode.OK));
+        assertFalse(tracer.shouldRecord(fast, ResultCode.KEY_NOT_FOUND_ERROR));
+        assertTrue(tracer.shouldRecord(fast, ResultCode.TIMEOUT));
+        assertTrue(tracer.shouldRecord(TimeUnit.MILLISECONDS.toNanos(10), ResultCode.OK));
+
+        // Passes are kept whatever the sampling
+        tracer.recordPass(TestData.SET, System.nanoTime(), 7);
+        List<Event> events = tracer.snapshot(60);
+        assertEquals(1, events.size());
+        assertEquals(OperationType.EVICTION_PASS, events.get(0).operation);
+        assertEquals(7, events.get(0).count);
+    }
+
+    @Test
+    public void keepsLatestEventsOldestFirst() {
+        OperationTracer tracer = new OperationTracer().configure("sample=1,slow-ms=0,size=5");
+
+        // Event i started 19.5 - i seconds ago
+        for (int i = 0; i < 20; i++) {
+            tracer.record(OperationType.PUT, "node", i, TimeUnit.MILLISECONDS.toNanos(19500 - 1000 * i), ResultCode.OK, i);
+        }
+
+        List<Event> events = tracer.snapshot(60);
+        assertEquals(8, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(12 + i, events.get(i).count);
+        }
+
+        // Only the events started in the last few seconds
+        assertEquals(3, tracer.snapshot(3).size());
+        assertTrue(tracer.dump(60).startsWith("# 8 events in the last 60s"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyRing() {
+        new OperationTracer().configure("size=0");
+    }
+
+    @Test
+    public void tracesStoreFailures() {
+        // Slow enough that only the failure is kept, however long the first call takes
+        OperationTracer tracer = new OperationTracer().configure("sample=" + Integer.MAX_VALUE + ",slow-ms=60000");
+        InMemoryCacheStore timingOut = new InMemoryCacheStore(2, TestData.TTL) {
+            public void put(WritePolicy policy, Key key, Bin... bins) {
+                throw new AerospikeException(ResultCode.TIMEOUT, "Timed out");
+            }
+        };
+        TracingCacheStore store = new TracingCacheStore(timingOut, tracer);
+        Key key = new Key(TestData.NAMESPACE, TestData.SET, "key");
+
+        // Not found isn't a failure
+        store.get(null, key);
+        try {
+            store.put(null, key, new Bin(TestData.BIN, "value"));
+            fail("Expected the put to time out");
+        } catch (AerospikeException e) {
+            assertEquals(ResultCode.TIMEOUT, e.getResultCode());
+        }
+        timingOut.close();
+
+        List<Event> events = tracer.snapshot(60);
+        assertEquals(1, events.size());
+        Event event = events.get(0);
+        assertEquals(OperationType.PUT, event.operation);
+        assertEquals(ResultCode.TIMEOUT, event.resultCode);
+        assertEquals(timingOut.nodeOf(key), event.node);
+        assertEquals(Partition.getPartitionId(key.digest), event.partition);
+    }
+}
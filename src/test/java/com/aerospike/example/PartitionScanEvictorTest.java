@@ -0,0 +1,129 @@
+package com.aerospike.example;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.ScanCallback;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.policy.ScanPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// PartitionScanEvictorTest
+//
+//   GIVEN  one worker and a store that records which partitions are scanned, from which digest
+//   WHEN   a pass stops part way through the partitions
+//   THEN   the next pass resumes the partition it stopped in from its last digest, and scans no partition this round
+//          already finished, wherever the finished partitions are
+//   THEN   a pass needing more than the unfinished partitions hold goes on to the finished ones, every partition once
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class PartitionScanEvictorTest {
+    private static final int SET_SIZE = 1000;
+    private static final RecordFilter WATERMARK = RecordFilter.ttlAtMost(5 * TestData.STEP);
+    private static final long TO_REMOVE = 20;
+
+    private RecordingStore store;
+    private PartitionScanEvictor evictor;
+
+    @Before
+    public void createStore() {
+        store = new RecordingStore();
+        TestData.populate(store, SET_SIZE);
+        evictor = new PartitionScanEvictor(1);
+    }
+
+    @After
+    public void closeStore() {
+        evictor.close();
+        store.close();
+    }
+
+    @Test
+    public void resumesWherePassStopped() {
+        assertEquals(TO_REMOVE, evictor.evict(store, TestData.NAMESPACE, TestData.SET, WATERMARK, TO_REMOVE));
+        int stoppedIn = store.scanned.get(store.scanned.size() - 1);
+        byte[] resumeDigest = evictor.getResumeDigests()[stoppedIn];
+        assertNotNull(resumeDigest);
+        assertEquals(stoppedIn, evictor.getNextPartition());
+
+        store.clear();
+        assertEquals(TO_REMOVE, evictor.evict(store, TestData.NAMESPACE, TestData.SET, WATERMARK, TO_REMOVE));
+        assertEquals(stoppedIn, (int) store.scanned.get(0));
+        assertArrayEquals(resumeDigest, store.afterDigests.get(0));
+    }
+
+    @Test
+    public void skipsPartitionsFinishedAfterAnUnfinishedOne() {
+        // The first partition fails, the pass carries on past it
+        store.failing = 0;
+        assertEquals(TO_REMOVE, evictor.evict(store, TestData.NAMESPACE, TestData.SET, WATERMARK, TO_REMOVE));
+        List<Integer> firstPass = new ArrayList<>(store.scanned);
+        boolean[] finished = evictor.getFinishedPartitions();
+        assertFalse(finished[0]);
+        assertTrue(finished[1]);
+        assertEquals(0, evictor.getNextPartition());
+
+        // The failed partition again, then on from where the first pass stopped
+        store.clear();
+        assertEquals(TO_REMOVE, evictor.evict(store, TestData.NAMESPACE, TestData.SET, WATERMARK, TO_REMOVE));
+        assertEquals(0, (int) store.scanned.get(0));
+        assertEquals(firstPass.get(firstPass.size() - 1), store.scanned.get(1));
+        for (int partitionId : store.scanned) {
+            assertFalse("Rescanned finished partition " + partitionId, finished[partitionId]);
+        }
+    }
+
+    @Test
+    public void scansFinishedPartitionsLastWhenOthersDontHoldEnough() {
+        assertEquals(TO_REMOVE, evictor.evict(store, TestData.NAMESPACE, TestData.SET, WATERMARK, TO_REMOVE));
+        long candidates = TestData.count(store, WATERMARK);
+
+        store.clear();
+        assertEquals(candidates, evictor.evict(store, TestData.NAMESPACE, TestData.SET, WATERMARK, SET_SIZE));
+        assertEquals(Node.PARTITIONS, store.scanned.size());
+        assertEquals(Node.PARTITIONS, new HashSet<>(store.scanned).size());
+        assertEquals(0, TestData.count(store, WATERMARK));
+
+        // Every partition finished, the next pass starts a new round
+        for (boolean partitionFinished : evictor.getFinishedPartitions()) {
+            assertFalse(partitionFinished);
+        }
+    }
+
+    // Records the partitions scanned in order, and fails the scan of partition failing once
+    private static final class RecordingStore extends InMemoryCacheStore {
+        final List<Integer> scanned = new ArrayList<>();
+        final List<byte[]> afterDigests = new ArrayList<>();
+        int failing = -1;
+
+        RecordingStore() {
+            super(2, TestData.TTL);
+        }
+
+        void clear() {
+            scanned.clear();
+            afterDigests.clear();
+        }
+
+        public void scanPartition(ScanPolicy policy, String namespace, String setName, int partitionId, byte[] afterDigest, RecordFilter filter, ScanCallback callback) {
+            scanned.add(partitionId);
+            afterDigests.add(afterDigest);
+            if (partitionId == failing) {
+                failing = -1;
+                throw new AerospikeException("Partition " + partitionId + " unavailable");
+            }
+            super.scanPartition(policy, namespace, setName, partitionId, afterDigest, filter, callback);
+        }
+    }
+}
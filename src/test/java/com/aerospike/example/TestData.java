@@ -0,0 +1,78 @@
+package com.aerospike.example;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// TestData
+//
+//   GIVEN  a set size and optionally TTL tiers
+//   THEN   build an in memory store holding that many records with TTLs of STEP, 2 * STEP, ... TTL seconds in turn,
+//          with tiers every record also gets its tier's number in the tier bin
+//
+//   TTLs are whole multiples of STEP so a record's TTL ticking down during a test never moves it past a watermark
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+final class TestData {
+    static final String NAMESPACE = "lru_test";
+    static final String SET = "mycache";
+    static final String BIN = "bin1";
+    static final int STEP = 100;
+    static final int TTL = 10 * STEP;
+
+    // Use factory methods
+    private TestData() {
+    }
+
+    static InMemoryCacheStore createStore(int nodeCount) {
+        return new InMemoryCacheStore(nodeCount, TTL, InMemoryCacheStore.DEFAULT_HISTOGRAM_BUCKETS, System::currentTimeMillis);
+    }
+
+    static Key[] populate(CacheStore store, int setSize) {
+        return populate(store, setSize, null);
+    }
+
+    static Key[] populate(CacheStore store, int setSize, TtlTiers tiers) {
+        WritePolicy writePolicy = new WritePolicy();
+        Key[] keys = new Key[setSize];
+        for (int i = 0; i < setSize; i++) {
+            keys[i] = new Key(NAMESPACE, SET, "record_id-" + i);
+            writePolicy.expiration = ttlOf(i);
+            Bin value = new Bin(BIN, "value-" + i);
+            if (tiers != null) {
+                store.put(writePolicy, keys[i], value, new Bin(TtlTiers.BIN, (long) tiers.tierOf(keys[i]).id));
+            } else {
+                store.put(writePolicy, keys[i], value);
+            }
+        }
+        return keys;
+    }
+
+    // The TTL populate gave the i'th record
+    static int ttlOf(int i) {
+        return (i % (TTL / STEP) + 1) * STEP;
+    }
+
+    // Stamp the last access bin as if each record was last touched with the TTL it has left, the records with the
+    // lowest TTL were accessed longest ago
+    static void stampLastAccess(CacheStore store, Key[] keys) {
+        WritePolicy writePolicy = new WritePolicy();
+        writePolicy.expiration = -2;
+        long nowSeconds = LastAccessCacheStore.nowSeconds();
+        for (int i = 0; i < keys.length; i++) {
+            store.operate(writePolicy, keys[i], Operation.put(new Bin(LastAccessCacheStore.BIN, nowSeconds - (TTL - ttlOf(i)))));
+        }
+    }
+
+    // Records the filter selects, checked on the server side like a filtered scan
+    static long count(CacheStore store, RecordFilter filter) {
+        AtomicLong count = new AtomicLong();
+        store.scanAll(new ScanPolicy(), NAMESPACE, SET, filter, (key, record) -> count.incrementAndGet());
+        return count.get();
+    }
+}
@@ -0,0 +1,75 @@
+package com.aerospike.example;
+
+import com.aerospike.client.cluster.Node;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// TtlEstimatorTest
+//
+//   GIVEN  a histogram whose buckets are taken whole, one second wide, or fewer than asked for
+//   THEN   the watermark is the top of the bucket the removals end in (or of the last bucket), from the histogram alone
+//   GIVEN  SET_SIZE records with TTLs of STEP, 2 * STEP, ... in one bucket twice the TTL wide
+//   WHEN   removing part of the bucket, sampling every partition
+//   THEN   the bucket is split where the sample puts the share needed, and a filtered pass on the watermark takes exactly
+//          the number asked for
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class TtlEstimatorTest {
+    private static final int SET_SIZE = 1000;
+
+    private InMemoryCacheStore store;
+    private TtlEstimator estimator;
+
+    @Before
+    public void createStore() {
+        store = TestData.createStore(2);
+        estimator = new TtlEstimator(TestData.NAMESPACE, TestData.SET, Integer.MAX_VALUE);
+    }
+
+    @After
+    public void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void takesWholeBucketsFromHistogram() {
+        long[] objectsPerBucket = {5, 10, 20, 0};
+
+        // The first two buckets hold exactly what is asked for
+        assertWatermark(19, 15, estimator.estimate(store, TestData.NAMESPACE, TestData.SET, 10, objectsPerBucket, 15));
+
+        // One second buckets can't be split
+        assertWatermark(2, 35, estimator.estimate(store, TestData.NAMESPACE, TestData.SET, 1, objectsPerBucket, 20));
+
+        // More than the histogram holds, up to the last bucket holding any
+        assertWatermark(29, 35, estimator.estimate(store, TestData.NAMESPACE, TestData.SET, 10, objectsPerBucket, 1000));
+    }
+
+    @Test
+    public void splitsBucketFromSample() {
+        TestData.populate(store, SET_SIZE);
+        long[] objectsPerBucket = {SET_SIZE};
+        long toRemove = 3 * SET_SIZE / 10;
+
+        TtlEstimator.Watermark watermark = estimator.estimate(store, TestData.NAMESPACE, TestData.SET, 2 * TestData.TTL, objectsPerBucket, toRemove);
+
+        assertEquals(Node.PARTITIONS, watermark.partitionsSampled);
+        assertEquals(SET_SIZE, watermark.samplesInBucket);
+        assertEquals(toRemove, watermark.objects);
+
+        // At the third TTL step, within a cell of it as TTLs tick down
+        assertTrue(watermark.toString(), Math.abs(watermark.ttl - 3 * TestData.STEP) <= 2);
+        assertEquals(toRemove, TestData.count(store, RecordFilter.ttlAtMost(watermark.ttl)));
+    }
+
+    private static void assertWatermark(long ttl, long objects, TtlEstimator.Watermark watermark) {
+        assertEquals(watermark.toString(), ttl, watermark.ttl);
+        assertEquals(watermark.toString(), objects, watermark.objects);
+        assertEquals(0, watermark.partitionsSampled);
+    }
+}
@@ -0,0 +1,114 @@
+package com.aerospike.example;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+// ValueCodecTest
+//
+//   GIVEN  values below and above the compression threshold, compressible or not
+//   THEN   every value decodes to what was encoded, compressible values above the threshold are stored deflated and
+//          smaller, anything else raw with a one byte header
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+public class ValueCodecTest {
+    private static final int THRESHOLD = 1024;
+
+    public static class Document {
+        public long id;
+        public String name;
+        public List<String> tags;
+    }
+
+    @Test
+    public void storesSmallValuesRaw() {
+        ValueCodec<String> codec = ValueCodec.utf8(THRESHOLD);
+        String value = "small value, \u00fcn\u00efc\u00f6d\u00e9";
+
+        byte[] stored = (byte[]) codec.encode(value);
+
+        assertEquals(1 + InMemoryCacheStore.utf8Length(value), stored.length);
+        assertEquals(value, codec.decode(stored));
+    }
+
+    @Test
+    public void deflatesLargeCompressibleValues() {
+        ValueCodec<String> codec = ValueCodec.utf8(THRESHOLD);
+        StringBuilder value = new StringBuilder();
+        while (value.length() < 64 * 1024) value.append("cache record eviction partition ");
+
+        byte[] stored = (byte[]) codec.encode(value.toString());
+
+        assertTrue("Stored " + stored.length, stored.length < value.length() / 4);
+        assertEquals(value.toString(), codec.decode(stored));
+    }
+
+    @Test
+    public void storesIncompressibleValuesRaw() {
+        ValueCodec<byte[]> codec = ValueCodec.bytes(THRESHOLD);
+        byte[] value = new byte[16 * 1024];
+        new Random(42).nextBytes(value);
+
+        byte[] stored = (byte[]) codec.encode(value);
+
+        assertEquals(1 + value.length, stored.length);
+        assertArrayEquals(value, codec.decode(stored));
+    }
+
+    @Test
+    public void neverCompressesWithoutThreshold() {
+        ValueCodec<byte[]> codec = ValueCodec.bytes(0);
+        byte[] value = new byte[64 * 1024];
+
+        byte[] stored = (byte[]) codec.encode(value);
+
+        assertEquals(1 + value.length, stored.length);
+        assertArrayEquals(value, codec.decode(stored));
+    }
+
+    @Test
+    public void roundTripsJson() {
+        ValueCodec<Document> codec = ValueCodec.json(new ObjectMapper(), Document.class, THRESHOLD);
+        for (int tags : new int[]{1, 1000}) {
+            Document document = new Document();
+            document.id = tags;
+            document.name = "document-" + tags;
+            String[] values = new String[tags];
+            Arrays.fill(values, "tag");
+            document.tags = Arrays.asList(values);
+
+            Document decoded = codec.decode(codec.encode(document));
+
+            assertEquals(document.id, decoded.id);
+            assertEquals(document.name, decoded.name);
+            assertEquals(document.tags, decoded.tags);
+        }
+    }
+
+    @Test
+    public void decodesMissingBinAsNull() {
+        assertNull(ValueCodec.utf8(THRESHOLD).decode(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownHeader() {
+        ValueCodec.utf8(THRESHOLD).decode(new byte[]{7, 1, 2});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedDeflatedValue() {
+        ValueCodec<byte[]> codec = ValueCodec.bytes(THRESHOLD);
+        byte[] stored = (byte[]) codec.encode(new byte[64 * 1024]);
+
+        codec.decode(Arrays.copyOf(stored, stored.length / 2));
+    }
+}